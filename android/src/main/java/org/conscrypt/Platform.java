@@ -1019,4 +1019,16 @@ final public class Platform {
     public static boolean isSdkGreater(int sdk) {
         return Build.VERSION.SDK_INT > sdk;
     }
+
+    static boolean registerSessionCacheMBean(
+            @SuppressWarnings("unused") String name,
+            @SuppressWarnings("unused") AbstractSessionContext context) {
+        // JMX is not supported on this platform.
+        return false;
+    }
+
+    static boolean unregisterSessionCacheMBean(@SuppressWarnings("unused") String name) {
+        // JMX is not supported on this platform.
+        return false;
+    }
 }
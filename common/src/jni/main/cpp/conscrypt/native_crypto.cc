@@ -368,8 +368,18 @@ jbyteArray CryptoBufferToByteArray(JNIEnv* env, const CRYPTO_BUFFER* buf) {
     return ret;
 }
 
+/**
+ * Returns the process-wide pool in which certificates are stored, so that identical certificates
+ * used by different connections share one buffer. It is never freed, since every SSL_CTX refers
+ * to it.
+ */
+static CRYPTO_BUFFER_POOL* certificate_buffer_pool() {
+    static CRYPTO_BUFFER_POOL* pool = CRYPTO_BUFFER_POOL_new();
+    return pool;
+}
+
 bssl::UniquePtr<CRYPTO_BUFFER> ByteArrayToCryptoBuffer(JNIEnv* env, const jbyteArray array,
-                                                       CONSCRYPT_UNUSED CRYPTO_BUFFER_POOL* pool) {
+                                                       CRYPTO_BUFFER_POOL* pool) {
     if (array == nullptr) {
         JNI_TRACE("array was null");
         conscrypt::jniutil::throwNullPointerException(env, "array == null");
@@ -383,7 +393,7 @@ bssl::UniquePtr<CRYPTO_BUFFER> ByteArrayToCryptoBuffer(JNIEnv* env, const jbyteA
     }
 
     bssl::UniquePtr<CRYPTO_BUFFER> ret(CRYPTO_BUFFER_new(
-            reinterpret_cast<const uint8_t*>(arrayRo.get()), arrayRo.size(), nullptr));
+            reinterpret_cast<const uint8_t*>(arrayRo.get()), arrayRo.size(), pool));
     if (!ret) {
         JNI_TRACE("failed to allocate CRYPTO_BUFFER");
         conscrypt::jniutil::throwOutOfMemory(env, "failed to allocate CRYPTO_BUFFER");
@@ -8515,6 +8525,10 @@ static jlong NativeCrypto_SSL_CTX_new(JNIEnv* env, jclass) {
 
     SSL_CTX_set_mode(sslCtx.get(), mode);
 
+    // Store received certificates in the shared pool, so that connections to the same peers
+    // share one copy of its certificates rather than holding one each.
+    SSL_CTX_set0_buffer_pool(sslCtx.get(), certificate_buffer_pool());
+
     SSL_CTX_set_info_callback(sslCtx.get(), info_callback);
     SSL_CTX_set_cert_cb(sslCtx.get(), cert_cb, nullptr);
     SSL_CTX_set_select_certificate_cb(sslCtx.get(), select_certificate_cb);
@@ -8765,7 +8779,8 @@ static void NativeCrypto_setLocalCertsAndPrivateKey(JNIEnv* env, jclass, jlong s
         ScopedLocalRef<jbyteArray> certArray(
                 env, reinterpret_cast<jbyteArray>(
                              env->GetObjectArrayElement(encodedCertificatesJava, i)));
-        certBufferRefs[i] = ByteArrayToCryptoBuffer(env, certArray.get(), nullptr);
+        certBufferRefs[i] =
+                ByteArrayToCryptoBuffer(env, certArray.get(), certificate_buffer_pool());
         if (!certBufferRefs[i]) {
             return;
         }
@@ -8781,6 +8796,98 @@ static void NativeCrypto_setLocalCertsAndPrivateKey(JNIEnv* env, jclass, jlong s
     JNI_TRACE("ssl=%p NativeCrypto_SSL_set_chain_and_key => ok", ssl);
 }
 
+/**
+ * Parses an encoded certificate chain into a stack of CRYPTO_BUFFERs which can be passed to
+ * setLocalCertChainAndPrivateKey for any number of connections.
+ */
+static jlong NativeCrypto_CRYPTO_BUFFER_STACK_new(JNIEnv* env, jclass,
+                                                  jobjectArray encodedCertificatesJava) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    JNI_TRACE("CRYPTO_BUFFER_STACK_new(%p)", encodedCertificatesJava);
+    if (encodedCertificatesJava == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "certificates == null");
+        return 0;
+    }
+    size_t numCerts = static_cast<size_t>(env->GetArrayLength(encodedCertificatesJava));
+    if (numCerts == 0) {
+        conscrypt::jniutil::throwException(env, "java/lang/IllegalArgumentException",
+                                           "certificates.length == 0");
+        return 0;
+    }
+
+    bssl::UniquePtr<STACK_OF(CRYPTO_BUFFER)> chain(sk_CRYPTO_BUFFER_new_null());
+    if (chain.get() == nullptr) {
+        conscrypt::jniutil::throwOutOfMemory(env, "Unable to allocate certificate chain");
+        return 0;
+    }
+    for (size_t i = 0; i < numCerts; ++i) {
+        ScopedLocalRef<jbyteArray> certArray(
+                env, reinterpret_cast<jbyteArray>(
+                             env->GetObjectArrayElement(encodedCertificatesJava, i)));
+        bssl::UniquePtr<CRYPTO_BUFFER> buffer =
+                ByteArrayToCryptoBuffer(env, certArray.get(), certificate_buffer_pool());
+        if (!buffer) {
+            return 0;
+        }
+        if (!sk_CRYPTO_BUFFER_push(chain.get(), buffer.get())) {
+            conscrypt::jniutil::throwOutOfMemory(env, "Unable to push certificate");
+            return 0;
+        }
+        OWNERSHIP_TRANSFERRED(buffer);
+    }
+    JNI_TRACE("CRYPTO_BUFFER_STACK_new(%p) => %p", encodedCertificatesJava, chain.get());
+    return reinterpret_cast<uintptr_t>(chain.release());
+}
+
+static void NativeCrypto_CRYPTO_BUFFER_STACK_free(JNIEnv* env, jclass, jlong chainRef) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    STACK_OF(CRYPTO_BUFFER)* chain = reinterpret_cast<STACK_OF(CRYPTO_BUFFER)*>(chainRef);
+    JNI_TRACE("CRYPTO_BUFFER_STACK_free(%p)", chain);
+
+    if (chain != nullptr) {
+        sk_CRYPTO_BUFFER_pop_free(chain, CRYPTO_BUFFER_free);
+    }
+}
+
+/**
+ * Like setLocalCertsAndPrivateKey, but with a certificate chain which has already been parsed
+ * by CRYPTO_BUFFER_STACK_new. The buffers are shared rather than copied.
+ */
+static void NativeCrypto_setLocalCertChainAndPrivateKey(JNIEnv* env, jclass, jlong ssl_address,
+                                                        CONSCRYPT_UNUSED jobject ssl_holder,
+                                                        jobject chainRef, jobject pkeyRef) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    JNI_TRACE("ssl=%p NativeCrypto_setLocalCertChainAndPrivateKey chain=%p, privateKey=%p", ssl,
+              chainRef, pkeyRef);
+    if (ssl == nullptr) {
+        return;
+    }
+    STACK_OF(CRYPTO_BUFFER)* chain = fromContextObject<STACK_OF(CRYPTO_BUFFER)>(env, chainRef);
+    if (chain == nullptr) {
+        JNI_TRACE("ssl=%p NativeCrypto_setLocalCertChainAndPrivateKey => chain == null", ssl);
+        return;
+    }
+    EVP_PKEY* pkey = fromContextObject<EVP_PKEY>(env, pkeyRef);
+    if (pkey == nullptr) {
+        JNI_TRACE("ssl=%p NativeCrypto_setLocalCertChainAndPrivateKey => pkey == null", ssl);
+        return;
+    }
+
+    size_t numCerts = sk_CRYPTO_BUFFER_num(chain);
+    std::vector<CRYPTO_BUFFER*> certBuffers(numCerts);
+    for (size_t i = 0; i < numCerts; ++i) {
+        certBuffers[i] = sk_CRYPTO_BUFFER_value(chain, i);
+    }
+    if (!SSL_set_chain_and_key(ssl, certBuffers.data(), numCerts, pkey, nullptr)) {
+        conscrypt::jniutil::throwSSLExceptionWithSslErrors(env, ssl, SSL_ERROR_NONE,
+                                                           "Error configuring certificate");
+        JNI_TRACE("ssl=%p NativeCrypto_setLocalCertChainAndPrivateKey => error", ssl);
+        return;
+    }
+    JNI_TRACE("ssl=%p NativeCrypto_setLocalCertChainAndPrivateKey => ok", ssl);
+}
+
 static void NativeCrypto_SSL_set_client_CA_list(JNIEnv* env, jclass, jlong ssl_address,
                                                 CONSCRYPT_UNUSED jobject ssl_holder,
                                                 jobjectArray principals) {
@@ -8830,6 +8937,47 @@ static void NativeCrypto_SSL_set_client_CA_list(JNIEnv* env, jclass, jlong ssl_a
     JNI_TRACE("ssl=%p NativeCrypto_SSL_set_client_CA_list => ok", ssl);
 }
 
+/**
+ * Like SSL_set_client_CA_list, but with names which have already been copied into a stack by
+ * CRYPTO_BUFFER_STACK_new. The buffers are shared with the stack rather than copied.
+ */
+static void NativeCrypto_SSL_set_client_CA_stack(JNIEnv* env, jclass, jlong ssl_address,
+                                                 CONSCRYPT_UNUSED jobject ssl_holder,
+                                                 jobject principalsRef) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    JNI_TRACE("ssl=%p NativeCrypto_SSL_set_client_CA_stack principals=%p", ssl, principalsRef);
+    if (ssl == nullptr) {
+        return;
+    }
+    STACK_OF(CRYPTO_BUFFER)* principals =
+            fromContextObject<STACK_OF(CRYPTO_BUFFER)>(env, principalsRef);
+    if (principals == nullptr) {
+        JNI_TRACE("ssl=%p NativeCrypto_SSL_set_client_CA_stack => principals == null", ssl);
+        return;
+    }
+
+    // The SSL takes ownership of the stack it is given, so it gets its own stack of references.
+    bssl::UniquePtr<STACK_OF(CRYPTO_BUFFER)> principalsStack(sk_CRYPTO_BUFFER_new_null());
+    if (principalsStack.get() == nullptr) {
+        conscrypt::jniutil::throwOutOfMemory(env, "Unable to allocate principal stack");
+        JNI_TRACE("ssl=%p NativeCrypto_SSL_set_client_CA_stack => stack allocation error", ssl);
+        return;
+    }
+    for (size_t i = 0; i < sk_CRYPTO_BUFFER_num(principals); i++) {
+        CRYPTO_BUFFER* buf = sk_CRYPTO_BUFFER_value(principals, i);
+        if (!sk_CRYPTO_BUFFER_push(principalsStack.get(), buf)) {
+            conscrypt::jniutil::throwOutOfMemory(env, "Unable to push principal");
+            JNI_TRACE("ssl=%p NativeCrypto_SSL_set_client_CA_stack => principal push error", ssl);
+            return;
+        }
+        CRYPTO_BUFFER_up_ref(buf);
+    }
+
+    SSL_set0_client_CAs(ssl, principalsStack.release());
+    JNI_TRACE("ssl=%p NativeCrypto_SSL_set_client_CA_stack => ok", ssl);
+}
+
 /**
  * public static native long SSL_set_mode(long ssl, long mode);
  */
@@ -8884,6 +9032,155 @@ static jlong NativeCrypto_SSL_clear_options(JNIEnv* env, jclass, jlong ssl_addre
     return result;
 }
 
+// TicketKey is the format of the stateless session ticket keys supplied by a
+// ServerSessionContext: a 16-byte key name followed by a 16-byte HMAC-SHA256 key and a 16-byte
+// AES-128-CBC key.
+struct TicketKey {
+    uint8_t name[16];
+    uint8_t hmac_key[16];
+    uint8_t aes_key[16];
+};
+static_assert(sizeof(TicketKey) == 48, "TicketKey must be 48 bytes");
+
+typedef std::vector<TicketKey> TicketKeys;
+
+// SslCtxTicketKeys holds the session ticket keys of an SSL_CTX. The keys are replaced as a whole
+// under the mutex, and handshakes keep a reference to the set they started with, so a key change
+// never affects a ticket which is being encrypted or decrypted.
+struct SslCtxTicketKeys {
+    std::mutex mutex;
+    std::shared_ptr<const TicketKeys> keys;
+};
+
+int g_ssl_ctx_ticket_keys_index = -1;
+std::once_flag g_ssl_ctx_ticket_keys_once;
+
+// TicketKeysExDataFree is called when an SSL_CTX with session ticket keys is freed.
+void TicketKeysExDataFree(void* /* parent */, void* ptr, CRYPTO_EX_DATA* /* ad */,
+                          int /* index */, long /* argl */ /* NOLINT(runtime/int) */,
+                          void* /* argp */) {
+    delete reinterpret_cast<SslCtxTicketKeys*>(ptr);
+}
+
+void init_ssl_ctx_ticket_keys_index() {
+    g_ssl_ctx_ticket_keys_index = SSL_CTX_get_ex_new_index(
+            0 /* argl */, nullptr /* argp */, nullptr /* new_func */, nullptr /* dup_func */,
+            TicketKeysExDataFree);
+}
+
+static std::shared_ptr<const TicketKeys> get_ticket_keys(SSL_CTX* ssl_ctx) {
+    SslCtxTicketKeys* holder = reinterpret_cast<SslCtxTicketKeys*>(
+            SSL_CTX_get_ex_data(ssl_ctx, g_ssl_ctx_ticket_keys_index));
+    if (holder == nullptr) {
+        return nullptr;
+    }
+    std::lock_guard<std::mutex> lock(holder->mutex);
+    return holder->keys;
+}
+
+// ticket_key_callback encrypts new session tickets with the first of the SSL_CTX's ticket keys
+// and decrypts tickets issued with any of them. It is only installed while the SSL_CTX has keys.
+static int ticket_key_callback(SSL* ssl, uint8_t* key_name, uint8_t* iv,
+                               EVP_CIPHER_CTX* cipher_ctx, HMAC_CTX* hmac_ctx, int encrypt) {
+    std::shared_ptr<const TicketKeys> keys = get_ticket_keys(SSL_get_SSL_CTX(ssl));
+    if (keys == nullptr || keys->empty()) {
+        // The keys were removed while this handshake was in progress.
+        JNI_TRACE("ssl=%p ticket_key_callback => no keys", ssl);
+        return 0;
+    }
+
+    if (encrypt) {
+        const TicketKey& key = keys->front();
+        if (!RAND_bytes(iv, EVP_CIPHER_iv_length(EVP_aes_128_cbc()))) {
+            return -1;
+        }
+        memcpy(key_name, key.name, sizeof(key.name));
+        if (!EVP_EncryptInit_ex(cipher_ctx, EVP_aes_128_cbc(), nullptr, key.aes_key, iv) ||
+            !HMAC_Init_ex(hmac_ctx, key.hmac_key, sizeof(key.hmac_key), EVP_sha256(), nullptr)) {
+            return -1;
+        }
+        return 1;
+    }
+
+    for (size_t i = 0; i < keys->size(); i++) {
+        const TicketKey& key = (*keys)[i];
+        if (memcmp(key_name, key.name, sizeof(key.name)) != 0) {
+            continue;
+        }
+        if (!HMAC_Init_ex(hmac_ctx, key.hmac_key, sizeof(key.hmac_key), EVP_sha256(), nullptr) ||
+            !EVP_DecryptInit_ex(cipher_ctx, EVP_aes_128_cbc(), nullptr, key.aes_key, iv)) {
+            return -1;
+        }
+        // Ask for the ticket to be renewed if it wasn't issued with the current key.
+        JNI_TRACE("ssl=%p ticket_key_callback => key %zu", ssl, i);
+        return i == 0 ? 1 : 2;
+    }
+    JNI_TRACE("ssl=%p ticket_key_callback => unknown key", ssl);
+    return 0;
+}
+
+/**
+ * Sets the keys SSLs created from this SSL_CTX use for stateless session tickets.
+ * {@code keysJava} is a concatenation of 48-byte keys, the first of which is used to issue new
+ * tickets, or null to go back to BoringSSL's own ticket keys.
+ */
+static void NativeCrypto_SSL_CTX_set_ticket_keys(JNIEnv* env, jclass, jlong ssl_ctx_address,
+                                                 CONSCRYPT_UNUSED jobject holder,
+                                                 jbyteArray keysJava) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL_CTX* ssl_ctx = to_SSL_CTX(env, ssl_ctx_address, true);
+    JNI_TRACE("ssl_ctx=%p NativeCrypto_SSL_CTX_set_ticket_keys keys=%p", ssl_ctx, keysJava);
+    if (ssl_ctx == nullptr) {
+        return;
+    }
+
+    std::call_once(g_ssl_ctx_ticket_keys_once, init_ssl_ctx_ticket_keys_index);
+    SslCtxTicketKeys* ticket_keys = reinterpret_cast<SslCtxTicketKeys*>(
+            SSL_CTX_get_ex_data(ssl_ctx, g_ssl_ctx_ticket_keys_index));
+
+    if (keysJava == nullptr) {
+        if (ticket_keys != nullptr) {
+            SSL_CTX_set_tlsext_ticket_key_cb(ssl_ctx, nullptr);
+            std::lock_guard<std::mutex> lock(ticket_keys->mutex);
+            ticket_keys->keys.reset();
+        }
+        JNI_TRACE("ssl_ctx=%p NativeCrypto_SSL_CTX_set_ticket_keys => cleared", ssl_ctx);
+        return;
+    }
+
+    ScopedByteArrayRO keys(env, keysJava);
+    if (keys.get() == nullptr) {
+        JNI_TRACE("ssl_ctx=%p NativeCrypto_SSL_CTX_set_ticket_keys => threw exception",
+                  ssl_ctx);
+        return;
+    }
+    if (keys.size() == 0 || keys.size() % sizeof(TicketKey) != 0) {
+        conscrypt::jniutil::throwException(env, "java/lang/IllegalArgumentException",
+                                           "Invalid session ticket keys length");
+        return;
+    }
+    std::shared_ptr<TicketKeys> new_keys(new TicketKeys(keys.size() / sizeof(TicketKey)));
+    memcpy(new_keys->data(), keys.get(), keys.size());
+
+    if (ticket_keys == nullptr) {
+        // The holder is created before the callback is first installed and lives as long as the
+        // SSL_CTX, so handshakes never see it change.
+        std::unique_ptr<SslCtxTicketKeys> created(new SslCtxTicketKeys());
+        if (!SSL_CTX_set_ex_data(ssl_ctx, g_ssl_ctx_ticket_keys_index, created.get())) {
+            conscrypt::jniutil::throwRuntimeException(env, "SSL_CTX_set_ex_data");
+            return;
+        }
+        ticket_keys = created.release();
+    }
+    {
+        std::lock_guard<std::mutex> lock(ticket_keys->mutex);
+        ticket_keys->keys = std::move(new_keys);
+    }
+    SSL_CTX_set_tlsext_ticket_key_cb(ssl_ctx, ticket_key_callback);
+    JNI_TRACE("ssl_ctx=%p NativeCrypto_SSL_CTX_set_ticket_keys => %zu keys", ssl_ctx,
+              keys.size() / sizeof(TicketKey));
+}
+
 static jint NativeCrypto_SSL_set_protocol_versions(JNIEnv* env, jclass, jlong ssl_address,
                                                    CONSCRYPT_UNUSED jobject ssl_holder,
                                                    jint min_version, jint max_version) {
@@ -9325,6 +9622,87 @@ static void NativeCrypto_SSL_set_cipher_lists(JNIEnv* env, jclass, jlong ssl_add
     }
 }
 
+/**
+ * Applies the connection-independent part of an SSLParametersImpl configuration, as compiled by
+ * SSLConfiguration, in one call. A null cipherList leaves the cipher suites unchanged; otherwise
+ * it is the full BoringSSL cipher string. An empty groups array selects the default groups.
+ */
+static void NativeCrypto_SSL_configure(JNIEnv* env, jclass, jlong ssl_address,
+                                       CONSCRYPT_UNUSED jobject ssl_holder, jboolean client,
+                                       jint min_version, jint max_version, jstring cipherList,
+                                       jintArray groups, jlong set_options, jlong clear_options,
+                                       jlong mode, jboolean enable_ocsp_stapling) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    JNI_TRACE("ssl=%p NativeCrypto_SSL_configure client=%d min=0x%x max=0x%x", ssl, client,
+              min_version, max_version);
+    if (ssl == nullptr) {
+        return;
+    }
+    if (groups == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "groups == null");
+        return;
+    }
+
+    SSL_set_renegotiate_mode(ssl, ssl_renegotiate_freely);
+    if (client) {
+        SSL_set_connect_state(ssl);
+    } else {
+        SSL_set_accept_state(ssl);
+    }
+    if (enable_ocsp_stapling) {
+        SSL_enable_ocsp_stapling(ssl);
+    }
+
+    // Set both versions even if one is invalid, as SSL_set_protocol_versions does.
+    int min_result = SSL_set_min_proto_version(ssl, static_cast<uint16_t>(min_version));
+    int max_result = SSL_set_max_proto_version(ssl, static_cast<uint16_t>(max_version));
+    if (!min_result || !max_result) {
+        // The only possible error is an invalid version, which callers don't check for either.
+        ERR_clear_error();
+    }
+
+    if (cipherList != nullptr) {
+        ScopedUtfChars ciphers(env, cipherList);
+        if (ciphers.c_str() == nullptr) {
+            return;
+        }
+        if (ciphers.size() == 0) {
+            // See NativeCrypto_SSL_set_cipher_lists.
+            SSL_set_cipher_list(ssl, "");
+            ERR_clear_error();
+            if (sk_SSL_CIPHER_num(SSL_get_ciphers(ssl)) != 0) {
+                conscrypt::jniutil::throwRuntimeException(
+                        env, "SSL_set_cipher_list did not update ciphers!");
+                ERR_clear_error();
+                return;
+            }
+        } else if (!SSL_set_cipher_list(ssl, ciphers.c_str())) {
+            ERR_clear_error();
+            conscrypt::jniutil::throwException(env, "java/lang/IllegalArgumentException",
+                                               "Illegal cipher suite strings.");
+            return;
+        }
+    }
+
+    ScopedIntArrayRO groups_ro(env, groups);
+    if (groups_ro.get() == nullptr) {
+        conscrypt::jniutil::throwOutOfMemory(env, "Unable to allocate buffer for groups");
+        return;
+    }
+    std::vector<int> groups_vector(groups_ro.get(), groups_ro.get() + groups_ro.size());
+    if (!SSL_set1_groups(ssl, groups_vector.data(), groups_vector.size())) {
+        conscrypt::jniutil::throwSSLExceptionStr(env, "Error parsing groups");
+        ERR_clear_error();
+        return;
+    }
+
+    SSL_set_options(ssl, static_cast<uint32_t>(set_options));
+    SSL_clear_options(ssl, static_cast<uint32_t>(clear_options));
+    SSL_set_mode(ssl, static_cast<uint32_t>(mode));
+    JNI_TRACE("ssl=%p NativeCrypto_SSL_configure => ok", ssl);
+}
+
 static void NativeCrypto_SSL_set_accept_state(JNIEnv* env, jclass, jlong ssl_address,
                                               CONSCRYPT_UNUSED jobject ssl_holder) {
     CHECK_ERROR_QUEUE_ON_RETURN;
@@ -11598,6 +11976,102 @@ static int NativeCrypto_ENGINE_SSL_read_BIO_direct(JNIEnv* env, jclass, jlong ss
     return result;
 }
 
+/**
+ * Writes encrypted data from a Java byte array to the network BIO. The array is accessed in place
+ * with GetPrimitiveArrayCritical, which is safe because writing to the BIO never calls back into
+ * Java.
+ */
+static int NativeCrypto_ENGINE_SSL_write_BIO_heap(JNIEnv* env, jclass, jlong ssl_address,
+                                                  CONSCRYPT_UNUSED jobject ssl_holder, jlong bioRef,
+                                                  jbyteArray sourceJava, jint sourceOffset,
+                                                  jint sourceLength) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    if (ssl == nullptr) {
+        return -1;
+    }
+    BIO* bio = to_BIO(env, bioRef);
+    if (bio == nullptr) {
+        return -1;
+    }
+    if (sourceJava == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "source == null");
+        return -1;
+    }
+    size_t array_size = static_cast<size_t>(env->GetArrayLength(sourceJava));
+    if (ARRAY_CHUNK_INVALID(array_size, sourceOffset, sourceLength)) {
+        conscrypt::jniutil::throwException(env, "java/lang/ArrayIndexOutOfBoundsException",
+                                           "source");
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_heap => ArrayIndexOutOfBoundsException",
+                  ssl);
+        return -1;
+    }
+    if (BIO_ctrl_get_write_guarantee(bio) < static_cast<size_t>(sourceLength)) {
+        // The network BIO couldn't handle the entire write. Don't write anything, so that we
+        // only process one packet at a time.
+        return 0;
+    }
+
+    void* source = env->GetPrimitiveArrayCritical(sourceJava, nullptr);
+    if (source == nullptr) {
+        // An OutOfMemoryError has been thrown.
+        return -1;
+    }
+    const char* sourcePtr = reinterpret_cast<const char*>(source) + sourceOffset;
+    int result = BIO_write(bio, sourcePtr, sourceLength);
+    JNI_TRACE_PACKET_DATA(ssl, 'O', sourcePtr, static_cast<size_t>(result));
+    env->ReleasePrimitiveArrayCritical(sourceJava, source, JNI_ABORT);
+    JNI_TRACE(
+            "ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_heap bio=%p offset=%d length=%d => ret=%d",
+            ssl, bio, sourceOffset, sourceLength, result);
+    return result;
+}
+
+/**
+ * Reads encrypted data from the network BIO into a Java byte array. The array is accessed in
+ * place with GetPrimitiveArrayCritical, which is safe because reading from the BIO never calls
+ * back into Java.
+ */
+static int NativeCrypto_ENGINE_SSL_read_BIO_heap(JNIEnv* env, jclass, jlong ssl_address,
+                                                 CONSCRYPT_UNUSED jobject ssl_holder, jlong bioRef,
+                                                 jbyteArray destJava, jint destOffset,
+                                                 jint destLength) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    if (ssl == nullptr) {
+        return -1;
+    }
+    BIO* bio = to_BIO(env, bioRef);
+    if (bio == nullptr) {
+        return -1;
+    }
+    if (destJava == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "dest == null");
+        return -1;
+    }
+    size_t array_size = static_cast<size_t>(env->GetArrayLength(destJava));
+    if (ARRAY_CHUNK_INVALID(array_size, destOffset, destLength)) {
+        conscrypt::jniutil::throwException(env, "java/lang/ArrayIndexOutOfBoundsException",
+                                           "dest");
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_heap => ArrayIndexOutOfBoundsException",
+                  ssl);
+        return -1;
+    }
+
+    void* dest = env->GetPrimitiveArrayCritical(destJava, nullptr);
+    if (dest == nullptr) {
+        // An OutOfMemoryError has been thrown.
+        return -1;
+    }
+    char* destPtr = reinterpret_cast<char*>(dest) + destOffset;
+    int result = BIO_read(bio, destPtr, destLength);
+    JNI_TRACE_PACKET_DATA(ssl, 'I', destPtr, static_cast<size_t>(result));
+    env->ReleasePrimitiveArrayCritical(destJava, dest, 0);
+    JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_heap bio=%p offset=%d length=%d => ret=%d",
+              ssl, bio, destOffset, destLength, result);
+    return result;
+}
+
 static void NativeCrypto_ENGINE_SSL_force_read(JNIEnv* env, jclass, jlong ssl_address,
                                                CONSCRYPT_UNUSED jobject ssl_holder, jobject shc) {
     CHECK_ERROR_QUEUE_ON_RETURN;
@@ -11721,6 +12195,275 @@ static int NativeCrypto_ENGINE_SSL_write_direct(JNIEnv* env, jclass, jlong ssl_a
     return result;
 }
 
+/**
+ * Seals as many records from the plaintext at |srcAddress| as fit into the |dstLength| bytes at
+ * |dstAddress|, draining the network BIO into the destination after each record. Returns the
+ * number of plaintext bytes consumed in the upper 32 bits and the number of encrypted bytes
+ * produced in the lower 32 bits. If no plaintext could be written, returns the (non-positive)
+ * result of the failed |SSL_write| so the caller can retrieve the error.
+ */
+static jlong NativeCrypto_ENGINE_SSL_write_BIO_batch_direct(
+        JNIEnv* env, jclass, jlong ssl_address, CONSCRYPT_UNUSED jobject ssl_holder,
+        jlong bioRef, jlong srcAddress, jint srcLength, jlong dstAddress, jint dstLength,
+        jobject shc) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    if (ssl == nullptr) {
+        return -1;
+    }
+    JNI_TRACE(
+            "ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_batch_direct srcLength=%d dstLength=%d "
+            "shc=%p",
+            ssl, srcLength, dstLength, shc);
+    if (shc == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "sslHandshakeCallbacks == null");
+        JNI_TRACE(
+                "ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_batch_direct => "
+                "sslHandshakeCallbacks == null",
+                ssl);
+        return -1;
+    }
+    BIO* bio = to_BIO(env, bioRef);
+    if (bio == nullptr) {
+        return -1;
+    }
+    const char* sourcePtr = reinterpret_cast<const char*>(srcAddress);
+    char* destPtr = reinterpret_cast<char*>(dstAddress);
+    if (sourcePtr == nullptr || destPtr == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "address == null");
+        return -1;
+    }
+    if (srcLength < 0 || dstLength < 0) {
+        conscrypt::jniutil::throwException(env, "java/lang/IllegalArgumentException",
+                                           "length < 0");
+        return -1;
+    }
+
+    AppData* appData = toAppData(ssl);
+    if (appData == nullptr) {
+        conscrypt::jniutil::throwSSLExceptionStr(env, "Unable to retrieve application data");
+        ERR_clear_error();
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_batch_direct appData => null", ssl);
+        return -1;
+    }
+    if (!appData->setCallbackState(env, shc, nullptr)) {
+        conscrypt::jniutil::throwSSLExceptionStr(env, "Unable to set appdata callback");
+        ERR_clear_error();
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_batch_direct => exception", ssl);
+        return -1;
+    }
+
+    errno = 0;
+
+    const int overhead = static_cast<int>(SSL_max_seal_overhead(ssl));
+    int consumed = 0;
+    int produced = 0;
+    int result = 0;
+    while (consumed < srcLength) {
+        int chunk = std::min(srcLength - consumed, static_cast<int>(SSL3_RT_MAX_PLAIN_LENGTH));
+        if (dstLength - produced < chunk + overhead) {
+            // The sealed record might not fit in the remaining destination space.
+            break;
+        }
+        result = SSL_write(ssl, sourcePtr + consumed, chunk);
+        if (result <= 0) {
+            break;
+        }
+        consumed += result;
+
+        // Move the sealed record(s) out of the BIO pair so that it has room for the next one.
+        size_t pending;
+        while ((pending = BIO_ctrl_pending(bio)) > 0 && produced < dstLength) {
+            int toRead = static_cast<int>(
+                    std::min(pending, static_cast<size_t>(dstLength - produced)));
+            int read = BIO_read(bio, destPtr + produced, toRead);
+            if (read <= 0) {
+                break;
+            }
+            JNI_TRACE_PACKET_DATA(ssl, 'I', destPtr + produced, static_cast<size_t>(read));
+            produced += read;
+        }
+        if (BIO_ctrl_pending(bio) > 0) {
+            // The destination is full; leave the rest for the caller to drain.
+            break;
+        }
+    }
+    appData->clearCallbackState();
+    if (env->ExceptionCheck()) {
+        ERR_clear_error();
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_batch_direct => THROWN_EXCEPTION",
+                  ssl);
+        return -1;
+    }
+
+    JNI_TRACE(
+            "ssl=%p NativeCrypto_ENGINE_SSL_write_BIO_batch_direct srcLength=%d dstLength=%d "
+            "shc=%p => consumed=%d produced=%d result=%d",
+            ssl, srcLength, dstLength, shc, consumed, produced, result);
+    if (consumed == 0) {
+        return result;
+    }
+    if (result <= 0) {
+        // Some records were sealed before the failure, so report those. The error will be seen
+        // again by the next write.
+        ERR_clear_error();
+    }
+    return (static_cast<jlong>(consumed) << 32) | static_cast<jlong>(produced);
+}
+
+/**
+ * Feeds the complete TLS records at |srcAddress| into the network BIO one record at a time and
+ * decrypts them with |SSL_read| into the destinations given by |dstAddresses| and |dstLengths|,
+ * filling each destination in turn. Stops when the destinations are full, the source is exhausted
+ * or the connection is closed. Returns the number of encrypted bytes consumed in the upper 32 bits
+ * and the number of plaintext bytes produced in the lower 32 bits.
+ */
+static jlong NativeCrypto_ENGINE_SSL_read_BIO_batch_direct(
+        JNIEnv* env, jclass, jlong ssl_address, CONSCRYPT_UNUSED jobject ssl_holder,
+        jlong bioRef, jlong srcAddress, jint srcLength, jlongArray dstAddresses,
+        jintArray dstLengths, jobject shc) {
+    CHECK_ERROR_QUEUE_ON_RETURN;
+    SSL* ssl = to_SSL(env, ssl_address, true);
+    if (ssl == nullptr) {
+        return -1;
+    }
+    JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct srcLength=%d shc=%p", ssl,
+              srcLength, shc);
+    if (shc == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "sslHandshakeCallbacks == null");
+        JNI_TRACE(
+                "ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct => "
+                "sslHandshakeCallbacks == null",
+                ssl);
+        return -1;
+    }
+    BIO* bio = to_BIO(env, bioRef);
+    if (bio == nullptr) {
+        return -1;
+    }
+    const uint8_t* sourcePtr = reinterpret_cast<const uint8_t*>(srcAddress);
+    if (sourcePtr == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "srcAddress == null");
+        return -1;
+    }
+    if (dstAddresses == nullptr || dstLengths == nullptr) {
+        conscrypt::jniutil::throwNullPointerException(env, "destinations == null");
+        return -1;
+    }
+    ScopedLongArrayRO addresses(env, dstAddresses);
+    ScopedIntArrayRO lengths(env, dstLengths);
+    if (addresses.get() == nullptr || lengths.get() == nullptr) {
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct => threw exception", ssl);
+        return -1;
+    }
+    if (addresses.size() != lengths.size() || srcLength < 0) {
+        conscrypt::jniutil::throwException(env, "java/lang/IllegalArgumentException",
+                                           "Invalid destinations or length");
+        return -1;
+    }
+
+    AppData* appData = toAppData(ssl);
+    if (appData == nullptr) {
+        conscrypt::jniutil::throwSSLExceptionStr(env, "Unable to retrieve application data");
+        ERR_clear_error();
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct appData => null", ssl);
+        return -1;
+    }
+    if (!appData->setCallbackState(env, shc, nullptr)) {
+        conscrypt::jniutil::throwSSLExceptionStr(env, "Unable to set appdata callback");
+        ERR_clear_error();
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct => exception", ssl);
+        return -1;
+    }
+
+    errno = 0;
+
+    int consumed = 0;
+    int produced = 0;
+    // Bytes of the current record still to be written to the BIO.
+    int recordRemaining = 0;
+    size_t dstIndex = 0;
+    int dstOffset = 0;
+    int result = 0;
+    while (dstIndex < addresses.size()) {
+        if (dstOffset == lengths[dstIndex]) {
+            dstIndex++;
+            dstOffset = 0;
+            continue;
+        }
+        char* destPtr = reinterpret_cast<char*>(addresses[dstIndex]) + dstOffset;
+        result = SSL_read(ssl, destPtr, lengths[dstIndex] - dstOffset);
+        if (result > 0) {
+            produced += result;
+            dstOffset += result;
+            continue;
+        }
+        if (env->ExceptionCheck() || SSL_get_error(ssl, result) != SSL_ERROR_WANT_READ) {
+            break;
+        }
+
+        // Feed the next part of the current record, or the next record, to the BIO.
+        if (recordRemaining == 0) {
+            if (srcLength - consumed < SSL3_RT_HEADER_LENGTH) {
+                break;
+            }
+            const uint8_t* header = sourcePtr + consumed;
+            recordRemaining = SSL3_RT_HEADER_LENGTH + ((header[3] << 8) | header[4]);
+            recordRemaining = std::min(recordRemaining, srcLength - consumed);
+        }
+        int toWrite = static_cast<int>(std::min(static_cast<size_t>(recordRemaining),
+                                                BIO_ctrl_get_write_guarantee(bio)));
+        int written = toWrite > 0 ? BIO_write(bio, sourcePtr + consumed, toWrite) : 0;
+        if (written <= 0) {
+            break;
+        }
+        JNI_TRACE_PACKET_DATA(ssl, 'O', reinterpret_cast<const char*>(sourcePtr + consumed),
+                              static_cast<size_t>(written));
+        consumed += written;
+        recordRemaining -= written;
+    }
+    appData->clearCallbackState();
+    if (env->ExceptionCheck()) {
+        // An exception was thrown by one of the callbacks. Just propagate that exception.
+        ERR_clear_error();
+        JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct => THROWN_EXCEPTION",
+                  ssl);
+        return -1;
+    }
+
+    if (result <= 0) {
+        SslError sslError(ssl, result);
+        switch (sslError.get()) {
+            case SSL_ERROR_NONE:
+            case SSL_ERROR_ZERO_RETURN:
+            case SSL_ERROR_WANT_READ:
+            case SSL_ERROR_WANT_WRITE: {
+                // The source was exhausted, data must be written, or the peer closed the
+                // connection. The caller checks for the latter once this returns.
+                break;
+            }
+            default: {
+                if (produced > 0) {
+                    // Return the plaintext read so far. The error is sticky, so it will be
+                    // reported by the next read.
+                    break;
+                }
+                conscrypt::jniutil::throwSSLExceptionWithSslErrors(env, ssl, sslError.release(),
+                                                                   "Read error");
+                JNI_TRACE("ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct => exception",
+                          ssl);
+                return -1;
+            }
+        }
+    }
+
+    JNI_TRACE(
+            "ssl=%p NativeCrypto_ENGINE_SSL_read_BIO_batch_direct srcLength=%d shc=%p => "
+            "consumed=%d produced=%d",
+            ssl, srcLength, shc, consumed, produced);
+    return (static_cast<jlong>(consumed) << 32) | static_cast<jlong>(produced);
+}
+
 /**
  * public static native bool usesBoringSsl_FIPS_mode();
  */
@@ -12232,6 +12975,8 @@ static jboolean NativeCrypto_SSL_CTX_ech_enable_server(JNIEnv* env, jclass, jlon
 #define REF_EVP_HPKE_CTX "L" TO_STRING(JNI_JARJAR_PREFIX) "org/conscrypt/NativeRef$EVP_HPKE_CTX;"
 #define REF_EVP_HPKE_KEY "L" TO_STRING(JNI_JARJAR_PREFIX) "org/conscrypt/NativeRef$EVP_HPKE_KEY;"
 #define REF_EVP_MD_CTX "L" TO_STRING(JNI_JARJAR_PREFIX) "org/conscrypt/NativeRef$EVP_MD_CTX;"
+#define REF_CRYPTO_BUFFER_STACK \
+    "L" TO_STRING(JNI_JARJAR_PREFIX) "org/conscrypt/NativeRef$CRYPTO_BUFFER_STACK;"
 #define REF_EVP_PKEY "L" TO_STRING(JNI_JARJAR_PREFIX) "org/conscrypt/NativeRef$EVP_PKEY;"
 #define REF_EVP_PKEY_CTX "L" TO_STRING(JNI_JARJAR_PREFIX) "org/conscrypt/NativeRef$EVP_PKEY_CTX;"
 #define REF_HMAC_CTX "L" TO_STRING(JNI_JARJAR_PREFIX) "org/conscrypt/NativeRef$HMAC_CTX;"
@@ -12492,16 +13237,23 @@ static JNINativeMethod sNativeCryptoMethods[] = {
         CONSCRYPT_NATIVE_METHOD(SSL_CTX_free, "(J" REF_SSL_CTX ")V"),
         CONSCRYPT_NATIVE_METHOD(SSL_CTX_set_session_id_context, "(J" REF_SSL_CTX "[B)V"),
         CONSCRYPT_NATIVE_METHOD(SSL_CTX_set_timeout, "(J" REF_SSL_CTX "J)J"),
+        CONSCRYPT_NATIVE_METHOD(SSL_CTX_set_ticket_keys, "(J" REF_SSL_CTX "[B)V"),
         CONSCRYPT_NATIVE_METHOD(SSL_new, "(J" REF_SSL_CTX ")J"),
         CONSCRYPT_NATIVE_METHOD(SSL_enable_tls_channel_id, "(J" REF_SSL ")V"),
         CONSCRYPT_NATIVE_METHOD(SSL_get_tls_channel_id, "(J" REF_SSL ")[B"),
         CONSCRYPT_NATIVE_METHOD(SSL_set1_tls_channel_id, "(J" REF_SSL REF_EVP_PKEY ")V"),
         CONSCRYPT_NATIVE_METHOD(setLocalCertsAndPrivateKey, "(J" REF_SSL "[[B" REF_EVP_PKEY ")V"),
+        CONSCRYPT_NATIVE_METHOD(CRYPTO_BUFFER_STACK_new, "([[B)J"),
+        CONSCRYPT_NATIVE_METHOD(CRYPTO_BUFFER_STACK_free, "(J)V"),
+        CONSCRYPT_NATIVE_METHOD(setLocalCertChainAndPrivateKey,
+                                "(J" REF_SSL REF_CRYPTO_BUFFER_STACK REF_EVP_PKEY ")V"),
         CONSCRYPT_NATIVE_METHOD(SSL_set_client_CA_list, "(J" REF_SSL "[[B)V"),
+        CONSCRYPT_NATIVE_METHOD(SSL_set_client_CA_stack,
+                                "(J" REF_SSL REF_CRYPTO_BUFFER_STACK ")V"),
         CONSCRYPT_NATIVE_METHOD(SSL_set_mode, "(J" REF_SSL "J)J"),
         CONSCRYPT_NATIVE_METHOD(SSL_set_options, "(J" REF_SSL "J)J"),
         CONSCRYPT_NATIVE_METHOD(SSL_clear_options, "(J" REF_SSL "J)J"),
-        CONSCRYPT_NATIVE_METHOD(SSL_set_protocol_versions, "(J" REF_SSL "II)I"),
+                CONSCRYPT_NATIVE_METHOD(SSL_set_protocol_versions, "(J" REF_SSL "II)I"),
         CONSCRYPT_NATIVE_METHOD(SSL_enable_signed_cert_timestamps, "(J" REF_SSL ")V"),
         CONSCRYPT_NATIVE_METHOD(SSL_get_signed_cert_timestamp_list, "(J" REF_SSL ")[B"),
         CONSCRYPT_NATIVE_METHOD(SSL_set_signed_cert_timestamp_list, "(J" REF_SSL "[B)V"),
@@ -12514,6 +13266,7 @@ static JNINativeMethod sNativeCryptoMethods[] = {
         CONSCRYPT_NATIVE_METHOD(set_SSL_psk_client_callback_enabled, "(J" REF_SSL "Z)V"),
         CONSCRYPT_NATIVE_METHOD(set_SSL_psk_server_callback_enabled, "(J" REF_SSL "Z)V"),
         CONSCRYPT_NATIVE_METHOD(SSL_set_cipher_lists, "(J" REF_SSL "[Ljava/lang/String;)V"),
+        CONSCRYPT_NATIVE_METHOD(SSL_configure, "(J" REF_SSL "ZIILjava/lang/String;[IJJJZ)V"),
         CONSCRYPT_NATIVE_METHOD(SSL_get_ciphers, "(J" REF_SSL ")[J"),
         CONSCRYPT_NATIVE_METHOD(SSL_set_accept_state, "(J" REF_SSL ")V"),
         CONSCRYPT_NATIVE_METHOD(SSL_set_connect_state, "(J" REF_SSL ")V"),
@@ -12570,6 +13323,12 @@ static JNINativeMethod sNativeCryptoMethods[] = {
         CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_write_direct, "(J" REF_SSL "JI" SSL_CALLBACKS ")I"),
         CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_write_BIO_direct, "(J" REF_SSL "JJI" SSL_CALLBACKS ")I"),
         CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_read_BIO_direct, "(J" REF_SSL "JJI" SSL_CALLBACKS ")I"),
+        CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_write_BIO_batch_direct,
+                                "(J" REF_SSL "JJIJI" SSL_CALLBACKS ")J"),
+        CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_read_BIO_batch_direct,
+                                "(J" REF_SSL "JJI[J[I" SSL_CALLBACKS ")J"),
+        CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_write_BIO_heap, "(J" REF_SSL "J[BII)I"),
+        CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_read_BIO_heap, "(J" REF_SSL "J[BII)I"),
         CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_force_read, "(J" REF_SSL SSL_CALLBACKS ")V"),
         CONSCRYPT_NATIVE_METHOD(ENGINE_SSL_shutdown, "(J" REF_SSL SSL_CALLBACKS ")V"),
         CONSCRYPT_NATIVE_METHOD(usesBoringSsl_FIPS_mode, "()Z"),
@@ -30,6 +30,27 @@ import javax.net.ssl.SSLSession;
 abstract class AbstractConscryptEngine extends SSLEngine {
     abstract void setBufferAllocator(BufferAllocator bufferAllocator);
 
+    /**
+     * Sets whether buffers used internally by this engine are released between operations. When
+     * enabled, the direct buffer used to copy heap buffer data is taken from a shared pool for
+     * each wrap or unwrap and returned afterwards, so that idle engines hold no buffer memory.
+     */
+    abstract void setReleaseBuffersWhenIdle(boolean releaseBuffersWhenIdle);
+
+    /**
+     * Sets whether a single wrap may produce more than one TLS record. When enabled and the
+     * destination is a direct buffer, wrap seals as many records as fit into the destination
+     * with a single native call after the handshake has completed.
+     */
+    abstract void setBatchedWrap(boolean batchedWrap);
+
+    /**
+     * Sets whether a single unwrap may consume more than one TLS record. When enabled and the
+     * source and destinations are direct buffers, unwrap decrypts every complete record in the
+     * source into the destinations with a single native call after the handshake has completed.
+     */
+    abstract void setBatchedUnwrap(boolean batchedUnwrap);
+
     /**
      * Returns the maximum overhead, in bytes, of sealing a record with SSL.
      */
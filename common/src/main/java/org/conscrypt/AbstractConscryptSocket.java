@@ -616,6 +616,22 @@ abstract class AbstractConscryptSocket extends SSLSocket {
         // constructor.
         return socket != null && socket != this;
     }
+
+    /**
+     * Returns the {@link SocketChannel} of the wrapped socket if it has one and it is in blocking
+     * mode, or {@code null} otherwise.
+     */
+    final SocketChannel getUnderlyingBlockingChannel() {
+        if (!isDelegating()) {
+            return null;
+        }
+        SocketChannel channel = socket.getChannel();
+        if (channel == null || !channel.isBlocking()) {
+            return null;
+        }
+        return channel;
+    }
+
     /* @Override */
     @SuppressWarnings("MissingOverride") // For compilation with Java 6.
     public abstract SSLSession getHandshakeSession();
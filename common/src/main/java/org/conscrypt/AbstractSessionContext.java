@@ -16,12 +16,16 @@
 
 package org.conscrypt;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -39,27 +43,46 @@ abstract class AbstractSessionContext implements SSLSessionContext {
      */
     private static final int DEFAULT_SESSION_TIMEOUT_SECONDS = 8 * 60 * 60;
 
+    /**
+     * The granularity and size of {@link #expiryWheel}. Expired sessions are freed within a
+     * minute or so, and a rotation covers the default session timeout.
+     */
+    private static final long EXPIRY_TICK_MILLIS = 60 * 1000L;
+    private static final int EXPIRY_BUCKETS = 512;
+
     private volatile int maximumSize;
     private volatile int timeout = DEFAULT_SESSION_TIMEOUT_SECONDS;
 
     private volatile long sslCtxNativePointer = NativeCrypto.SSL_CTX_new();
 
+    /** The session ticket keys last given to the SSL_CTX, or {@code null} if it has none. */
+    private volatile byte[] sessionTicketKeys;
+
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
-    private final Map<ByteArray, NativeSslSession> sessions =
-            new LinkedHashMap<ByteArray, NativeSslSession>() {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<ByteArray, NativeSslSession> eldest) {
-                    // NOTE: does not take into account any session that may have become
-                    // invalid.
-                    if (maximumSize > 0 && size() > maximumSize) {
-                        // Let the subclass know.
-                        onBeforeRemoveSession(eldest.getValue());
-                        return true;
-                    }
-                    return false;
-                }
-            };
+    /**
+     * The cached sessions, indexed by ID. Lookups don't take any lock, so that resumption on many
+     * threads at once doesn't contend on a single monitor.
+     */
+    private final ConcurrentMap<ByteArray, SessionEntry> sessions =
+            new ConcurrentHashMap<ByteArray, SessionEntry>();
+
+    /**
+     * The cached sessions in insertion order, which is the order in which they are evicted when
+     * the cache is full. Entries which have since been removed from {@link #sessions} are
+     * skipped on eviction and purged once they make up most of the queue.
+     */
+    private final Queue<SessionEntry> insertionOrder = new ConcurrentLinkedQueue<SessionEntry>();
+    private final AtomicInteger insertionOrderSize = new AtomicInteger();
+
+    /**
+     * The cached sessions by expiration time, so that expired sessions, and the native memory
+     * they hold, are freed without waiting to be looked up or evicted for space.
+     */
+    private final TimingWheel<SessionEntry> expiryWheel = new TimingWheel<SessionEntry>(
+            EXPIRY_BUCKETS, EXPIRY_TICK_MILLIS, System.currentTimeMillis());
+
+    final SessionCacheCounters counters = new SessionCacheCounters();
 
     /**
      * Constructs a new session context.
@@ -77,10 +100,11 @@ abstract class AbstractSessionContext implements SSLSessionContext {
     @Override
     public final Enumeration<byte[]> getIds() {
         // Make a copy of the IDs.
-        final Iterator<NativeSslSession> iter;
-        synchronized (sessions) {
-            iter = Arrays.asList(sessions.values().toArray(new NativeSslSession[0])).iterator();
+        List<NativeSslSession> snapshot = new ArrayList<NativeSslSession>(sessions.size());
+        for (SessionEntry entry : sessions.values()) {
+            snapshot.add(entry.session);
         }
+        final Iterator<NativeSslSession> iter = snapshot.iterator();
         return new Enumeration<byte[]>() {
             private NativeSslSession next;
 
@@ -121,13 +145,9 @@ abstract class AbstractSessionContext implements SSLSessionContext {
         if (sessionId == null) {
             throw new NullPointerException("sessionId");
         }
-        ByteArray key = new ByteArray(sessionId);
-        NativeSslSession session;
-        synchronized (sessions) {
-            session = sessions.get(key);
-        }
-        if (session != null && session.isValid()) {
-            return session.toSSLSession();
+        SessionEntry entry = sessions.get(new ByteArray(sessionId));
+        if (entry != null && entry.session.isValid()) {
+            return entry.session.toSSLSession();
         }
         return null;
     }
@@ -148,24 +168,18 @@ abstract class AbstractSessionContext implements SSLSessionContext {
             throw new IllegalArgumentException("seconds < 0");
         }
 
-        synchronized (sessions) {
-            // Set the timeout on this context.
-            timeout = seconds;
-            // setSessionTimeout(0) is defined to remove the timeout, but passing 0
-            // to SSL_CTX_set_timeout in BoringSSL sets it to the default timeout instead.
-            // Pass INT_MAX seconds (68 years), since that's equivalent for practical purposes.
-            setTimeout(seconds > 0 ? seconds : Integer.MAX_VALUE);
-
-            Iterator<NativeSslSession> i = sessions.values().iterator();
-            while (i.hasNext()) {
-                NativeSslSession session = i.next();
-                // SSLSession's know their context and consult the
-                // timeout as part of their validity condition.
-                if (!session.isValid()) {
-                    // Let the subclass know.
-                    onBeforeRemoveSession(session);
-                    i.remove();
-                }
+        // Set the timeout on this context.
+        timeout = seconds;
+        // setSessionTimeout(0) is defined to remove the timeout, but passing 0
+        // to SSL_CTX_set_timeout in BoringSSL sets it to the default timeout instead.
+        // Pass INT_MAX seconds (68 years), since that's equivalent for practical purposes.
+        setTimeout(seconds > 0 ? seconds : Integer.MAX_VALUE);
+
+        for (SessionEntry entry : sessions.values()) {
+            // SSLSession's know their context and consult the
+            // timeout as part of their validity condition.
+            if (!entry.session.isValid() && removeEntry(entry)) {
+                counters.recordTimeoutEviction();
             }
         }
     }
@@ -181,6 +195,30 @@ abstract class AbstractSessionContext implements SSLSessionContext {
         }
     }
 
+    /**
+     * Gives this context's SSL_CTX the keys from {@code ticketKeys} which are in effect now, and
+     * returns whether there are any. The SSL_CTX is only changed when the keys in effect differ
+     * from the ones it was last given, so this is cheap to call for every connection.
+     */
+    boolean updateSessionTicketKeys(SessionTicketKeys ticketKeys) {
+        byte[] keys = ticketKeys.getKeys(System.currentTimeMillis());
+        if (keys == sessionTicketKeys) {
+            return keys != null;
+        }
+        lock.writeLock().lock();
+        try {
+            // Look again under the lock, so that concurrent updates can't apply stale keys last.
+            keys = ticketKeys.getKeys(System.currentTimeMillis());
+            if (keys != sessionTicketKeys && isValid()) {
+                NativeCrypto.SSL_CTX_set_ticket_keys(sslCtxNativePointer, this, keys);
+                sessionTicketKeys = keys;
+            }
+            return keys != null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     @Override
     public final void setSessionCacheSize(int size) throws IllegalArgumentException {
         if (size < 0) {
@@ -281,32 +319,142 @@ abstract class AbstractSessionContext implements SSLSessionContext {
             return;
         }
 
-        synchronized (sessions) {
-            ByteArray key = new ByteArray(id);
-            if (sessions.containsKey(key)) {
-                removeSession(sessions.get(key));
+        // Let the subclass know.
+        onBeforeAddSession(session);
+
+        ByteArray key = new ByteArray(id);
+        SessionEntry entry = new SessionEntry(key, session);
+        SessionEntry previous = sessions.put(key, entry);
+        if (previous != null) {
+            markRemoved(previous);
+            if (previous.session != session) {
+                onBeforeRemoveSession(previous.session);
             }
-            // Let the subclass know.
-            onBeforeAddSession(session);
+            onEntryRemoved();
+        }
+        insertionOrder.offer(entry);
+        insertionOrderSize.incrementAndGet();
+        entry.expiry = expiryWheel.schedule(entry, session.getExpirationTimeMillis());
+        if (entry.removed) {
+            // Removed concurrently, before there was a timeout to cancel.
+            expiryWheel.cancel(entry.expiry);
+        }
 
-            sessions.put(key, session);
+        // NOTE: does not take into account any session that may have become invalid.
+        int max = maximumSize;
+        if (max > 0) {
+            evictToSize(max);
         }
+        expireSessions();
     }
 
     /**
-     * Removes the given session from the cache.
+     * Removes the given session from the cache. Returns whether it was cached.
      */
-    final void removeSession(NativeSslSession session) {
+    final boolean removeSession(NativeSslSession session) {
         byte[] id = session.getId();
         if (id == null || id.length == 0) {
-            return;
+            return false;
         }
 
         onBeforeRemoveSession(session);
 
-        ByteArray key = new ByteArray(id);
-        synchronized (sessions) {
-            sessions.remove(key);
+        SessionEntry entry = sessions.remove(new ByteArray(id));
+        if (entry != null) {
+            markRemoved(entry);
+            onEntryRemoved();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a snapshot of this context's cache statistics.
+     */
+    final SessionCacheStats getStats() {
+        return counters.snapshot(sessions.size(), maximumSize);
+    }
+
+    /**
+     * Removes the given entry if it is still cached, letting the subclass know. Returns whether
+     * this call removed it.
+     */
+    private boolean removeEntry(SessionEntry entry) {
+        if (!sessions.remove(entry.key, entry)) {
+            return false;
+        }
+        markRemoved(entry);
+        // Let the subclass know.
+        onBeforeRemoveSession(entry.session);
+        onEntryRemoved();
+        return true;
+    }
+
+    private void markRemoved(SessionEntry entry) {
+        entry.removed = true;
+        expiryWheel.cancel(entry.expiry);
+    }
+
+    /**
+     * Removes the sessions which have expired since this was last called. The work is spread
+     * over the calls made while the cache is in use, rather than done by a background thread,
+     * so that idle contexts cost nothing and can still be garbage collected.
+     */
+    final void expireSessions() {
+        List<SessionEntry> due = expiryWheel.advance(System.currentTimeMillis());
+        for (SessionEntry entry : due) {
+            if (entry.removed) {
+                continue;
+            }
+            if (!entry.session.isValid()) {
+                if (removeEntry(entry)) {
+                    counters.recordTimeoutEviction();
+                }
+            } else {
+                // The timeout has been extended since the session was scheduled.
+                entry.expiry =
+                        expiryWheel.schedule(entry, entry.session.getExpirationTimeMillis());
+                if (entry.removed) {
+                    expiryWheel.cancel(entry.expiry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called after an entry has been removed from {@link #sessions} other than by eviction,
+     * leaving a stale entry behind in {@link #insertionOrder}.
+     */
+    private void onEntryRemoved() {
+        int queued = insertionOrderSize.get();
+        if (queued > 2 * sessions.size() + 16) {
+            purgeRemovedEntries();
+        }
+    }
+
+    private void purgeRemovedEntries() {
+        Iterator<SessionEntry> i = insertionOrder.iterator();
+        while (i.hasNext()) {
+            if (i.next().removed) {
+                i.remove();
+                insertionOrderSize.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Evicts the oldest sessions until at most {@code max} remain.
+     */
+    private void evictToSize(int max) {
+        while (sessions.size() > max) {
+            SessionEntry eldest = insertionOrder.poll();
+            if (eldest == null) {
+                return;
+            }
+            insertionOrderSize.decrementAndGet();
+            if (!eldest.removed && removeEntry(eldest)) {
+                counters.recordSizeEviction();
+            }
         }
     }
 
@@ -318,23 +466,33 @@ abstract class AbstractSessionContext implements SSLSessionContext {
         if (sessionId == null) {
             return null;
         }
+        expireSessions();
 
         // First, look in the in-memory cache.
-        NativeSslSession session;
-        synchronized (sessions) {
-            session = sessions.get(new ByteArray(sessionId));
-        }
-        if (session != null && session.isValid()) {
-            if (session.isSingleUse()) {
-                removeSession(session);
+        SessionEntry entry = sessions.get(new ByteArray(sessionId));
+        if (entry != null) {
+            if (!entry.session.isValid()) {
+                if (removeEntry(entry)) {
+                    counters.recordTimeoutEviction();
+                }
+            } else if (!entry.session.isSingleUse()) {
+                counters.recordLookup(true);
+                return entry.session;
+            } else if (removeEntry(entry)) {
+                // A single-use session is only handed out to whichever caller manages to remove
+                // it.
+                counters.recordSingleUseEviction();
+                counters.recordLookup(true);
+                return entry.session;
             }
-            return session;
         }
 
         // Look in persistent cache.  We don't currently delete sessions from the persistent
         // cache, so we may find a multi-use (aka TLS 1.2) session after having received and
         // then used up one or more single-use (aka TLS 1.3) sessions.
-        return getSessionFromPersistentCache(sessionId);
+        NativeSslSession session = getSessionFromPersistentCache(sessionId);
+        counters.recordLookup(session != null);
+        return session;
     }
 
     /**
@@ -364,17 +522,22 @@ abstract class AbstractSessionContext implements SSLSessionContext {
      * Makes sure cache size is < maximumSize.
      */
     private void trimToSize() {
-        synchronized (sessions) {
-            int size = sessions.size();
-            if (size > maximumSize) {
-                int removals = size - maximumSize;
-                Iterator<NativeSslSession> i = sessions.values().iterator();
-                while (removals-- > 0) {
-                    NativeSslSession session = i.next();
-                    onBeforeRemoveSession(session);
-                    i.remove();
-                }
-            }
+        evictToSize(maximumSize);
+    }
+
+    /**
+     * A cached session, along with whether it has since been removed from the cache and its place
+     * in {@link #expiryWheel}.
+     */
+    private static final class SessionEntry {
+        final ByteArray key;
+        final NativeSslSession session;
+        volatile boolean removed;
+        volatile TimingWheel.Timeout<SessionEntry> expiry;
+
+        SessionEntry(ByteArray key, NativeSslSession session) {
+            this.key = key;
+            this.session = session;
         }
     }
 }
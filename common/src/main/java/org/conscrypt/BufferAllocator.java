@@ -42,6 +42,19 @@ public abstract class BufferAllocator {
         return UNPOOLED;
     }
 
+    /**
+     * Returns a shared pooled buffer allocator, which recycles buffers once they have been
+     * {@link AllocatedBuffer#release() released}. Buffers are cached per thread and in shared
+     * arenas of power-of-two size classes up to 64KiB; larger requests are not pooled.
+     *
+     * <p>The buffer returned by {@link AllocatedBuffer#nioBuffer()} has its limit set to the
+     * requested capacity, but its actual capacity may be larger. Buffers must be released exactly
+     * once and must not be used afterwards.
+     */
+    public static BufferAllocator pooled() {
+        return PooledBufferAllocator.getDefault();
+    }
+
     /**
      * Allocates a direct (i.e. non-heap) buffer with the given capacity.
      */
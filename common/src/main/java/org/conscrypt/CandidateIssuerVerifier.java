@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Checks which of several candidate issuers of a certificate actually signed it, while building
+ * one certificate chain. Results are remembered for the rest of the chain building, since the
+ * same certificates are often reached again through other candidates, for example when a peer
+ * sends cross-signed intermediates.
+ *
+ * <p>If an executor is given, the candidates' signatures are checked concurrently on it, with
+ * the first checked on the calling thread. The calling thread then checks any candidates the
+ * executor hasn't started on yet itself, rather than waiting for them, so the executor may be
+ * busy, bounded, or even the one the calling thread runs on, without risking a deadlock.
+ * Candidates the executor rejects are likewise checked on the calling thread.
+ *
+ * <p>Instances are not thread-safe; each must only be used by the thread building the chain.
+ */
+final class CandidateIssuerVerifier {
+    private final Executor executor;
+    private final Map<Edge, Boolean> results = new HashMap<Edge, Boolean>();
+
+    /**
+     * Creates a verifier which checks signatures on {@code executor}, or on the calling thread
+     * if it is {@code null}.
+     */
+    CandidateIssuerVerifier(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the candidates which issued {@code cert}, in the order given.
+     */
+    List<X509Certificate> verifiedIssuers(
+            X509Certificate cert, List<X509Certificate> candidates) {
+        List<X509Certificate> unchecked = new ArrayList<X509Certificate>(candidates.size());
+        for (X509Certificate candidate : candidates) {
+            if (!results.containsKey(new Edge(cert, candidate))) {
+                unchecked.add(candidate);
+            }
+        }
+        if (executor == null || unchecked.size() < 2) {
+            for (X509Certificate candidate : unchecked) {
+                results.put(new Edge(cert, candidate), verifies(cert, candidate));
+            }
+        } else {
+            verifyConcurrently(cert, unchecked);
+        }
+
+        List<X509Certificate> issuers = new ArrayList<X509Certificate>(candidates.size());
+        for (X509Certificate candidate : candidates) {
+            if (results.get(new Edge(cert, candidate))) {
+                issuers.add(candidate);
+            }
+        }
+        return issuers;
+    }
+
+    private void verifyConcurrently(
+            final X509Certificate cert, List<X509Certificate> candidates) {
+        List<FutureTask<Boolean>> tasks = new ArrayList<FutureTask<Boolean>>(candidates.size());
+        for (int i = 1; i < candidates.size(); i++) {
+            final X509Certificate candidate = candidates.get(i);
+            FutureTask<Boolean> task = new FutureTask<Boolean>(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return verifies(cert, candidate);
+                }
+            });
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+            tasks.add(task);
+        }
+
+        results.put(new Edge(cert, candidates.get(0)), verifies(cert, candidates.get(0)));
+        boolean interrupted = false;
+        for (int i = 1; i < candidates.size(); i++) {
+            X509Certificate candidate = candidates.get(i);
+            FutureTask<Boolean> task = tasks.get(i - 1);
+            // Does nothing if the executor already started the task.
+            task.run();
+            boolean verified;
+            while (true) {
+                try {
+                    verified = task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    verified = false;
+                    break;
+                }
+            }
+            results.put(new Edge(cert, candidate), verified);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean verifies(X509Certificate cert, X509Certificate issuer) {
+        try {
+            cert.verify(issuer.getPublicKey());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * A pair of certificates, compared by identity since chain building works with the
+     * certificate objects the peer sent.
+     */
+    private static final class Edge {
+        private final X509Certificate cert;
+        private final X509Certificate issuer;
+
+        Edge(X509Certificate cert, X509Certificate issuer) {
+            this.cert = cert;
+            this.issuer = issuer;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Edge && cert == ((Edge) o).cert && issuer == ((Edge) o).issuer;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(cert) + System.identityHashCode(issuer);
+        }
+    }
+}
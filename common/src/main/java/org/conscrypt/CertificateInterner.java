@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+/**
+ * Shares decoded certificates between connections, keyed by their encoding, so that many
+ * connections to the same peers hold one decoded copy of each of its certificates rather than
+ * one each.
+ *
+ * <p>The number of certificates is bounded. Once it is reached, a certificate which hasn't been
+ * looked up recently is dropped for each new one, so the certificates of frequently seen peers
+ * stay. Lookups don't lock, since every peer certificate of every handshake goes through here.
+ */
+final class CertificateInterner {
+    private final ClockCache<Encoding, X509Certificate> certificates;
+
+    CertificateInterner(int maxSize) {
+        this.certificates = new ClockCache<Encoding, X509Certificate>(maxSize);
+    }
+
+    /**
+     * Returns the certificate previously interned with the given encoding, or {@code null}.
+     */
+    X509Certificate get(byte[] encoded) {
+        return certificates.get(new Encoding(encoded));
+    }
+
+    /**
+     * Interns {@code certificate}, which was decoded from {@code encoded}, and returns the
+     * certificate to use in its place. This is a certificate interned earlier by another thread
+     * if there is one.
+     */
+    X509Certificate intern(byte[] encoded, X509Certificate certificate) {
+        X509Certificate existing = certificates.putIfAbsent(new Encoding(encoded), certificate);
+        return existing != null ? existing : certificate;
+    }
+
+    int size() {
+        return certificates.size();
+    }
+
+    private static final class Encoding {
+        private final byte[] encoded;
+        private final int hashCode;
+
+        Encoding(byte[] encoded) {
+            this.encoded = encoded;
+            this.hashCode = Arrays.hashCode(encoded);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Encoding && hashCode == ((Encoding) o).hashCode
+                    && Arrays.equals(encoded, ((Encoding) o).encoded);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+/**
+ * Caches the encoded subject names of one trust manager's accepted issuers, which servers send
+ * as the list of acceptable CAs when requesting a client certificate.
+ *
+ * <p>The accepted issuers are still requested for every handshake, since a trust manager's
+ * trust store can change, but they are only re-encoded when they differ from the ones the
+ * cached list was built from.
+ */
+final class ClientCAListCache {
+    private volatile Entry entry;
+
+    /**
+     * Returns the native list of subject names of {@code issuers}, which must not be empty.
+     */
+    NativeRef.CRYPTO_BUFFER_STACK get(X509Certificate[] issuers)
+            throws CertificateEncodingException {
+        Entry cached = entry;
+        if (cached != null && cached.matches(issuers)) {
+            return cached.principals;
+        }
+        Entry created = new Entry(issuers);
+        entry = created;
+        return created.principals;
+    }
+
+    private static final class Entry {
+        private final X509Certificate[] issuers;
+        final NativeRef.CRYPTO_BUFFER_STACK principals;
+
+        Entry(X509Certificate[] issuers) throws CertificateEncodingException {
+            this.issuers = issuers.clone();
+            byte[][] encodedPrincipals = SSLUtils.encodeSubjectX509Principals(issuers);
+            this.principals = new NativeRef.CRYPTO_BUFFER_STACK(
+                    NativeCrypto.CRYPTO_BUFFER_STACK_new(encodedPrincipals));
+        }
+
+        boolean matches(X509Certificate[] issuers) {
+            if (issuers.length != this.issuers.length) {
+                return false;
+            }
+            for (int i = 0; i < issuers.length; i++) {
+                if (issuers[i] != this.issuers[i] && !issuers[i].equals(this.issuers[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -16,10 +16,8 @@
 
 package org.conscrypt;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.net.ssl.SSLContext;
 
@@ -29,19 +27,20 @@ import javax.net.ssl.SSLContext;
  */
 @Internal
 public final class ClientSessionContext extends AbstractSessionContext {
+    private static final NativeSslSession[] NO_SESSIONS = new NativeSslSession[0];
+
     /**
-     * Sessions indexed by host and port. Protect from concurrent
-     * access by holding a lock on sessionsByHostAndPort.
+     * Sessions indexed by host and port. The arrays are never modified once they are in the
+     * map; updates replace them atomically, so lookups don't need any locking.
      *
-     * Invariant: Each list includes either exactly one multi-use session or one
+     * Invariant: Each array includes either exactly one multi-use session or one
      * or more single-use sessions.  The types of sessions are never mixed, and adding
      * a session of one kind will remove all sessions of the other kind.
      */
-    @SuppressWarnings("serial")
-    private final Map<HostAndPort, List<NativeSslSession>> sessionsByHostAndPort =
-            new HashMap<HostAndPort, List<NativeSslSession>>();
+    private final ConcurrentMap<HostAndPort, NativeSslSession[]> sessionsByHostAndPort =
+            new ConcurrentHashMap<HostAndPort, NativeSslSession[]>();
 
-    private SSLClientSessionCache persistentCache;
+    private volatile SSLClientSessionCache persistentCache;
 
     ClientSessionContext() {
         super(10);
@@ -58,53 +57,42 @@ public final class ClientSessionContext extends AbstractSessionContext {
     /**
      * Gets the suitable session reference from the session cache container.
      */
-    synchronized NativeSslSession getCachedSession(String hostName, int port,
-                                                   SSLParametersImpl sslParameters) {
+    NativeSslSession getCachedSession(String hostName, int port,
+                                      SSLParametersImpl sslParameters) {
         if (hostName == null) {
             return null;
         }
+        expireSessions();
 
-        NativeSslSession session = getSession(hostName, port);
-        if (session == null) {
-            return null;
-        }
-
-        String protocol = session.getProtocol();
-        boolean protocolFound = false;
-        for (String enabledProtocol : sslParameters.enabledProtocols) {
-            if (protocol.equals(enabledProtocol)) {
-                protocolFound = true;
-                break;
+        for (;;) {
+            NativeSslSession session = getSession(hostName, port);
+            if (session == null
+                    || !sslParameters.isSessionCompatible(
+                            session.getProtocol(), session.getCipherSuite())) {
+                counters.recordLookup(false);
+                return null;
             }
-        }
-        if (!protocolFound) {
-            return null;
-        }
 
-        String cipherSuite = session.getCipherSuite();
-        boolean cipherSuiteFound = false;
-        for (String enabledCipherSuite : sslParameters.getEnabledCipherSuites()) {
-            if (cipherSuite.equals(enabledCipherSuite)) {
-                cipherSuiteFound = true;
-                break;
+            if (!session.isSingleUse()) {
+                counters.recordLookup(true);
+                return session;
+            }
+            // A single-use session may only be handed out once, so only return it if this call
+            // is the one that removes it. Otherwise, another connection got there first, so try
+            // the next one.
+            if (removeSession(new HostAndPort(hostName, port), session)) {
+                removeSession(session);
+                counters.recordSingleUseEviction();
+                counters.recordLookup(true);
+                return session;
             }
         }
-        if (!cipherSuiteFound) {
-            return null;
-        }
-
-        if (session.isSingleUse()) {
-            removeSession(session);
-        }
-        return session;
     }
 
     int size() {
         int size = 0;
-        synchronized (sessionsByHostAndPort) {
-            for (List<NativeSslSession> sessions : sessionsByHostAndPort.values()) {
-                size += sessions.size();
-            }
+        for (NativeSslSession[] sessions : sessionsByHostAndPort.values()) {
+            size += sessions.length;
         }
         return size;
     }
@@ -122,63 +110,102 @@ public final class ClientSessionContext extends AbstractSessionContext {
         }
 
         HostAndPort key = new HostAndPort(host, port);
-        NativeSslSession session = null;
-        synchronized (sessionsByHostAndPort) {
-            List<NativeSslSession> sessions = sessionsByHostAndPort.get(key);
-            if (sessions != null && sessions.size() > 0) {
-                session = sessions.get(0);
+        NativeSslSession[] sessions = sessionsByHostAndPort.get(key);
+        NativeSslSession session = sessions != null ? sessions[0] : null;
+        if (session != null) {
+            if (session.isValid()) {
+                return session;
+            }
+            if (removeSession(session)) {
+                counters.recordTimeoutEviction();
             }
-        }
-        if (session != null && session.isValid()) {
-            return session;
         }
 
         // Look in persistent cache.  We don't currently delete sessions from the persistent
         // cache, so we may find a multi-use (aka TLS 1.2) session after having received and
         // then used up one or more single-use (aka TLS 1.3) sessions.
+        SSLClientSessionCache persistentCache = this.persistentCache;
         if (persistentCache != null) {
+            long start = System.nanoTime();
             byte[] data = persistentCache.getSessionData(host, port);
             if (data != null) {
                 session = NativeSslSession.newInstance(this, data, host, port);
                 if (session != null && session.isValid()) {
+                    counters.recordPersistentLookup(true, start);
                     putSession(key, session);
                     return session;
                 }
             }
+            counters.recordPersistentLookup(false, start);
         }
 
         return null;
     }
 
     private void putSession(HostAndPort key, NativeSslSession session) {
-        synchronized (sessionsByHostAndPort) {
-            List<NativeSslSession> sessions = sessionsByHostAndPort.get(key);
+        for (;;) {
+            NativeSslSession[] sessions = sessionsByHostAndPort.get(key);
             if (sessions == null) {
-                sessions = new ArrayList<NativeSslSession>();
-                sessionsByHostAndPort.put(key, sessions);
+                if (sessionsByHostAndPort.putIfAbsent(key, new NativeSslSession[] {session})
+                        == null) {
+                    return;
+                }
+                continue;
             }
+
             // To maintain the invariant that single- and multi-use sessions aren't
-            // mixed, check what the current list contains and remove those sessions if
+            // mixed, check what the current array contains and replace those sessions if
             // they're of the other type.
-            if (sessions.size() > 0 && sessions.get(0).isSingleUse() != session.isSingleUse()) {
-                while (!sessions.isEmpty()) {
-                    removeSession(sessions.get(0));
+            NativeSslSession[] displaced = NO_SESSIONS;
+            NativeSslSession[] updated;
+            if (sessions[0].isSingleUse() != session.isSingleUse()) {
+                displaced = sessions;
+                updated = new NativeSslSession[] {session};
+            } else {
+                updated = new NativeSslSession[sessions.length + 1];
+                System.arraycopy(sessions, 0, updated, 0, sessions.length);
+                updated[sessions.length] = session;
+            }
+            if (sessionsByHostAndPort.replace(key, sessions, updated)) {
+                for (NativeSslSession displacedSession : displaced) {
+                    removeSession(displacedSession);
                 }
-                // The last removeSession() call will have removed the list from
-                // the map, so put it back.
-                sessionsByHostAndPort.put(key, sessions);
+                return;
             }
-            sessions.add(session);
         }
     }
 
-    private void removeSession(HostAndPort key, NativeSslSession session) {
-        synchronized (sessionsByHostAndPort) {
-            List<NativeSslSession> sessions = sessionsByHostAndPort.get(key);
-            if (sessions != null) {
-                sessions.remove(session);
-                if (sessions.isEmpty()) {
-                    sessionsByHostAndPort.remove(key);
+    /**
+     * Removes the given session from the sessions for the given host and port. Returns whether
+     * this call removed it.
+     */
+    private boolean removeSession(HostAndPort key, NativeSslSession session) {
+        for (;;) {
+            NativeSslSession[] sessions = sessionsByHostAndPort.get(key);
+            if (sessions == null) {
+                return false;
+            }
+            int index = -1;
+            for (int i = 0; i < sessions.length; i++) {
+                if (sessions[i] == session) {
+                    index = i;
+                    break;
+                }
+            }
+            if (index < 0) {
+                return false;
+            }
+
+            if (sessions.length == 1) {
+                if (sessionsByHostAndPort.remove(key, sessions)) {
+                    return true;
+                }
+            } else {
+                NativeSslSession[] updated = new NativeSslSession[sessions.length - 1];
+                System.arraycopy(sessions, 0, updated, 0, index);
+                System.arraycopy(sessions, index + 1, updated, index, updated.length - index);
+                if (sessionsByHostAndPort.replace(key, sessions, updated)) {
+                    return true;
                 }
             }
         }
@@ -196,6 +223,7 @@ public final class ClientSessionContext extends AbstractSessionContext {
         putSession(key, session);
 
         // TODO: Do this in a background thread.
+        SSLClientSessionCache persistentCache = this.persistentCache;
         if (persistentCache != null && !session.isSingleUse()) {
             byte[] data = session.toBytes();
             if (data != null) {
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe map holding at most a fixed number of entries, for caches which are read far more
+ * often than they are written.
+ *
+ * <p>Lookups don't lock: they read a {@link ConcurrentHashMap} and mark the entry they find as
+ * referenced. Adding and removing entries is serialized on the cache. Once it is full, adding an
+ * entry evicts one chosen with the CLOCK algorithm, an approximation of least recently used: a
+ * hand sweeps the entries in insertion order, sparing (and unmarking) those referenced since it
+ * last passed them and evicting the first which wasn't.
+ */
+final class ClockCache<K, V> {
+    private static final int INITIAL_SLOTS = 16;
+
+    private final int maxSize;
+    private final ConcurrentMap<K, Entry<K, V>> map = new ConcurrentHashMap<K, Entry<K, V>>();
+
+    // The entries in the order the hand visits them, with null for unused slots. Grows up to
+    // maxSize slots.
+    // @GuardedBy("this")
+    private Entry<?, ?>[] slots;
+    // @GuardedBy("this")
+    private int slotsInUse;
+    // @GuardedBy("this")
+    private int hand;
+
+    ClockCache(int maxSize) {
+        checkArgument(maxSize > 0, "maxSize must be > 0");
+        this.maxSize = maxSize;
+        this.slots = new Entry<?, ?>[Math.min(maxSize, INITIAL_SLOTS)];
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code null} if there is none.
+     */
+    V get(K key) {
+        Entry<K, V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.markReferenced();
+        return entry.value;
+    }
+
+    /**
+     * Returns whether there is a value for {@code key}.
+     */
+    boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    void put(K key, V value) {
+        Entry<K, V> entry = new Entry<K, V>(key, value);
+        synchronized (this) {
+            Entry<K, V> previous = map.put(key, entry);
+            if (previous != null) {
+                entry.slot = previous.slot;
+            } else {
+                entry.slot = claimSlot();
+            }
+            slots[entry.slot] = entry;
+        }
+    }
+
+    /**
+     * Stores {@code value} for {@code key} unless there is already a value for it, and returns
+     * the existing value or {@code null}.
+     */
+    V putIfAbsent(K key, V value) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = get(key);
+            if (existing == null) {
+                Entry<K, V> entry = new Entry<K, V>(key, value);
+                entry.slot = claimSlot();
+                slots[entry.slot] = entry;
+                map.put(key, entry);
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * Removes the entry for {@code key} if its value is {@code value}.
+     */
+    synchronized void remove(K key, V value) {
+        Entry<K, V> entry = map.get(key);
+        if (entry != null && entry.value.equals(value)) {
+            map.remove(key);
+            slots[entry.slot] = null;
+        }
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    /**
+     * Returns a free slot, evicting an entry if every slot is in use.
+     */
+    // @GuardedBy("this")
+    private int claimSlot() {
+        if (slotsInUse < maxSize) {
+            if (slotsInUse == slots.length) {
+                slots = Arrays.copyOf(slots, (int) Math.min(maxSize, 2L * slots.length));
+            }
+            return slotsInUse++;
+        }
+        // Every entry is spared at most once, so this takes at most two sweeps.
+        for (;;) {
+            int slot = hand;
+            hand = (hand + 1) % slots.length;
+            Entry<?, ?> entry = slots[slot];
+            if (entry == null) {
+                return slot;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                continue;
+            }
+            map.remove(entry.key, entry);
+            slots[slot] = null;
+            return slot;
+        }
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        // @GuardedBy("ClockCache.this")
+        int slot;
+        volatile boolean referenced;
+
+        Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        void markReferenced() {
+            // Avoid writing to entries which are already marked, so that concurrent lookups of
+            // a popular entry don't contend on its cache line.
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+    }
+}
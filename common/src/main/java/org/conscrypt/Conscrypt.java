@@ -27,6 +27,7 @@ import java.security.PrivateKey;
 import java.security.Provider;
 import java.security.cert.X509Certificate;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -289,6 +290,116 @@ public final class Conscrypt {
         ((ServerSessionContext) serverContext).setPersistentCache(cache);
     }
 
+    /**
+     * Sets the server-side persistent cache to be used by the context. If {@code writeBehind} is
+     * {@code true}, new sessions are handed to the cache from a background thread rather than
+     * the handshaking thread, so a slow cache doesn't delay handshakes. If the cache falls too
+     * far behind, new sessions are dropped rather than queued.
+     */
+    @ExperimentalApi
+    public static void setServerSessionCache(
+            SSLContext context, SSLServerSessionCache cache, boolean writeBehind) {
+        toConscryptServerSessionContext(context).setPersistentCache(cache, writeBehind);
+    }
+
+    /**
+     * Schedules a key for the context to encrypt stateless TLS session tickets with, which lets
+     * any server sharing the same keys resume the session without a shared session cache.
+     *
+     * <p>The key becomes the one used to issue new tickets at {@code activationTimeMillis}
+     * (in {@link System#currentTimeMillis()} time), replacing the previously active key. Tickets
+     * issued under a key are accepted from the overlap period before its activation until the
+     * overlap period after it has been replaced; see
+     * {@link #setServerSessionTicketKeyOverlap(SSLContext, long)}. Keys which have been replaced
+     * for longer than that are discarded.
+     *
+     * <p>Keys are 48 bytes long: a 16-byte key name, which must be unique, followed by a 16-byte
+     * HMAC-SHA256 key and a 16-byte AES-128 key. Keys apply to connections created after they
+     * become active.
+     */
+    @ExperimentalApi
+    public static void addServerSessionTicketKey(
+            SSLContext context, byte[] key, long activationTimeMillis) {
+        toConscryptServerSessionContext(context).addSessionTicketKey(key, activationTimeMillis);
+    }
+
+    /**
+     * Sets how long session tickets remain accepted after the key they were issued under has
+     * been replaced, and before it becomes active. The default is one hour.
+     */
+    @ExperimentalApi
+    public static void setServerSessionTicketKeyOverlap(SSLContext context, long overlapMillis) {
+        toConscryptServerSessionContext(context).setSessionTicketKeyOverlap(overlapMillis);
+    }
+
+    /**
+     * Removes all session ticket keys from the context. New connections then neither issue nor
+     * accept tickets under those keys, but still use session tickets with the provider's own
+     * keys if they're enabled with {@link #setUseSessionTickets(SSLSocket, boolean)} or
+     * {@link #setUseSessionTickets(SSLEngine, boolean)}.
+     */
+    @ExperimentalApi
+    public static void clearServerSessionTicketKeys(SSLContext context) {
+        toConscryptServerSessionContext(context).clearSessionTicketKeys();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of a session cache, which must be the client or server
+     * session context of a Conscrypt {@link SSLContext}. The statistics can be used to tune
+     * {@link SSLSessionContext#setSessionCacheSize(int)} and
+     * {@link SSLSessionContext#setSessionTimeout(int)}.
+     */
+    @ExperimentalApi
+    public static SessionCacheStats getSessionCacheStats(SSLSessionContext context) {
+        return toConscrypt(context).getStats();
+    }
+
+    /**
+     * Registers an MBean with the platform MBean server which exposes the statistics of a session
+     * cache as its attributes, under the name
+     * {@code org.conscrypt:type=SessionCache,name="<name>"}. The MBean keeps the session context
+     * reachable until it is unregistered with {@link #unregisterSessionCacheMBean(String)}.
+     *
+     * @return {@code true} if the MBean was registered, or {@code false} if JMX isn't supported
+     * on this platform, such as on Android
+     * @throws IllegalArgumentException if an MBean is already registered with this name
+     */
+    @ExperimentalApi
+    public static boolean registerSessionCacheMBean(SSLSessionContext context, String name) {
+        Preconditions.checkNotNull(name, "name");
+        return Platform.registerSessionCacheMBean(name, toConscrypt(context));
+    }
+
+    /**
+     * Unregisters an MBean registered by
+     * {@link #registerSessionCacheMBean(SSLSessionContext, String)}, if it is still registered.
+     *
+     * @return {@code true} if an MBean was unregistered, or {@code false} if none was registered
+     * with this name or JMX isn't supported on this platform
+     */
+    @ExperimentalApi
+    public static boolean unregisterSessionCacheMBean(String name) {
+        Preconditions.checkNotNull(name, "name");
+        return Platform.unregisterSessionCacheMBean(name);
+    }
+
+    private static AbstractSessionContext toConscrypt(SSLSessionContext context) {
+        if (!(context instanceof AbstractSessionContext)) {
+            throw new IllegalArgumentException("Not a conscrypt session context: "
+                                               + context.getClass().getName());
+        }
+        return (AbstractSessionContext) context;
+    }
+
+    private static ServerSessionContext toConscryptServerSessionContext(SSLContext context) {
+        SSLSessionContext serverContext = context.getServerSessionContext();
+        if (!(serverContext instanceof ServerSessionContext)) {
+            throw new IllegalArgumentException("Not a conscrypt server context: "
+                                               + serverContext.getClass().getName());
+        }
+        return (ServerSessionContext) serverContext;
+    }
+
     /**
      * Indicates whether the given {@link SSLSocketFactory} was created by this distribution of
      * Conscrypt.
@@ -552,6 +663,49 @@ public final class Conscrypt {
         toConscrypt(engine).setBufferAllocator(bufferAllocator);
     }
 
+    /**
+     * Sets whether the given engine releases its internal buffers at the end of each wrap or
+     * unwrap, rather than holding them until the engine is closed. This reduces the memory held by
+     * idle connections at the cost of taking a buffer from a shared pool for each operation. It
+     * has no effect on buffers obtained from a {@link BufferAllocator}, which are always released
+     * after use.
+     *
+     * @throws IllegalArgumentException if the provided engine is not a Conscrypt engine.
+     */
+    @ExperimentalApi
+    public static void setReleaseBuffersWhenIdle(SSLEngine engine,
+                                                 boolean releaseBuffersWhenIdle) {
+        toConscrypt(engine).setReleaseBuffersWhenIdle(releaseBuffersWhenIdle);
+    }
+
+    /**
+     * Sets whether the given engine may seal more than one TLS record in a single call to
+     * {@link SSLEngine#wrap}. When enabled, once the handshake has completed a wrap into a direct
+     * destination buffer consumes as much plaintext as fits into the destination as a series of
+     * records, with a single native call. The returned {@link SSLEngineResult} reports the total
+     * bytes consumed and produced.
+     *
+     * @throws IllegalArgumentException if the provided engine is not a Conscrypt engine.
+     */
+    @ExperimentalApi
+    public static void setBatchedWrap(SSLEngine engine, boolean batchedWrap) {
+        toConscrypt(engine).setBatchedWrap(batchedWrap);
+    }
+
+    /**
+     * Sets whether the given engine may consume more than one TLS record in a single call to
+     * {@link SSLEngine#unwrap}. When enabled, once the handshake has completed an unwrap from a
+     * single direct source buffer into direct destination buffers decrypts every complete record
+     * in the source, until the destinations are full, with a single native call. The returned
+     * {@link SSLEngineResult} reports the total bytes consumed and produced.
+     *
+     * @throws IllegalArgumentException if the provided engine is not a Conscrypt engine.
+     */
+    @ExperimentalApi
+    public static void setBatchedUnwrap(SSLEngine engine, boolean batchedUnwrap) {
+        toConscrypt(engine).setBatchedUnwrap(batchedUnwrap);
+    }
+
     /**
      * Provides the given socket with the provided bufferAllocator.  If the given socket is a
      * Conscrypt socket but does not use buffer allocators, this method does nothing.
@@ -568,7 +722,8 @@ public final class Conscrypt {
 
     /**
      * Configures the default {@link BufferAllocator} to be used by all future
-     * {@link SSLEngine} instances from this provider.
+     * {@link SSLEngine} instances from this provider. Use {@link BufferAllocator#pooled()} to
+     * recycle buffers between engines rather than allocating new ones for each operation.
      */
     @ExperimentalApi
     public static void setDefaultBufferAllocator(BufferAllocator bufferAllocator) {
@@ -842,6 +997,72 @@ public final class Conscrypt {
         return toConscrypt(trustManager).getHostnameVerifier();
     }
 
+    /**
+     * Enables caching of the trust decisions made by the given trust manager. A peer presenting
+     * byte-identical certificates, OCSP response and SCTs for the same host and auth type is then
+     * trusted without rebuilding and revalidating its certificate chain. At most
+     * {@code maxEntries} decisions are kept, each for at most {@code maxAgeMillis} and never past
+     * the expiry of any certificate in its chain. Certificate pinning and the public key
+     * blocklist are checked again for every connection, and all decisions are discarded when the
+     * trust store is updated. Setting {@code maxEntries} to zero disables caching, which is the
+     * default.
+     *
+     * <p>Revocation of a certificate after it was trusted is not noticed until its decision
+     * expires, so {@code maxAgeMillis} should be short when that matters.
+     *
+     * @throws IllegalArgumentException if the provided trust manager is not a Conscrypt trust
+     * manager per {@link #isConscrypt(TrustManager)}
+     */
+    @ExperimentalApi
+    public static void setTrustDecisionCache(
+            TrustManager trustManager, int maxEntries, long maxAgeMillis) {
+        toConscrypt(trustManager).setTrustDecisionCache(maxEntries, maxAgeMillis);
+    }
+
+    /**
+     * Sets an executor for the given trust manager to check the signatures of candidate issuers
+     * concurrently on, or {@code null} (the default) to check them on the handshaking thread.
+     * This only matters when a peer sends several certificates which may have issued the same
+     * certificate, such as cross-signed intermediates, and reduces the worst-case latency of
+     * validating such chains. Signatures the executor rejects or hasn't started checking when
+     * the handshaking thread needs them are checked on the handshaking thread, so the executor
+     * may be shared with other work, including the handshakes themselves.
+     *
+     * @throws IllegalArgumentException if the provided trust manager is not a Conscrypt trust
+     * manager per {@link #isConscrypt(TrustManager)}
+     */
+    @ExperimentalApi
+    public static void setSignatureVerificationExecutor(
+            TrustManager trustManager, Executor executor) {
+        toConscrypt(trustManager).setSignatureVerificationExecutor(executor);
+    }
+
+    /**
+     * Sets the maximum number of intermediate CA certificates the given trust manager remembers
+     * from the chains it validates, which it uses to build chains for peers which don't send all
+     * of their intermediates. The default is 1024. Expired certificates are discarded, and the
+     * least recently used ones make room for new ones.
+     *
+     * @throws IllegalArgumentException if the provided trust manager is not a Conscrypt trust
+     * manager per {@link #isConscrypt(TrustManager)}, or {@code maximumSize} is not positive
+     */
+    @ExperimentalApi
+    public static void setIntermediateCacheSize(TrustManager trustManager, int maximumSize) {
+        toConscrypt(trustManager).setIntermediateCacheSize(maximumSize);
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the intermediate CA cache of the given trust
+     * manager.
+     *
+     * @throws IllegalArgumentException if the provided trust manager is not a Conscrypt trust
+     * manager per {@link #isConscrypt(TrustManager)}
+     */
+    @ExperimentalApi
+    public static IntermediateCacheStats getIntermediateCacheStats(TrustManager trustManager) {
+        return toConscrypt(trustManager).getIntermediateCacheStats();
+    }
+
     /**
      * Wraps the HttpsURLConnection.HostnameVerifier into a ConscryptHostnameVerifier
      */
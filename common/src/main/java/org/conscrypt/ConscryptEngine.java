@@ -126,6 +126,40 @@ final class ConscryptEngine extends AbstractConscryptEngine
      */
     private ByteBuffer lazyDirectBuffer;
 
+    /**
+     * The pooled buffer backing {@link #lazyDirectBuffer} when {@link #releaseBuffersWhenIdle}
+     * is set.
+     */
+    private AllocatedBuffer lazyAllocatedBuffer;
+
+    /**
+     * Whether {@link #lazyDirectBuffer} is returned to a shared pool at the end of each
+     * wrap/unwrap rather than being held for the lifetime of the engine.
+     */
+    // @GuardedBy("ssl");
+    private boolean releaseBuffersWhenIdle;
+
+    /**
+     * Whether wrap may seal more than one record into a direct destination buffer.
+     */
+    // @GuardedBy("ssl");
+    private boolean batchedWrap;
+
+    /**
+     * Whether unwrap may decrypt more than one record into direct destination buffers.
+     */
+    // @GuardedBy("ssl");
+    private boolean batchedUnwrap;
+
+    /**
+     * Destination addresses and lengths passed to native code by batched unwraps, reused between
+     * calls.
+     */
+    // @GuardedBy("ssl");
+    private long[] unwrapDstAddresses = EmptyArray.LONG;
+    // @GuardedBy("ssl");
+    private int[] unwrapDstLengths = EmptyArray.INT;
+
     /**
      * Hostname used with the TLS extension SNI hostname.
      */
@@ -243,6 +277,28 @@ final class ConscryptEngine extends AbstractConscryptEngine
         }
     }
 
+    @Override
+    void setReleaseBuffersWhenIdle(boolean releaseBuffersWhenIdle) {
+        synchronized (ssl) {
+            this.releaseBuffersWhenIdle = releaseBuffersWhenIdle;
+            releaseIdleBuffers();
+        }
+    }
+
+    @Override
+    void setBatchedWrap(boolean batchedWrap) {
+        synchronized (ssl) {
+            this.batchedWrap = batchedWrap;
+        }
+    }
+
+    @Override
+    void setBatchedUnwrap(boolean batchedUnwrap) {
+        synchronized (ssl) {
+            this.batchedUnwrap = batchedUnwrap;
+        }
+    }
+
     /**
      * Returns the maximum overhead, in bytes, of sealing a record with SSL.
      */
@@ -751,6 +807,19 @@ final class ConscryptEngine extends AbstractConscryptEngine
     SSLEngineResult unwrap(final ByteBuffer[] srcs, int srcsOffset, final int srcsLength,
                            final ByteBuffer[] dsts, final int dstsOffset, final int dstsLength)
             throws SSLException {
+        synchronized (ssl) {
+            try {
+                return unwrapInternal(srcs, srcsOffset, srcsLength, dsts, dstsOffset, dstsLength);
+            } finally {
+                releaseIdleBuffers();
+            }
+        }
+    }
+
+    private SSLEngineResult unwrapInternal(final ByteBuffer[] srcs, int srcsOffset,
+                                           final int srcsLength, final ByteBuffer[] dsts,
+                                           final int dstsOffset, final int dstsLength)
+            throws SSLException {
         checkArgument(srcs != null, "srcs is null");
         checkArgument(dsts != null, "dsts is null");
         checkPositionIndexes(srcsOffset, srcsOffset + srcsLength, srcs.length);
@@ -795,6 +864,14 @@ final class ConscryptEngine extends AbstractConscryptEngine
 
             // Consume any source data. Skip this if there are unread cleartext data.
             boolean noCleartextDataAvailable = pendingInboundCleartextBytes() <= 0;
+            if (batchedUnwrap && handshakeFinished && noCleartextDataAvailable && dstLength > 0) {
+                SSLEngineResult batchResult = unwrapRecords(srcs, srcsOffset, srcsEndOffset, dsts,
+                                                            dstsOffset, endOffset, handshakeStatus);
+                if (batchResult != null) {
+                    return batchResult;
+                }
+                // Fall through to unwrap a single record.
+            }
             int lenRemaining = 0;
             if (srcLength > 0 && noCleartextDataAvailable) {
                 if (srcLength < SSL3_RT_HEADER_LENGTH) {
@@ -939,6 +1016,104 @@ final class ConscryptEngine extends AbstractConscryptEngine
         }
     }
 
+    /**
+     * Decrypts all complete records in a single direct source buffer into direct destination
+     * buffers with a single native call. Returns {@code null} if the buffers are not suitable or
+     * nothing was consumed, in which case the caller should unwrap a single record instead.
+     */
+    private SSLEngineResult unwrapRecords(ByteBuffer[] srcs, int srcsOffset, int srcsEndOffset,
+                                          ByteBuffer[] dsts, int dstsOffset, int dstsEndOffset,
+                                          HandshakeStatus handshakeStatus) throws SSLException {
+        ByteBuffer src = null;
+        for (int i = srcsOffset; i < srcsEndOffset; i++) {
+            if (srcs[i].hasRemaining()) {
+                if (src != null) {
+                    // Records may span source buffers.
+                    return null;
+                }
+                src = srcs[i];
+            }
+        }
+        if (src == null || !src.isDirect()) {
+            return null;
+        }
+        int recordsLength = SSLUtils.getCompleteRecordsLength(src);
+        if (recordsLength <= 0) {
+            return null;
+        }
+
+        int count = 0;
+        for (int i = dstsOffset; i < dstsEndOffset; i++) {
+            ByteBuffer dst = dsts[i];
+            if (!dst.isDirect()) {
+                return null;
+            }
+            if (dst.hasRemaining()) {
+                count++;
+            }
+        }
+        if (unwrapDstAddresses.length != count) {
+            unwrapDstAddresses = new long[count];
+            unwrapDstLengths = new int[count];
+        }
+        for (int i = dstsOffset, j = 0; i < dstsEndOffset; i++) {
+            ByteBuffer dst = dsts[i];
+            if (dst.hasRemaining()) {
+                unwrapDstAddresses[j] = directByteBufferAddress(dst, dst.position());
+                unwrapDstLengths[j] = dst.remaining();
+                j++;
+            }
+        }
+
+        final int srcPos = src.position();
+        final long result;
+        try {
+            result = networkBio.readRecordsDirect(directByteBufferAddress(src, srcPos),
+                                                  recordsLength, unwrapDstAddresses,
+                                                  unwrapDstLengths);
+        } catch (InterruptedIOException e) {
+            return newResult(0, 0, handshakeStatus);
+        } catch (IOException e) {
+            // Shut down the SSL and rethrow the exception.  Users will need to drain any alerts
+            // from the SSL before closing.
+            closeAll();
+            throw convertException(e);
+        }
+        int bytesConsumed = (int) (result >>> 32);
+        int bytesProduced = (int) result;
+        if (bytesConsumed == 0 && bytesProduced == 0) {
+            return null;
+        }
+        src.position(srcPos + bytesConsumed);
+        int remaining = bytesProduced;
+        for (int i = dstsOffset; i < dstsEndOffset && remaining > 0; i++) {
+            ByteBuffer dst = dsts[i];
+            int filled = min(remaining, dst.remaining());
+            dst.position(dst.position() + filled);
+            remaining -= filled;
+        }
+
+        int pendingCleartextBytes = pendingInboundCleartextBytes();
+        if (pendingCleartextBytes == 0 && ssl.wasShutdownReceived()) {
+            // We received a close_notify from the peer, so mark the inbound direction as
+            // closed and shut down the SSL object
+            closeAll();
+            return new SSLEngineResult(
+                    Status.CLOSED, pendingOutboundEncryptedBytes() > 0 ? NEED_WRAP : NOT_HANDSHAKING,
+                    bytesConsumed, bytesProduced);
+        }
+        if (pendingCleartextBytes > 0) {
+            // We filled all buffers but there is still some data pending in the BIO buffer,
+            // return BUFFER_OVERFLOW.
+            return new SSLEngineResult(
+                    BUFFER_OVERFLOW,
+                    mayFinishHandshake(handshakeStatus == FINISHED ? handshakeStatus
+                                                                   : getHandshakeStatusInternal()),
+                    bytesConsumed, bytesProduced);
+        }
+        return newResult(bytesConsumed, bytesProduced, handshakeStatus);
+    }
+
     private static int calcDstsLength(ByteBuffer[] dsts, int dstsOffset, int dstsLength) {
         int capacity = 0;
         for (int i = 0; i < dsts.length; i++) {
@@ -1167,6 +1342,13 @@ final class ConscryptEngine extends AbstractConscryptEngine
     }
 
     private int writeEncryptedDataHeap(ByteBuffer src, int pos, int len) throws IOException {
+        if (src.hasArray()) {
+            // Writing to the BIO never calls back into Java, so native code can access the
+            // backing array in place rather than us copying it through a direct buffer.
+            return networkBio.writeArray(src.array(), src.arrayOffset() + pos,
+                                         min(len, src.limit() - pos));
+        }
+
         AllocatedBuffer allocatedBuffer = null;
         try {
             final ByteBuffer buffer;
@@ -1206,13 +1388,35 @@ final class ConscryptEngine extends AbstractConscryptEngine
 
     private ByteBuffer getOrCreateLazyDirectBuffer() {
         if (lazyDirectBuffer == null) {
-            lazyDirectBuffer = ByteBuffer.allocateDirect(
-                    max(SSL3_RT_MAX_PLAIN_LENGTH, SSL3_RT_MAX_PACKET_SIZE));
+            int capacity = max(SSL3_RT_MAX_PLAIN_LENGTH, SSL3_RT_MAX_PACKET_SIZE);
+            if (releaseBuffersWhenIdle) {
+                lazyAllocatedBuffer = BufferAllocator.pooled().allocateDirectBuffer(capacity);
+                lazyDirectBuffer = lazyAllocatedBuffer.nioBuffer();
+            } else {
+                lazyDirectBuffer = ByteBuffer.allocateDirect(capacity);
+            }
         }
         lazyDirectBuffer.clear();
         return lazyDirectBuffer;
     }
 
+    /**
+     * Releases the lazy-created direct buffer if buffers should not be held between operations.
+     */
+    private void releaseIdleBuffers() {
+        if (releaseBuffersWhenIdle) {
+            releaseLazyDirectBuffer();
+        }
+    }
+
+    private void releaseLazyDirectBuffer() {
+        if (lazyAllocatedBuffer != null) {
+            lazyAllocatedBuffer.release();
+            lazyAllocatedBuffer = null;
+        }
+        lazyDirectBuffer = null;
+    }
+
     private long directByteBufferAddress(ByteBuffer directBuffer, int pos) {
         return NativeCrypto.getDirectBufferAddress(directBuffer) + pos;
     }
@@ -1293,6 +1497,17 @@ final class ConscryptEngine extends AbstractConscryptEngine
     }
 
     private int readEncryptedDataHeap(ByteBuffer dst, int len) throws IOException {
+        if (dst.hasArray()) {
+            // Reading from the BIO never calls back into Java, so native code can access the
+            // backing array in place rather than us copying it through a direct buffer.
+            final int pos = dst.position();
+            int bytesRead = networkBio.readArray(dst.array(), dst.arrayOffset() + pos, len);
+            if (bytesRead > 0) {
+                dst.position(pos + bytesRead);
+            }
+            return bytesRead;
+        }
+
         AllocatedBuffer allocatedBuffer = null;
         try {
             final ByteBuffer buffer;
@@ -1389,6 +1604,17 @@ final class ConscryptEngine extends AbstractConscryptEngine
     @Override
     public SSLEngineResult wrap(ByteBuffer[] srcs, int srcsOffset, int srcsLength, ByteBuffer dst)
             throws SSLException {
+        synchronized (ssl) {
+            try {
+                return wrapInternal(srcs, srcsOffset, srcsLength, dst);
+            } finally {
+                releaseIdleBuffers();
+            }
+        }
+    }
+
+    private SSLEngineResult wrapInternal(ByteBuffer[] srcs, int srcsOffset, int srcsLength,
+                                         ByteBuffer dst) throws SSLException {
         checkArgument(srcs != null, "srcs is null");
         checkArgument(dst != null, "dst is null");
         checkPositionIndexes(srcsOffset, srcsOffset + srcsLength, srcs.length);
@@ -1440,6 +1666,16 @@ final class ConscryptEngine extends AbstractConscryptEngine
                 // NEED_WRAP - just fall through to perform the wrap.
             }
 
+            if (batchedWrap && handshakeFinished && dst.isDirect()
+                    && pendingOutboundEncryptedBytes() == 0) {
+                SSLEngineResult batchResult = wrapRecords(srcs, dst, handshakeStatus);
+                if (batchResult != null) {
+                    return batchResult;
+                }
+                // Nothing was sealed, so fall through to the single record path which will
+                // report the appropriate status or error.
+            }
+
             int dataLength = (int) min(BufferUtils.remaining(srcs), SSL3_RT_MAX_PLAIN_LENGTH);
             if (dst.remaining() < calculateOutNetBufSize(dataLength)) {
                 return new SSLEngineResult(Status.BUFFER_OVERFLOW, getHandshakeStatusInternal(), 0,
@@ -1454,24 +1690,39 @@ final class ConscryptEngine extends AbstractConscryptEngine
                 // data as possible from the source buffers to fill a record. Note the we can't
                 // mark the data as consumed until we see how much the TLS layer actually consumes.
                 boolean isCopy = false;
-                ByteBuffer outputBuffer =
-                        BufferUtils.getBufferLargerThan(srcs, SSL3_RT_MAX_PLAIN_LENGTH);
-                if (outputBuffer == null) {
-                    // The buffer by getOrCreateLazyDirectBuffer() is also used by
-                    // writePlainTextDataHeap(), but by filling it here the write path will go via
-                    // writePlainTextDataDirect() and the cost will be approximately the same,
-                    // especially if compacting multiple non-direct buffers into a single
-                    // direct one.
-                    // TODO(): use bufferAllocator if set.
-                    // https://github.com/google/conscrypt/issues/974
-                    outputBuffer = BufferUtils.copyNoConsume(srcs, getOrCreateLazyDirectBuffer(),
-                                                             SSL3_RT_MAX_PLAIN_LENGTH);
-                    isCopy = true;
+                AllocatedBuffer allocatedBuffer = null;
+                final int result;
+                try {
+                    ByteBuffer outputBuffer =
+                            BufferUtils.getBufferLargerThan(srcs, SSL3_RT_MAX_PLAIN_LENGTH);
+                    if (outputBuffer == null) {
+                        // By filling a direct buffer here the write path will go via
+                        // writePlainTextDataDirect() and the cost will be approximately the same
+                        // as writePlainTextDataHeap(), especially if compacting multiple
+                        // non-direct buffers into a single direct one.
+                        if (bufferAllocator != null) {
+                            allocatedBuffer = bufferAllocator.allocateDirectBuffer(dataLength);
+                            outputBuffer = BufferUtils.copyNoConsume(
+                                    srcs, allocatedBuffer.nioBuffer(), dataLength);
+                        } else {
+                            // The buffer by getOrCreateLazyDirectBuffer() is also used by
+                            // writePlainTextDataHeap().
+                            outputBuffer = BufferUtils.copyNoConsume(
+                                    srcs, getOrCreateLazyDirectBuffer(), SSL3_RT_MAX_PLAIN_LENGTH);
+                        }
+                        isCopy = true;
+                    }
+                    // Write plaintext application data to the SSL engine
+                    result = writePlaintextData(outputBuffer,
+                                                min(SSL3_RT_MAX_PLAIN_LENGTH,
+                                                    outputBuffer.remaining()));
+                } finally {
+                    if (allocatedBuffer != null) {
+                        // Release the buffer back to the pool.
+                        allocatedBuffer.release();
+                    }
                 }
                 final SSLEngineResult pendingNetResult;
-                // Write plaintext application data to the SSL engine
-                int result = writePlaintextData(
-                        outputBuffer, min(SSL3_RT_MAX_PLAIN_LENGTH, outputBuffer.remaining()));
                 if (result > 0) {
                     bytesConsumed = result;
                     if (isCopy) {
@@ -1555,6 +1806,75 @@ final class ConscryptEngine extends AbstractConscryptEngine
         }
     }
 
+    /**
+     * Seals as many records as fit into {@code dst} with a single native call. Returns {@code
+     * null} if no plaintext could be written.
+     */
+    private SSLEngineResult wrapRecords(ByteBuffer[] srcs, ByteBuffer dst,
+                                        HandshakeStatus handshakeStatus) throws SSLException {
+        int dataLength = (int) min(BufferUtils.remaining(srcs), maxPlaintextForRecords(dst));
+        if (dataLength < SSL3_RT_MAX_PLAIN_LENGTH) {
+            // At most one record fits, so there is nothing to gain over the single record path.
+            return null;
+        }
+
+        AllocatedBuffer allocatedBuffer = null;
+        try {
+            ByteBuffer src = BufferUtils.getBufferLargerThan(srcs, dataLength);
+            boolean isCopy = false;
+            if (src == null || !src.isDirect()) {
+                if (bufferAllocator != null) {
+                    allocatedBuffer = bufferAllocator.allocateDirectBuffer(dataLength);
+                } else {
+                    // Keep the copy within the pooled size classes.
+                    dataLength = min(dataLength, PooledBufferAllocator.MAX_SIZE_CLASS);
+                    allocatedBuffer = BufferAllocator.pooled().allocateDirectBuffer(dataLength);
+                }
+                src = BufferUtils.copyNoConsume(srcs, allocatedBuffer.nioBuffer(), dataLength);
+                isCopy = true;
+            }
+
+            final int srcPos = src.position();
+            final int dstPos = dst.position();
+            long result = networkBio.writeRecordsDirect(directByteBufferAddress(src, srcPos),
+                    min(dataLength, src.remaining()), directByteBufferAddress(dst, dstPos),
+                    dst.remaining());
+            if (result <= 0) {
+                return null;
+            }
+            int bytesConsumed = (int) (result >>> 32);
+            int bytesProduced = (int) result;
+            if (isCopy) {
+                // Data was a copy, so mark it as consumed in the original buffers.
+                BufferUtils.consume(srcs, bytesConsumed);
+            } else {
+                src.position(srcPos + bytesConsumed);
+            }
+            dst.position(dstPos + bytesProduced);
+            return newResult(bytesConsumed, bytesProduced, handshakeStatus);
+        } catch (IOException e) {
+            closeAll();
+            throw convertException(e);
+        } finally {
+            if (allocatedBuffer != null) {
+                // Release the buffer back to the pool.
+                allocatedBuffer.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of plaintext which can be sealed into records that are guaranteed to fit
+     * into the remaining space of {@code dst}.
+     */
+    private int maxPlaintextForRecords(ByteBuffer dst) {
+        int recordSize = SSL3_RT_MAX_PLAIN_LENGTH + maxSealOverhead;
+        int remaining = dst.remaining();
+        int fullRecords = remaining / recordSize;
+        int partialRecord = remaining - fullRecords * recordSize - maxSealOverhead;
+        return fullRecords * SSL3_RT_MAX_PLAIN_LENGTH + max(0, partialRecord);
+    }
+
     @Override
     public int clientPSKKeyRequested(String identityHint, byte[] identity, byte[] key) {
         return ssl.clientPSKKeyRequested(identityHint, identity, key);
@@ -1678,6 +1998,7 @@ final class ConscryptEngine extends AbstractConscryptEngine
         if (networkBio != null) {
             networkBio.close();
         }
+        releaseLazyDirectBuffer();
     }
 
     @Override
@@ -36,6 +36,7 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.security.PrivateKey;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
@@ -57,6 +58,12 @@ import javax.security.auth.x500.X500Principal;
 class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersImpl.AliasChooser {
     private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
 
+    /**
+     * The number of TLS records buffered in each direction when the underlying socket has a
+     * {@link SocketChannel}, so that several records can be moved with a single system call.
+     */
+    private static final int CHANNEL_BUFFER_RECORDS = 4;
+
     private final ConscryptEngine engine;
     private final Object stateLock = new Object();
     private final Object handshakeLock = new Object();
@@ -554,6 +561,9 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
                 if (in != null) {
                     in.release();
                 }
+                if (out != null) {
+                    out.release();
+                }
             }
         }
     }
@@ -652,6 +662,13 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
         return super.getInputStream();
     }
 
+    private AllocatedBuffer allocateDirectBuffer(int capacity) {
+        if (bufferAllocator != null) {
+            return bufferAllocator.allocateDirectBuffer(capacity);
+        }
+        return AllocatedBuffer.wrap(ByteBuffer.allocateDirect(capacity));
+    }
+
     @Override
     public final String chooseServerAlias(X509KeyManager keyManager, String keyType) {
         return keyManager.chooseServerAlias(keyType, null, this);
@@ -670,11 +687,34 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
         private final Object writeLock = new Object();
         private final ByteBuffer target;
         private final int targetArrayOffset;
+        private final int packetBufferSize;
+        private final SocketChannel socketChannel;
+        private final AllocatedBuffer allocatedBuffer;
         private OutputStream socketOutputStream;
 
         SSLOutputStream() {
-            target = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
-            targetArrayOffset = target.arrayOffset();
+            packetBufferSize = engine.getSession().getPacketBufferSize();
+            socketChannel = getUnderlyingBlockingChannel();
+            if (socketChannel != null) {
+                // Seal several records into a direct buffer and hand them to the channel
+                // together, which avoids both a system call per record and the channel copying
+                // a heap buffer into a temporary direct buffer.
+                allocatedBuffer = allocateDirectBuffer(CHANNEL_BUFFER_RECORDS * packetBufferSize);
+                target = allocatedBuffer.nioBuffer();
+                targetArrayOffset = 0;
+            } else {
+                allocatedBuffer = null;
+                target = ByteBuffer.allocate(packetBufferSize);
+                targetArrayOffset = target.arrayOffset();
+            }
+        }
+
+        void release() {
+            synchronized (writeLock) {
+                if (allocatedBuffer != null) {
+                    allocatedBuffer.release();
+                }
+            }
         }
 
         @Override
@@ -714,33 +754,45 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
             // Need to loop through at least once to enable handshaking where no application
             // bytes are processed.
             int len = buffer.remaining();
-            SSLEngineResult engineResult;
+            boolean closed = false;
             do {
                 target.clear();
-                engineResult = engine.wrap(buffer, target);
-                if (engineResult.getStatus() != OK && engineResult.getStatus() != CLOSED) {
-                    throw new SSLException("Unexpected engine result " + engineResult.getStatus());
-                }
-                if (target.position() != engineResult.bytesProduced()) {
-                    throw new SSLException("Engine bytesProduced " + engineResult.bytesProduced()
-                                           + " does not match bytes written "
-                                           + target.position());
-                }
-                len -= engineResult.bytesConsumed();
-                if (len != buffer.remaining()) {
-                    throw new SSLException("Engine did not read the correct number of bytes");
-                }
-                if (engineResult.getStatus() == CLOSED && engineResult.bytesProduced() == 0) {
-                    if (len > 0) {
-                        throw new SocketException("Socket closed");
+                do {
+                    int targetPosition = target.position();
+                    SSLEngineResult engineResult = engine.wrap(buffer, target);
+                    if (engineResult.getStatus() != OK && engineResult.getStatus() != CLOSED) {
+                        throw new SSLException(
+                                "Unexpected engine result " + engineResult.getStatus());
                     }
-                    break;
-                }
+                    if (target.position() - targetPosition != engineResult.bytesProduced()) {
+                        throw new SSLException("Engine bytesProduced "
+                                               + engineResult.bytesProduced()
+                                               + " does not match bytes written "
+                                               + (target.position() - targetPosition));
+                    }
+                    len -= engineResult.bytesConsumed();
+                    if (len != buffer.remaining()) {
+                        throw new SSLException("Engine did not read the correct number of bytes");
+                    }
+                    if (engineResult.getStatus() == CLOSED && engineResult.bytesProduced() == 0) {
+                        closed = true;
+                        break;
+                    }
+                    // Keep sealing records while the next one is guaranteed to fit, which is
+                    // only ever the case for the larger channel buffer.
+                } while (len > 0 && target.remaining() >= packetBufferSize);
 
                 target.flip();
 
                 // Write the data to the socket.
                 writeToSocket();
+
+                if (closed) {
+                    if (len > 0) {
+                        throw new SocketException("Socket closed");
+                    }
+                    break;
+                }
             } while (len > 0);
         }
 
@@ -765,6 +817,12 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
         }
 
         private void writeToSocket() throws IOException {
+            if (socketChannel != null) {
+                while (target.hasRemaining()) {
+                    socketChannel.write(target);
+                }
+                return;
+            }
             // Write the data to the socket.
             socketOutputStream.write(target.array(), targetArrayOffset, target.limit());
         }
@@ -780,7 +838,10 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
         private final ByteBuffer fromSocket;
         private final int fromSocketArrayOffset;
         private final AllocatedBuffer allocatedBuffer;
+        private final SocketChannel socketChannel;
+        private final AllocatedBuffer allocatedSocketBuffer;
         private InputStream socketInputStream;
+        private byte[] socketReadArray;
 
         SSLInputStream() {
             if (bufferAllocator != null) {
@@ -794,8 +855,20 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
             }
             // Initially fromEngine.remaining() == 0.
             fromEngine.flip();
-            fromSocket = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
-            fromSocketArrayOffset = fromSocket.arrayOffset();
+            int packetBufferSize = engine.getSession().getPacketBufferSize();
+            socketChannel = getUnderlyingBlockingChannel();
+            if (socketChannel != null) {
+                // Read from the channel straight into a direct buffer, which the engine can
+                // decrypt without copying and which can hold several records per read.
+                allocatedSocketBuffer =
+                        allocateDirectBuffer(CHANNEL_BUFFER_RECORDS * packetBufferSize);
+                fromSocket = allocatedSocketBuffer.nioBuffer();
+                fromSocketArrayOffset = 0;
+            } else {
+                allocatedSocketBuffer = null;
+                fromSocket = ByteBuffer.allocate(packetBufferSize);
+                fromSocketArrayOffset = fromSocket.arrayOffset();
+            }
         }
 
         @Override
@@ -808,6 +881,9 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
                 if (allocatedBuffer != null) {
                     allocatedBuffer.release();
                 }
+                if (allocatedSocketBuffer != null) {
+                    allocatedSocketBuffer.release();
+                }
             }
         }
 
@@ -986,6 +1062,9 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
         }
 
         private int readFromSocket() throws IOException {
+            if (socketChannel != null) {
+                return readFromChannel();
+            }
             try {
                 // Read directly to the underlying array and increment the buffer position if
                 // appropriate.
@@ -1002,5 +1081,27 @@ class ConscryptEngineSocket extends OpenSSLSocketImpl implements SSLParametersIm
                 return -1;
             }
         }
+
+        private int readFromChannel() throws IOException {
+            if (getSoTimeout() == 0) {
+                return socketChannel.read(fromSocket);
+            }
+
+            // Reads from a blocking channel ignore SO_TIMEOUT, so go through the socket's
+            // stream, which honours it, and copy the data into the direct buffer.
+            if (socketReadArray == null) {
+                socketReadArray = new byte[engine.getSession().getPacketBufferSize()];
+            }
+            try {
+                int read = socketInputStream.read(socketReadArray, 0,
+                        Math.min(socketReadArray.length, fromSocket.remaining()));
+                if (read > 0) {
+                    fromSocket.put(socketReadArray, 0, read);
+                }
+                return read;
+            } catch (EOFException e) {
+                return -1;
+            }
+        }
     }
 }
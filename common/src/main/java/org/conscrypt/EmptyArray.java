@@ -26,6 +26,7 @@ final class EmptyArray {
     static final char[] CHAR = new char[0];
     static final double[] DOUBLE = new double[0];
     static final int[] INT = new int[0];
+    static final long[] LONG = new long[0];
 
     static final Class<?>[] CLASS = new Class<?>[0];
     static final Object[] OBJECT = new Object[0];
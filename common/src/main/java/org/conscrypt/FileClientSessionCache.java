@@ -339,9 +339,72 @@ public final class FileClientSessionCache {
         return cache;
     }
 
+    /**
+     * Maps files to the memory-mapped cache instances that are backed by
+     * those files. Writes are synchronized on the cache instance, so
+     * everyone must share the same instance.
+     */
+    static final Map<File, MappedClientSessionCache> mappedCaches =
+            new HashMap<File, MappedClientSessionCache>();
+
+    /**
+     * Returns a cache backed by a single memory-mapped file, with room for
+     * {@code capacity} sessions of up to 8KiB each. Creates the file
+     * (including parent directories) if necessary. The cache locks the file,
+     * so if another process is already using it, the returned cache stores
+     * nothing.
+     *
+     * @param file to store sessions in
+     * @param capacity the maximum number of sessions to store
+     * @return a cache backed by the given file
+     * @throws IOException if the file can't be created or mapped
+     */
+    public static SSLClientSessionCache usingMappedFile(File file, int capacity)
+            throws IOException {
+        return usingMappedFile(file, capacity, MappedClientSessionCache.DEFAULT_MAX_SESSION_SIZE);
+    }
+
+    /**
+     * Returns a cache backed by a single memory-mapped file, with room for
+     * {@code capacity} sessions of up to {@code maxSessionSize} bytes each.
+     * Larger sessions aren't stored. Unlike {@link #usingDirectory}, lookups
+     * don't touch the file system once the file has been mapped, and
+     * sessions written by a process which crashed part way through are
+     * ignored.
+     *
+     * <p>If the file was created with a different capacity or maximum
+     * session size, its contents are discarded.
+     *
+     * @param file to store sessions in
+     * @param capacity the maximum number of sessions to store
+     * @param maxSessionSize the size in bytes of the largest session to store
+     * @return a cache backed by the given file
+     * @throws IOException if the file can't be created or mapped
+     * @throws IllegalArgumentException if the file is already in use by a
+     *  cache with a different capacity or maximum session size
+     */
+    public static synchronized SSLClientSessionCache usingMappedFile(
+            File file, int capacity, int maxSessionSize) throws IOException {
+        File key = file.getCanonicalFile();
+        MappedClientSessionCache cache = mappedCaches.get(key);
+        if (cache == null) {
+            cache = MappedClientSessionCache.open(key, capacity, maxSessionSize);
+            mappedCaches.put(key, cache);
+        } else if (cache.getCapacity() != capacity
+                || cache.getMaxSessionSize() != maxSessionSize) {
+            throw new IllegalArgumentException(
+                    file + " is already in use with a different capacity or session size");
+        }
+        return cache;
+    }
+
     /** For testing. */
     static synchronized void reset() {
         caches.clear();
+        for (MappedClientSessionCache cache : mappedCaches.values()) {
+            cache.close();
+        }
+        mappedCaches.clear();
     }
 
     /** A file containing a piece of cached data. */
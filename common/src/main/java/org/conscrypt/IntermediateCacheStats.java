@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+/**
+ * A snapshot of the statistics of the intermediate CA cache of a trust manager, as returned by
+ * {@link Conscrypt#getIntermediateCacheStats(javax.net.ssl.TrustManager)}. Counts are cumulative
+ * from the creation of the trust manager.
+ *
+ * <p>Trust managers remember the intermediate CA certificates of the chains they validate, and
+ * look them up when building a chain for a peer which didn't send all of its intermediates.
+ */
+@ExperimentalApi
+public final class IntermediateCacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long sizeEvictionCount;
+    private final long expiryEvictionCount;
+    private final int size;
+    private final int maximumSize;
+
+    IntermediateCacheStats(long hitCount, long missCount, long sizeEvictionCount,
+            long expiryEvictionCount, int size, int maximumSize) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.sizeEvictionCount = sizeEvictionCount;
+        this.expiryEvictionCount = expiryEvictionCount;
+        this.size = size;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the number of lookups which found a cached issuer.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups which found no cached issuer.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the fraction of lookups which found a cached issuer, or {@code 0} if there have
+     * been no lookups.
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Returns the number of certificates removed to keep the cache within its maximum size.
+     */
+    public long getSizeEvictionCount() {
+        return sizeEvictionCount;
+    }
+
+    /**
+     * Returns the number of certificates removed because they had expired.
+     */
+    public long getExpiryEvictionCount() {
+        return expiryEvictionCount;
+    }
+
+    /**
+     * Returns the number of certificates in the cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of certificates in the cache.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public String toString() {
+        return "IntermediateCacheStats{hits=" + hitCount + ", misses=" + missCount
+                + ", sizeEvictions=" + sizeEvictionCount
+                + ", expiryEvictions=" + expiryEvictionCount
+                + ", size=" + size + ", maximumSize=" + maximumSize + "}";
+    }
+}
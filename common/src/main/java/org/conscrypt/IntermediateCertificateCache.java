@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers intermediate CA certificates from validated chains, so that chains from servers
+ * which omit their intermediates can still be built. http://b/3404902
+ *
+ * <p>The cache is bounded. Once it grows past its maximum size, expired certificates are
+ * dropped, followed by the least recently used ones until it is back to three quarters of its
+ * maximum size, so the cost of eviction is amortized over many additions. Lookups don't lock
+ * and record when each certificate was last used; expired certificates are never returned.
+ */
+final class IntermediateCertificateCache {
+    static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final TrustedCertificateIndex index = new TrustedCertificateIndex();
+    private final ConcurrentMap<X509Certificate, Entry> entries =
+            new ConcurrentHashMap<X509Certificate, Entry>();
+    private final Object writeLock = new Object();
+    private volatile int maximumSize;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong sizeEvictionCount = new AtomicLong();
+    private final AtomicLong expiryEvictionCount = new AtomicLong();
+
+    IntermediateCertificateCache(int maximumSize) {
+        checkArgument(maximumSize > 0, "maximumSize must be > 0");
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the cached certificates which issued {@code cert} and are valid at
+     * {@code nowMillis}.
+     */
+    Set<TrustAnchor> findAllByIssuerAndSignature(X509Certificate cert, long nowMillis) {
+        Set<TrustAnchor> candidates = index.findAllByIssuerAndSignature(cert);
+        Set<TrustAnchor> result = Collections.emptySet();
+        for (TrustAnchor candidate : candidates) {
+            X509Certificate candidateCert = candidate.getTrustedCert();
+            Entry entry = entries.get(candidateCert);
+            if (entry == null) {
+                // Evicted concurrently
+                continue;
+            }
+            if (nowMillis > entry.notAfterMillis) {
+                if (remove(entry)) {
+                    expiryEvictionCount.incrementAndGet();
+                }
+                continue;
+            }
+            entry.lastUsedMillis = nowMillis;
+            if (result.isEmpty()) {
+                result = new HashSet<TrustAnchor>();
+            }
+            result.add(candidate);
+        }
+        if (result.isEmpty()) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Adds {@code cert}, an intermediate of a chain validated at {@code nowMillis}, to the cache.
+     */
+    void add(X509Certificate cert, long nowMillis) {
+        Entry existing = entries.get(cert);
+        if (existing != null) {
+            existing.lastUsedMillis = nowMillis;
+            return;
+        }
+        long notAfterMillis = cert.getNotAfter().getTime();
+        if (nowMillis > notAfterMillis) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (entries.containsKey(cert)) {
+                return;
+            }
+            entries.put(cert, new Entry(cert, notAfterMillis, nowMillis));
+            index.index(cert);
+            if (entries.size() > maximumSize) {
+                evict(nowMillis);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of certificates cached, evicting certificates if there are more.
+     */
+    void setMaximumSize(int maximumSize, long nowMillis) {
+        checkArgument(maximumSize > 0, "maximumSize must be > 0");
+        synchronized (writeLock) {
+            this.maximumSize = maximumSize;
+            if (entries.size() > maximumSize) {
+                evict(nowMillis);
+            }
+        }
+    }
+
+    IntermediateCacheStats getStats() {
+        return new IntermediateCacheStats(hitCount.get(), missCount.get(),
+                sizeEvictionCount.get(), expiryEvictionCount.get(), entries.size(), maximumSize);
+    }
+
+    private boolean remove(Entry entry) {
+        synchronized (writeLock) {
+            if (!entries.remove(entry.cert, entry)) {
+                return false;
+            }
+            index.remove(entry.cert);
+            return true;
+        }
+    }
+
+    private void evict(long nowMillis) {
+        List<Entry> live = new ArrayList<Entry>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (nowMillis > entry.notAfterMillis) {
+                entries.remove(entry.cert);
+                index.remove(entry.cert);
+                expiryEvictionCount.incrementAndGet();
+            } else {
+                live.add(entry);
+            }
+        }
+        int excess = live.size() - (maximumSize - maximumSize / 4);
+        if (excess <= 0) {
+            return;
+        }
+        // Lookups keep updating lastUsedMillis, so work from a snapshot of it.
+        long[] lastUsed = new long[live.size()];
+        for (int i = 0; i < lastUsed.length; i++) {
+            lastUsed[i] = live.get(i).lastUsedMillis;
+        }
+        long[] sorted = lastUsed.clone();
+        Arrays.sort(sorted);
+        long threshold = sorted[excess - 1];
+        for (int i = 0; i < lastUsed.length && excess > 0; i++) {
+            if (lastUsed[i] <= threshold) {
+                Entry entry = live.get(i);
+                entries.remove(entry.cert);
+                index.remove(entry.cert);
+                sizeEvictionCount.incrementAndGet();
+                excess--;
+            }
+        }
+    }
+
+    private static final class Entry {
+        final X509Certificate cert;
+        final long notAfterMillis;
+        volatile long lastUsedMillis;
+
+        Entry(X509Certificate cert, long notAfterMillis, long lastUsedMillis) {
+            this.cert = cert;
+            this.notAfterMillis = notAfterMillis;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+    }
+}
@@ -72,6 +72,21 @@ final class Java8EngineWrapper extends AbstractConscryptEngine {
         delegate.setBufferAllocator(bufferAllocator);
     }
 
+    @Override
+    void setReleaseBuffersWhenIdle(boolean releaseBuffersWhenIdle) {
+        delegate.setReleaseBuffersWhenIdle(releaseBuffersWhenIdle);
+    }
+
+    @Override
+    void setBatchedWrap(boolean batchedWrap) {
+        delegate.setBatchedWrap(batchedWrap);
+    }
+
+    @Override
+    void setBatchedUnwrap(boolean batchedUnwrap) {
+        delegate.setBatchedUnwrap(batchedUnwrap);
+    }
+
     @Override
     int maxSealOverhead() {
         return delegate.maxSealOverhead();
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.security.InvalidKeyException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the native form of the certificate chains and private keys returned by one
+ * {@link javax.net.ssl.X509KeyManager}, by alias, so that they are encoded, converted and parsed
+ * once rather than once per connection.
+ *
+ * <p>Key managers may return different credentials for the same alias over time, for example
+ * after a certificate is renewed, so the chain and key are still requested from the key manager
+ * for every connection. A cached entry is only used if they are the same objects, or equal
+ * certificates, as the ones it was built from.
+ */
+final class LocalCredentialCache {
+    /**
+     * The maximum number of aliases cached. Key managers which make up aliases per connection
+     * would otherwise grow the cache without bound; it is cleared instead.
+     */
+    private static final int MAX_ENTRIES = 64;
+
+    private final ConcurrentMap<String, Credentials> credentials =
+            new ConcurrentHashMap<String, Credentials>();
+
+    /**
+     * Returns the native credentials for the given chain and key, which the key manager
+     * returned for {@code alias}.
+     */
+    Credentials get(String alias, X509Certificate[] chain, PrivateKey privateKey)
+            throws CertificateEncodingException, InvalidKeyException {
+        Credentials cached = credentials.get(alias);
+        if (cached != null && cached.matches(chain, privateKey)) {
+            return cached;
+        }
+        Credentials created = new Credentials(chain, privateKey);
+        if (cached == null && credentials.size() >= MAX_ENTRIES) {
+            credentials.clear();
+        }
+        credentials.put(alias, created);
+        return created;
+    }
+
+    int size() {
+        return credentials.size();
+    }
+
+    static final class Credentials {
+        private final X509Certificate[] chain;
+        private final PrivateKey privateKey;
+        final NativeRef.CRYPTO_BUFFER_STACK nativeChain;
+        final OpenSSLKey key;
+
+        Credentials(X509Certificate[] chain, PrivateKey privateKey)
+                throws CertificateEncodingException, InvalidKeyException {
+            this.chain = chain.clone();
+            this.privateKey = privateKey;
+
+            byte[][] encodedChain = new byte[chain.length][];
+            for (int i = 0; i < chain.length; ++i) {
+                encodedChain[i] = chain[i].getEncoded();
+            }
+            this.nativeChain = new NativeRef.CRYPTO_BUFFER_STACK(
+                    NativeCrypto.CRYPTO_BUFFER_STACK_new(encodedChain));
+
+            PublicKey publicKey = (chain.length > 0) ? chain[0].getPublicKey() : null;
+            this.key = OpenSSLKey.fromPrivateKeyForTLSStackOnly(privateKey, publicKey);
+        }
+
+        boolean matches(X509Certificate[] chain, PrivateKey privateKey) {
+            if (privateKey != this.privateKey || chain.length != this.chain.length) {
+                return false;
+            }
+            for (int i = 0; i < chain.length; i++) {
+                if (chain[i] != this.chain[i] && !chain[i].equals(this.chain[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
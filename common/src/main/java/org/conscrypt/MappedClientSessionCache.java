@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+import static org.conscrypt.Preconditions.checkNotNull;
+
+import org.conscrypt.io.IoUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * A client session cache backed by a single memory-mapped file, so that processes which restart
+ * often can resume sessions from previous runs without a file per host.
+ *
+ * <p>The file holds a fixed number of equally sized slots, addressed by a hash of the host and
+ * port with a short linear probe. When all probed slots are in use, the least recently written
+ * one is replaced. Each record carries a CRC32 of its contents, and records which fail the check,
+ * for example because the process died while writing them, are treated as empty.
+ *
+ * <p>Reads don't take a lock. Each slot starts with a sequence number which is odd while the slot
+ * is being written, and a read is only used if the sequence number is even and unchanged
+ * afterwards and the checksum matches. Writes are serialized on the cache instance.
+ *
+ * <p>The cache holds an exclusive {@link FileLock} on the file until it is closed. If another
+ * process (or another cache in this one) already holds the lock, the new cache doesn't store or
+ * return anything, since the other cache may clear or resize the file at any time.
+ */
+final class MappedClientSessionCache implements SSLClientSessionCache {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final int DEFAULT_MAX_SESSION_SIZE = 8 * 1024;
+
+    private static final int MAGIC = 0x43534331; // "CSC1"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 64;
+
+    // Slot layout.
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int HASH_OFFSET = 4;
+    private static final int WRITE_TIME_OFFSET = 8;
+    private static final int KEY_LENGTH_OFFSET = 16;
+    private static final int DATA_LENGTH_OFFSET = 20;
+    private static final int CHECKSUM_OFFSET = 24;
+    private static final int SLOT_HEADER_SIZE = 28;
+
+    private static final int MAX_KEY_LENGTH = 256;
+    private static final int MAX_PROBES = 8;
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final int capacity;
+    private final int maxSessionSize;
+    private final int slotSize;
+    // Null if another cache holds the lock on the file.
+    private final MappedByteBuffer buffer;
+    // Holds the lock on the file. Null if another cache holds it.
+    private final RandomAccessFile file;
+    private volatile boolean closed;
+
+    private MappedClientSessionCache(int capacity, int maxSessionSize, int slotSize,
+            MappedByteBuffer buffer, RandomAccessFile file) {
+        this.capacity = capacity;
+        this.maxSessionSize = maxSessionSize;
+        this.slotSize = slotSize;
+        this.buffer = buffer;
+        this.file = file;
+    }
+
+    /**
+     * Opens the cache stored in {@code file}, creating it if necessary. An existing file whose
+     * layout doesn't match {@code capacity} and {@code maxSessionSize} is cleared. If the file is
+     * locked by another cache, the returned cache is empty and ignores new sessions.
+     */
+    static MappedClientSessionCache open(File file, int capacity, int maxSessionSize)
+            throws IOException {
+        checkNotNull(file, "file");
+        checkArgument(capacity > 0, "capacity must be > 0");
+        checkArgument(maxSessionSize > 0, "maxSessionSize must be > 0");
+        // Round slots up to a multiple of 8 so the header fields stay aligned.
+        long slotSize = (SLOT_HEADER_SIZE + MAX_KEY_LENGTH + (long) maxSessionSize + 7) & ~7L;
+        long fileSize = FILE_HEADER_SIZE + slotSize * capacity;
+        checkArgument(fileSize <= Integer.MAX_VALUE,
+                "capacity * maxSessionSize is too large to map");
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory " + parent);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        boolean success = false;
+        try {
+            if (!tryLock(raf.getChannel())) {
+                return new MappedClientSessionCache(
+                        capacity, maxSessionSize, (int) slotSize, null, null);
+            }
+            boolean reuse = raf.length() == fileSize && hasHeader(raf, capacity, (int) slotSize);
+            if (!reuse) {
+                raf.setLength(0);
+                raf.setLength(fileSize);
+            }
+            MappedByteBuffer buffer =
+                    raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (!reuse) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacity);
+                buffer.putInt(12, (int) slotSize);
+            }
+            success = true;
+            return new MappedClientSessionCache(
+                    capacity, maxSessionSize, (int) slotSize, buffer, raf);
+        } finally {
+            if (!success) {
+                // Also releases the lock, if it was taken.
+                IoUtils.closeQuietly(raf);
+            }
+        }
+    }
+
+    private static boolean tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            // Another cache in this process holds the lock.
+            return false;
+        }
+    }
+
+    private static boolean hasHeader(RandomAccessFile raf, int capacity, int slotSize)
+            throws IOException {
+        raf.seek(0);
+        return raf.readInt() == MAGIC && raf.readInt() == VERSION && raf.readInt() == capacity
+                && raf.readInt() == slotSize;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getMaxSessionSize() {
+        return maxSessionSize;
+    }
+
+    /**
+     * Releases the lock on the file, after which the cache is empty and ignores new sessions.
+     */
+    synchronized void close() {
+        closed = true;
+        if (file != null) {
+            IoUtils.closeQuietly(file);
+        }
+    }
+
+    private boolean isUsable() {
+        return buffer != null && !closed;
+    }
+
+    @Override
+    public byte[] getSessionData(String host, int port) {
+        if (host == null) {
+            throw new NullPointerException("host == null");
+        }
+        byte[] key = key(host, port);
+        if (key.length > MAX_KEY_LENGTH || !isUsable()) {
+            return null;
+        }
+        int hash = hash(key);
+        ByteBuffer view = buffer.duplicate();
+        int start = index(hash);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int slot = slotOffset((start + i) % capacity);
+            if (buffer.getInt(slot + HASH_OFFSET) != hash) {
+                continue;
+            }
+            byte[] data = read(view, slot, key);
+            if (data != null) {
+                return data;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the session stored in the slot at {@code slot} if it belongs to {@code key}, retrying
+     * a few times if the slot is concurrently rewritten.
+     */
+    private byte[] read(ByteBuffer view, int slot, byte[] key) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            int sequence = buffer.getInt(slot + SEQUENCE_OFFSET);
+            if ((sequence & 1) != 0) {
+                continue;
+            }
+            int keyLength = buffer.getInt(slot + KEY_LENGTH_OFFSET);
+            int dataLength = buffer.getInt(slot + DATA_LENGTH_OFFSET);
+            int checksum = buffer.getInt(slot + CHECKSUM_OFFSET);
+            if (keyLength != key.length || dataLength <= 0
+                    || dataLength > slotSize - SLOT_HEADER_SIZE - keyLength) {
+                return null;
+            }
+            byte[] storedKey = new byte[keyLength];
+            byte[] data = new byte[dataLength];
+            view.position(slot + SLOT_HEADER_SIZE);
+            view.get(storedKey);
+            view.get(data);
+            if (buffer.getInt(slot + SEQUENCE_OFFSET) != sequence) {
+                continue;
+            }
+            if (!Arrays.equals(storedKey, key) || checksum(storedKey, data) != checksum) {
+                return null;
+            }
+            return data;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void putSessionData(SSLSession session, byte[] sessionData) {
+        if (sessionData == null) {
+            throw new NullPointerException("sessionData == null");
+        }
+        String host = session.getPeerHost();
+        if (host == null) {
+            return;
+        }
+        byte[] key = key(host, session.getPeerPort());
+        if (key.length > MAX_KEY_LENGTH || sessionData.length > maxSessionSize
+                || sessionData.length == 0 || !isUsable()) {
+            return;
+        }
+        int hash = hash(key);
+        int slot = chooseSlot(hash, key);
+
+        // Mark the slot as being written, so that readers and a future process ignore it until
+        // the new record is complete.
+        int sequence = buffer.getInt(slot + SEQUENCE_OFFSET) | 1;
+        buffer.putInt(slot + SEQUENCE_OFFSET, sequence);
+        buffer.putInt(slot + HASH_OFFSET, hash);
+        buffer.putLong(slot + WRITE_TIME_OFFSET, System.currentTimeMillis());
+        buffer.putInt(slot + KEY_LENGTH_OFFSET, key.length);
+        buffer.putInt(slot + DATA_LENGTH_OFFSET, sessionData.length);
+        buffer.putInt(slot + CHECKSUM_OFFSET, checksum(key, sessionData));
+        ByteBuffer view = buffer.duplicate();
+        view.position(slot + SLOT_HEADER_SIZE);
+        view.put(key);
+        view.put(sessionData);
+        buffer.putInt(slot + SEQUENCE_OFFSET, sequence + 1);
+    }
+
+    /**
+     * Returns the slot to store {@code key} in: the slot which already holds it, otherwise the
+     * first unused slot, otherwise the least recently written slot. Only the slot headers and the
+     * stored key of slots with a matching hash are read; the checksums aren't checked, since
+     * writers are serialized and the chosen slot is overwritten anyway.
+     */
+    // @GuardedBy("this")
+    private int chooseSlot(int hash, byte[] key) {
+        ByteBuffer view = buffer.duplicate();
+        int start = index(hash);
+        int oldest = -1;
+        long oldestWriteTime = Long.MAX_VALUE;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int slot = slotOffset((start + i) % capacity);
+            if (buffer.getInt(slot + HASH_OFFSET) == hash
+                    && buffer.getInt(slot + KEY_LENGTH_OFFSET) == key.length
+                    && hasKey(view, slot, key)) {
+                return slot;
+            }
+            long writeTime = isInUse(slot) ? buffer.getLong(slot + WRITE_TIME_OFFSET)
+                                           : Long.MIN_VALUE;
+            if (writeTime < oldestWriteTime) {
+                oldest = slot;
+                oldestWriteTime = writeTime;
+            }
+        }
+        return oldest;
+    }
+
+    // @GuardedBy("this")
+    private boolean hasKey(ByteBuffer view, int slot, byte[] key) {
+        byte[] storedKey = new byte[key.length];
+        view.position(slot + SLOT_HEADER_SIZE);
+        view.get(storedKey);
+        return Arrays.equals(storedKey, key);
+    }
+
+    /**
+     * Returns whether the header of the slot at {@code slot} describes a complete record. Slots
+     * which were never written, or whose write was interrupted, are replaced first.
+     */
+    // @GuardedBy("this")
+    private boolean isInUse(int slot) {
+        if ((buffer.getInt(slot + SEQUENCE_OFFSET) & 1) != 0) {
+            return false;
+        }
+        int keyLength = buffer.getInt(slot + KEY_LENGTH_OFFSET);
+        int dataLength = buffer.getInt(slot + DATA_LENGTH_OFFSET);
+        return keyLength > 0 && keyLength <= MAX_KEY_LENGTH && dataLength > 0
+                && dataLength <= slotSize - SLOT_HEADER_SIZE - keyLength;
+    }
+
+    private int index(int hash) {
+        return (hash & Integer.MAX_VALUE) % capacity;
+    }
+
+    private int slotOffset(int index) {
+        return FILE_HEADER_SIZE + index * slotSize;
+    }
+
+    private static byte[] key(String host, int port) {
+        return (host + ":" + port).getBytes(UTF_8);
+    }
+
+    /**
+     * Returns a hash of {@code key} which is stable across processes, since it determines where
+     * records are stored in the file.
+     */
+    private static int hash(byte[] key) {
+        // FNV-1a
+        int hash = 0x811c9dc5;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    private static int checksum(byte[] key, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(key, 0, key.length);
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+}
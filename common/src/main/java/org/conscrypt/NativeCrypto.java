@@ -1074,6 +1074,14 @@ public final class NativeCrypto {
     static native long SSL_CTX_set_timeout(long ssl_ctx, AbstractSessionContext holder,
                                            long seconds);
 
+    /**
+     * Sets the keys SSLs from this SSL_CTX use to issue and accept stateless session tickets.
+     * {@code keys} is a concatenation of 48-byte keys, the first of which issues new tickets, or
+     * {@code null} to use BoringSSL's own keys.
+     */
+    static native void SSL_CTX_set_ticket_keys(long ssl_ctx, AbstractSessionContext holder,
+                                               byte[] keys);
+
     static native long SSL_new(long ssl_ctx, AbstractSessionContext holder) throws SSLException;
 
     static native void SSL_enable_tls_channel_id(long ssl, NativeSsl ssl_holder)
@@ -1096,10 +1104,37 @@ public final class NativeCrypto {
                                                   byte[][] encodedCertificates,
                                                   NativeRef.EVP_PKEY pkey) throws SSLException;
 
+    /**
+     * Copies DER-encoded certificates or names into native buffers once so that they can be used
+     * for many connections.
+     *
+     * @return a reference to a native stack of buffers.
+     */
+    static native long CRYPTO_BUFFER_STACK_new(byte[][] encodedCertificates);
+
+    static native void CRYPTO_BUFFER_STACK_free(long chain);
+
+    /**
+     * Sets the local certificates and private key, sharing a certificate chain created by
+     * {@link #CRYPTO_BUFFER_STACK_new}.
+     *
+     * @throws SSLException if a problem occurs setting the cert/key.
+     */
+    static native void setLocalCertChainAndPrivateKey(long ssl, NativeSsl ssl_holder,
+                                                      NativeRef.CRYPTO_BUFFER_STACK chain,
+                                                      NativeRef.EVP_PKEY pkey) throws SSLException;
+
     static native void SSL_set_client_CA_list(long ssl, NativeSsl ssl_holder,
                                               byte[][] asn1DerEncodedX500Principals)
             throws SSLException;
 
+    /**
+     * Sets the client CA names to send, sharing a list created by
+     * {@link #CRYPTO_BUFFER_STACK_new}.
+     */
+    static native void SSL_set_client_CA_stack(long ssl, NativeSsl ssl_holder,
+                                               NativeRef.CRYPTO_BUFFER_STACK principals);
+
     static native long SSL_set_mode(long ssl, NativeSsl ssl_holder, long mode);
 
     static native long SSL_set_options(long ssl, NativeSsl ssl_holder, long options);
@@ -1238,10 +1273,18 @@ public final class NativeCrypto {
     }
 
     static void setEnabledProtocols(long ssl, NativeSsl ssl_holder, String[] protocols) {
+        int[] versions = getProtocolVersions(protocols);
+        SSL_set_protocol_versions(ssl, ssl_holder, versions[0], versions[1]);
+    }
+
+    /**
+     * Returns the minimum and maximum protocol versions to configure for the given enabled
+     * protocols.
+     */
+    static int[] getProtocolVersions(String[] protocols) {
         checkEnabledProtocols(protocols);
         Range range = getProtocolRange(protocols);
-        SSL_set_protocol_versions(ssl, ssl_holder, getProtocolConstant(range.min),
-                                  getProtocolConstant(range.max));
+        return new int[] {getProtocolConstant(range.min), getProtocolConstant(range.max)};
     }
 
     private static int getProtocolConstant(String protocol) {
@@ -1275,6 +1318,14 @@ public final class NativeCrypto {
 
     static native void SSL_set_cipher_lists(long ssl, NativeSsl ssl_holder, String[] ciphers);
 
+    /**
+     * Applies the parts of an {@code SSL}'s configuration which don't depend on the connection
+     * in one call. See {@link SSLConfiguration}.
+     */
+    static native void SSL_configure(long ssl, NativeSsl ssl_holder, boolean client,
+            int minVersion, int maxVersion, String cipherString, int[] groups, long setOptions,
+            long clearOptions, long mode, boolean enableOcspStapling);
+
     /**
      * Gets the list of cipher suites enabled for the provided {@code SSL} instance.
      *
@@ -1285,26 +1336,64 @@ public final class NativeCrypto {
     static void setEnabledCipherSuites(long ssl, NativeSsl ssl_holder, String[] cipherSuites,
                                        String[] protocols) {
         checkEnabledCipherSuites(cipherSuites);
+        if (sendsFallbackScsvUsingMode(cipherSuites, protocols)) {
+            SSL_set_mode(ssl, ssl_holder, NativeConstants.SSL_MODE_SEND_FALLBACK_SCSV);
+        }
+        List<String> opensslSuites = toOpenSslCipherSuites(cipherSuites, protocols);
+        SSL_set_cipher_lists(ssl, ssl_holder,
+                             opensslSuites.toArray(new String[opensslSuites.size()]));
+    }
+
+    /**
+     * Returns whether TLS_FALLBACK_SCSV is enabled but has to be sent by setting
+     * {@code SSL_MODE_SEND_FALLBACK_SCSV} rather than as a cipher suite.
+     */
+    static boolean sendsFallbackScsvUsingMode(String[] cipherSuites, String[] protocols) {
+        return Arrays.asList(cipherSuites).contains(TLS_FALLBACK_SCSV)
+                && !sendsFallbackScsvAsCipherSuite(protocols);
+    }
+
+    private static boolean sendsFallbackScsvAsCipherSuite(String[] protocols) {
+        // Only send TLS_FALLBACK_SCSV if max version >= 1.2 to prevent inadvertent connection
+        // problems when servers upgrade.  See https://github.com/google/conscrypt/issues/574
+        // for more discussion.
         String maxProtocol = getProtocolRange(protocols).max;
+        return !maxProtocol.equals(DEPRECATED_PROTOCOL_TLSV1)
+                && !maxProtocol.equals(DEPRECATED_PROTOCOL_TLSV1_1);
+    }
+
+    private static List<String> toOpenSslCipherSuites(String[] cipherSuites, String[] protocols) {
+        boolean fallbackScsvAsCipherSuite = sendsFallbackScsvAsCipherSuite(protocols);
         List<String> opensslSuites = new ArrayList<String>();
         for (int i = 0; i < cipherSuites.length; i++) {
             String cipherSuite = cipherSuites[i];
             if (cipherSuite.equals(TLS_EMPTY_RENEGOTIATION_INFO_SCSV)) {
                 continue;
             }
-            // Only send TLS_FALLBACK_SCSV if max version >= 1.2 to prevent inadvertent connection
-            // problems when servers upgrade.  See https://github.com/google/conscrypt/issues/574
-            // for more discussion.
-            if (cipherSuite.equals(TLS_FALLBACK_SCSV)
-                && (maxProtocol.equals(DEPRECATED_PROTOCOL_TLSV1)
-                    || maxProtocol.equals(DEPRECATED_PROTOCOL_TLSV1_1))) {
-                SSL_set_mode(ssl, ssl_holder, NativeConstants.SSL_MODE_SEND_FALLBACK_SCSV);
+            if (cipherSuite.equals(TLS_FALLBACK_SCSV) && !fallbackScsvAsCipherSuite) {
                 continue;
             }
             opensslSuites.add(cipherSuiteFromJava(cipherSuite));
         }
-        SSL_set_cipher_lists(ssl, ssl_holder,
-                             opensslSuites.toArray(new String[opensslSuites.size()]));
+        return opensslSuites;
+    }
+
+    /**
+     * Returns the BoringSSL cipher string for the given enabled cipher suites, as built by
+     * {@link #SSL_set_cipher_lists} and passed to {@link #SSL_configure}. An empty string
+     * disables all cipher suites.
+     */
+    static String getCipherString(String[] cipherSuites, String[] protocols) {
+        checkEnabledCipherSuites(cipherSuites);
+        List<String> opensslSuites = toOpenSslCipherSuites(cipherSuites, protocols);
+        if (opensslSuites.isEmpty()) {
+            return "";
+        }
+        StringBuilder cipherString = new StringBuilder("!SSLv2");
+        for (String opensslSuite : opensslSuites) {
+            cipherString.append(':').append(opensslSuite);
+        }
+        return cipherString.toString();
     }
 
     static String[] checkEnabledCipherSuites(String[] cipherSuites) {
@@ -1645,6 +1734,45 @@ public final class NativeCrypto {
                                                  long address, int len, SSLHandshakeCallbacks shc)
             throws IOException;
 
+    /**
+     * Writes data from the given byte array to the BIO, accessing the array in place.
+     */
+    static native int ENGINE_SSL_write_BIO_heap(long ssl, NativeSsl ssl_holder, long bioRef,
+                                                byte[] source, int offset, int length)
+            throws IOException;
+
+    /**
+     * Reads data from the given BIO into a byte array, accessing the array in place.
+     */
+    static native int ENGINE_SSL_read_BIO_heap(long ssl, NativeSsl ssl_holder, long bioRef,
+                                               byte[] dest, int offset, int length)
+            throws IOException;
+
+    /**
+     * Writes plaintext from the given direct {@link java.nio.ByteBuffer} address to the SSL,
+     * sealing as many records as fit into the destination address, and reads the resulting
+     * encrypted data from the BIO into the destination. Returns the number of plaintext bytes
+     * consumed in the upper 32 bits and the number of encrypted bytes produced in the lower 32
+     * bits, or the non-positive result of {@code SSL_write} if no plaintext could be written.
+     */
+    static native long ENGINE_SSL_write_BIO_batch_direct(long ssl, NativeSsl ssl_holder,
+                                                         long bioRef, long srcAddress,
+                                                         int srcLength, long dstAddress,
+                                                         int dstLength, SSLHandshakeCallbacks shc)
+            throws IOException;
+
+    /**
+     * Writes the complete TLS records at the given direct {@link java.nio.ByteBuffer} address to
+     * the BIO one at a time and reads the decrypted data into the given destination addresses,
+     * filling each in turn. Returns the number of encrypted bytes consumed in the upper 32 bits
+     * and the number of plaintext bytes produced in the lower 32 bits.
+     */
+    static native long ENGINE_SSL_read_BIO_batch_direct(long ssl, NativeSsl ssl_holder,
+                                                        long bioRef, long srcAddress,
+                                                        int srcLength, long[] dstAddresses,
+                                                        int[] dstLengths, SSLHandshakeCallbacks shc)
+            throws IOException;
+
     /**
      * Forces the SSL object to process any data pending in the BIO.
      */
@@ -74,6 +74,17 @@ abstract class NativeRef {
         }
     }
 
+    static final class CRYPTO_BUFFER_STACK extends NativeRef {
+        CRYPTO_BUFFER_STACK(long nativePointer) {
+            super(nativePointer);
+        }
+
+        @Override
+        void doFree(long context) {
+            NativeCrypto.CRYPTO_BUFFER_STACK_free(context);
+        }
+    }
+
     static final class EC_GROUP extends NativeRef {
         EC_GROUP(long ctx) {
             super(ctx);
@@ -16,8 +16,6 @@
 
 package org.conscrypt;
 
-import static org.conscrypt.NativeConstants.SSL_MODE_CBC_RECORD_SPLITTING;
-import static org.conscrypt.NativeConstants.SSL_OP_CIPHER_SERVER_PREFERENCE;
 import static org.conscrypt.NativeConstants.SSL_OP_NO_TICKET;
 import static org.conscrypt.NativeConstants.SSL_RECEIVED_SHUTDOWN;
 import static org.conscrypt.NativeConstants.SSL_SENT_SHUTDOWN;
@@ -35,7 +33,6 @@ import java.net.SocketException;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.PrivateKey;
-import java.security.PublicKey;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
@@ -63,11 +60,16 @@ final class NativeSsl {
     private X509Certificate[] localCertificates;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private volatile long ssl;
+    // The context whose SSL_CTX this SSL was created from. That is the client context for
+    // engines and sockets which were switched to server mode after creation.
+    private final AbstractSessionContext sessionContext;
 
-    private NativeSsl(long ssl, SSLParametersImpl parameters,
+    private NativeSsl(long ssl, AbstractSessionContext sessionContext,
+                      SSLParametersImpl parameters,
                       SSLHandshakeCallbacks handshakeCallbacks, AliasChooser aliasChooser,
                       PSKCallbacks pskCallbacks) {
         this.ssl = ssl;
+        this.sessionContext = sessionContext;
         this.parameters = parameters;
         this.handshakeCallbacks = handshakeCallbacks;
         this.aliasChooser = aliasChooser;
@@ -77,8 +79,10 @@ final class NativeSsl {
     static NativeSsl newInstance(SSLParametersImpl parameters,
                                  SSLHandshakeCallbacks handshakeCallbacks, AliasChooser chooser,
                                  PSKCallbacks pskCallbacks) throws SSLException {
-        long ssl = parameters.getSessionContext().newSsl();
-        return new NativeSsl(ssl, parameters, handshakeCallbacks, chooser, pskCallbacks);
+        AbstractSessionContext sessionContext = parameters.getSessionContext();
+        long ssl = sessionContext.newSsl();
+        return new NativeSsl(
+                ssl, sessionContext, parameters, handshakeCallbacks, chooser, pskCallbacks);
     }
 
     BioWrapper newBio() {
@@ -246,25 +250,18 @@ final class NativeSsl {
         if (localCertificates == null) {
             return;
         }
-        int numLocalCerts = localCertificates.length;
-        PublicKey publicKey = (numLocalCerts > 0) ? localCertificates[0].getPublicKey() : null;
 
-        // Encode the local certificates.
-        byte[][] encodedLocalCerts = new byte[numLocalCerts][];
-        for (int i = 0; i < numLocalCerts; ++i) {
-            encodedLocalCerts[i] = localCertificates[i].getEncoded();
-        }
-
-        // Convert the key so we can access a native reference.
-        final OpenSSLKey key;
+        // The chain and key are encoded and converted once per alias, not once per connection.
+        final LocalCredentialCache.Credentials credentials;
         try {
-            key = OpenSSLKey.fromPrivateKeyForTLSStackOnly(privateKey, publicKey);
+            credentials = parameters.getLocalCredentials(alias, localCertificates, privateKey);
         } catch (InvalidKeyException e) {
             throw new SSLException(e);
         }
 
         // Set the local certs and private key.
-        NativeCrypto.setLocalCertsAndPrivateKey(ssl, this, encodedLocalCerts, key.getNativeRef());
+        NativeCrypto.setLocalCertChainAndPrivateKey(
+                ssl, this, credentials.nativeChain, credentials.key.getNativeRef());
     }
 
     String getVersion() {
@@ -339,72 +336,29 @@ final class NativeSsl {
         return toBoringSslGroups(namedGroups);
     }
 
-    private static void setDefaultNamedGroups(long ssl, NativeSsl sslHolder) {
-        // When the groups list is empty, the default named groups are used.
-        NativeCrypto.SSL_set1_groups(ssl, sslHolder, new int[0]);
-    }
-
     void initialize(String hostname, OpenSSLKey channelIdPrivateKey) throws IOException {
         boolean enableSessionCreation = parameters.getEnableSessionCreation();
         if (!enableSessionCreation) {
             NativeCrypto.SSL_set_session_creation_enabled(ssl, this, false);
         }
 
-        // Allow servers to trigger renegotiation. Some inadvisable server
-        // configurations cause them to attempt to renegotiate during
-        // certain protocols.
-        NativeCrypto.SSL_accept_renegotiations(ssl, this);
-
-        if (isClient()) {
-            NativeCrypto.SSL_set_connect_state(ssl, this);
-
-            // Configure OCSP and CT extensions for client
-            NativeCrypto.SSL_enable_ocsp_stapling(ssl, this);
-            if (parameters.isCTVerificationEnabled(hostname)) {
-                NativeCrypto.SSL_enable_signed_cert_timestamps(ssl, this);
-            }
-        } else {
-            NativeCrypto.SSL_set_accept_state(ssl, this);
-
-            // Configure OCSP for server
-            if (parameters.getOCSPResponse() != null) {
-                NativeCrypto.SSL_enable_ocsp_stapling(ssl, this);
-            }
-        }
-
-        if (parameters.getEnabledProtocols().length == 0 && parameters.isEnabledProtocolsFiltered) {
+        if (parameters.enabledProtocols.length == 0 && parameters.isEnabledProtocolsFiltered) {
             throw new SSLHandshakeException(
                     "No enabled protocols; " + NativeCrypto.OBSOLETE_PROTOCOL_SSLV3 + ", "
                     + NativeCrypto.DEPRECATED_PROTOCOL_TLSV1 + " and "
                     + NativeCrypto.DEPRECATED_PROTOCOL_TLSV1_1
                     + " are no longer supported and were filtered from the list");
         }
-        NativeCrypto.setEnabledProtocols(ssl, this, parameters.enabledProtocols);
-        // We only set the cipher suites if we are not using SPAKE.
-        if (!parameters.isSpake()) {
-            NativeCrypto.setEnabledCipherSuites(ssl, this, parameters.enabledCipherSuites,
-                                                parameters.enabledProtocols);
-        }
-
-        String[] paramsNamedGroups = parameters.getNamedGroups();
-        // - If the named groups are null, we use the default groups.
-        // - If the named groups are not null, it overrides the default groups.
-        // - Unknown curves are ignored.
-        // See:
-        // https://docs.oracle.com/en/java/javase/25/docs/api/java.base/javax/net/ssl/SSLParameters.html#getNamedGroups()
-        if (paramsNamedGroups != null) {
-            NativeCrypto.SSL_set1_groups(ssl, this, toBoringSslGroups(paramsNamedGroups));
-        } else {
-            // Use default named group.
-            String namedGroupsProperty = System.getProperty("jdk.tls.namedGroups");
-            if (namedGroupsProperty == null || namedGroupsProperty.isEmpty()) {
-                // If the property is not set or empty, use the default named groups. See:
-                // https://docs.oracle.com/javase/8/docs/technotes/guides/security/jsse/JSSERefGuide.html
-                setDefaultNamedGroups(ssl, this);
-            } else {
-                int[] groups = parseNamedGroupsProperty(namedGroupsProperty);
-                NativeCrypto.SSL_set1_groups(ssl, this, groups);
-            }
+
+        // Everything which doesn't depend on the connection is compiled once per configuration
+        // and applied in a single call: accepting renegotiation, the connect or accept state,
+        // OCSP stapling, the protocol versions, cipher suites and named groups, the session
+        // ticket and server cipher preference options, and BEAST attack mitigation (1/n-1
+        // record splitting for CBC cipher suites with TLSv1 and SSLv3).
+        parameters.getSSLConfiguration(isClient()).apply(ssl, this);
+
+        if (isClient() && parameters.isCTVerificationEnabled(hostname)) {
+            NativeCrypto.SSL_enable_signed_cert_timestamps(ssl, this);
         }
 
         if (parameters.applicationProtocols.length > 0) {
@@ -418,8 +372,6 @@ final class NativeSsl {
         // setup server certificates and private keys.
         // clients will receive a call back to request certificates.
         if (!isClient()) {
-            NativeCrypto.SSL_set_options(ssl, this, SSL_OP_CIPHER_SERVER_PREFERENCE);
-
             if (parameters.sctExtension != null) {
                 NativeCrypto.SSL_set_signed_cert_timestamp_list(ssl, this, parameters.sctExtension);
             }
@@ -431,21 +383,15 @@ final class NativeSsl {
 
         enablePSKKeyManagerIfRequested();
 
-        if (parameters.useSessionTickets) {
+        if (!isClient()
+                && parameters.getServerSessionContext().applySessionTicketKeys(sessionContext)) {
             NativeCrypto.SSL_clear_options(ssl, this, SSL_OP_NO_TICKET);
-        } else {
-            NativeCrypto.SSL_set_options(
-                    ssl, this, NativeCrypto.SSL_get_options(ssl, this) | SSL_OP_NO_TICKET);
         }
 
         if (parameters.getUseSni() && AddressUtils.isValidSniHostname(hostname)) {
             NativeCrypto.SSL_set_tlsext_host_name(ssl, this, hostname);
         }
 
-        // BEAST attack mitigation (1/n-1 record splitting for CBC cipher suites
-        // with TLSv1 and SSLv3).
-        NativeCrypto.SSL_set_mode(ssl, this, SSL_MODE_CBC_RECORD_SPLITTING);
-
         if (!parameters.isSpake()) {
             setCertificateValidation();
         }
@@ -607,13 +553,14 @@ final class NativeSsl {
                 X509TrustManager trustManager = parameters.getX509TrustManager();
                 X509Certificate[] issuers = trustManager.getAcceptedIssuers();
                 if (issuers != null && issuers.length != 0) {
-                    byte[][] issuersBytes;
+                    // The names are only encoded again if the accepted issuers change.
+                    NativeRef.CRYPTO_BUFFER_STACK principals;
                     try {
-                        issuersBytes = SSLUtils.encodeSubjectX509Principals(issuers);
+                        principals = parameters.getClientCAList(issuers);
                     } catch (CertificateEncodingException e) {
                         throw new SSLException("Problem encoding principals", e);
                     }
-                    NativeCrypto.SSL_set_client_CA_list(ssl, this, issuersBytes);
+                    NativeCrypto.SSL_set_client_CA_stack(ssl, this, principals);
                 }
             }
         }
@@ -772,6 +719,70 @@ final class NativeSsl {
             }
         }
 
+        int writeArray(byte[] source, int offset, int length) throws IOException {
+            lock.readLock().lock();
+            try {
+                if (isClosed()) {
+                    throw new SSLException("Connection closed");
+                }
+                return NativeCrypto.ENGINE_SSL_write_BIO_heap(
+                        ssl, NativeSsl.this, bio, source, offset, length);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int readArray(byte[] dest, int offset, int length) throws IOException {
+            lock.readLock().lock();
+            try {
+                if (isClosed()) {
+                    throw new SSLException("Connection closed");
+                }
+                return NativeCrypto.ENGINE_SSL_read_BIO_heap(
+                        ssl, NativeSsl.this, bio, dest, offset, length);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Seals as many records as fit into the destination from the given plaintext, returning
+         * the consumed and produced byte counts packed as described in
+         * {@link NativeCrypto#ENGINE_SSL_write_BIO_batch_direct}.
+         */
+        long writeRecordsDirect(long srcAddress, int srcLength, long dstAddress, int dstLength)
+                throws IOException {
+            lock.readLock().lock();
+            try {
+                if (isClosed()) {
+                    throw new SSLException("Connection closed");
+                }
+                return NativeCrypto.ENGINE_SSL_write_BIO_batch_direct(ssl, NativeSsl.this, bio,
+                        srcAddress, srcLength, dstAddress, dstLength, handshakeCallbacks);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Decrypts the complete records at the source address into the destination addresses,
+         * returning the consumed and produced byte counts packed as described in
+         * {@link NativeCrypto#ENGINE_SSL_read_BIO_batch_direct}.
+         */
+        long readRecordsDirect(long srcAddress, int srcLength, long[] dstAddresses,
+                               int[] dstLengths) throws IOException {
+            lock.readLock().lock();
+            try {
+                if (isClosed()) {
+                    throw new SSLException("Connection closed");
+                }
+                return NativeCrypto.ENGINE_SSL_read_BIO_batch_direct(ssl, NativeSsl.this, bio,
+                        srcAddress, srcLength, dstAddresses, dstLengths, handshakeCallbacks);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
         int readDirectByteBuffer(long destAddress, int destLength) throws IOException {
             lock.readLock().lock();
             try {
@@ -163,6 +163,12 @@ abstract class NativeSslSession {
 
     abstract boolean isValid();
 
+    /**
+     * Returns the time, in {@link System#currentTimeMillis()} time, at which this session stops
+     * being valid under the current timeouts.
+     */
+    abstract long getExpirationTimeMillis();
+
     /**
      * Returns whether this session should only ever be used for resumption once.
      */
@@ -250,6 +256,11 @@ abstract class NativeSslSession {
 
         @Override
         boolean isValid() {
+            return System.currentTimeMillis() < getExpirationTimeMillis();
+        }
+
+        @Override
+        long getExpirationTimeMillis() {
             long creationTimeMillis = getCreationTime();
             // Use the minimum of the timeout from the context and the session.
             long timeoutMillis =
@@ -257,7 +268,7 @@ abstract class NativeSslSession {
                              Math.min(context.getSessionTimeout(),
                                       NativeCrypto.SSL_SESSION_get_timeout(ref.address)))
                     * 1000;
-            return (System.currentTimeMillis() - timeoutMillis) < creationTimeMillis;
+            return creationTimeMillis + timeoutMillis;
         }
 
         @Override
@@ -61,9 +61,26 @@ import javax.security.auth.x500.X500Principal;
 public final class OpenSSLX509Certificate extends X509Certificate {
     private static final long serialVersionUID = 1992239142393372128L;
 
+    /**
+     * Signatures verified by {@link #verify(PublicKey)}, shared by all certificates since chain
+     * building and validation verify the same signatures on different instances.
+     */
+    private static final SignatureVerificationCache VERIFIED_SIGNATURES =
+            new SignatureVerificationCache(4096);
+
     private transient volatile long mContext;
     private transient Integer mHashCode;
 
+    // Values which are derived from the immutable native certificate, and which TLS and chain
+    // validation ask for repeatedly, are computed on first use and kept. Racing threads may
+    // each compute them, but always to equal values.
+    private transient volatile byte[] mEncoded;
+    private transient volatile X500Principal mIssuer;
+    private transient volatile X500Principal mSubject;
+    private transient volatile PublicKey mPublicKey;
+    private transient volatile String[] mCriticalExtensionOids;
+    private transient volatile String[] mNonCriticalExtensionOids;
+
     private final Date notBefore;
     private final Date notAfter;
 
@@ -191,19 +208,14 @@ public final class OpenSSLX509Certificate extends X509Certificate {
 
     @Override
     public Set<String> getCriticalExtensionOIDs() {
-        String[] critOids = NativeCrypto.get_X509_ext_oids(mContext, this,
-                                                           NativeCrypto.EXTENSION_TYPE_CRITICAL);
+        String[] critOids = criticalExtensionOids();
 
         /*
          * This API has a special case that if there are no extensions, we
          * should return null. So if we have no critical extensions, we'll check
          * non-critical extensions.
          */
-        if ((critOids.length == 0)
-            && (NativeCrypto
-                        .get_X509_ext_oids(mContext, this, NativeCrypto.EXTENSION_TYPE_NON_CRITICAL)
-                        .length
-                == 0)) {
+        if ((critOids.length == 0) && (nonCriticalExtensionOids().length == 0)) {
             return null;
         }
 
@@ -217,24 +229,40 @@ public final class OpenSSLX509Certificate extends X509Certificate {
 
     @Override
     public Set<String> getNonCriticalExtensionOIDs() {
-        String[] nonCritOids = NativeCrypto.get_X509_ext_oids(
-                mContext, this, NativeCrypto.EXTENSION_TYPE_NON_CRITICAL);
+        String[] nonCritOids = nonCriticalExtensionOids();
 
         /*
          * This API has a special case that if there are no extensions, we
          * should return null. So if we have no non-critical extensions, we'll
          * check critical extensions.
          */
-        if ((nonCritOids.length == 0)
-            && (NativeCrypto.get_X509_ext_oids(mContext, this, NativeCrypto.EXTENSION_TYPE_CRITICAL)
-                        .length
-                == 0)) {
+        if ((nonCritOids.length == 0) && (criticalExtensionOids().length == 0)) {
             return null;
         }
 
         return new HashSet<>(Arrays.asList(nonCritOids));
     }
 
+    private String[] criticalExtensionOids() {
+        String[] oids = mCriticalExtensionOids;
+        if (oids == null) {
+            oids = NativeCrypto.get_X509_ext_oids(
+                    mContext, this, NativeCrypto.EXTENSION_TYPE_CRITICAL);
+            mCriticalExtensionOids = oids;
+        }
+        return oids;
+    }
+
+    private String[] nonCriticalExtensionOids() {
+        String[] oids = mNonCriticalExtensionOids;
+        if (oids == null) {
+            oids = NativeCrypto.get_X509_ext_oids(
+                    mContext, this, NativeCrypto.EXTENSION_TYPE_NON_CRITICAL);
+            mNonCriticalExtensionOids = oids;
+        }
+        return oids;
+    }
+
     @Override
     public boolean hasUnsupportedCriticalExtension() {
         return (NativeCrypto.get_X509_ex_flags(mContext, this) & NativeConstants.EXFLAG_CRITICAL)
@@ -373,7 +401,12 @@ public final class OpenSSLX509Certificate extends X509Certificate {
 
     @Override
     public byte[] getEncoded() throws CertificateEncodingException {
-        return NativeCrypto.i2d_X509(mContext, this);
+        byte[] encoded = mEncoded;
+        if (encoded == null) {
+            encoded = NativeCrypto.i2d_X509(mContext, this);
+            mEncoded = encoded;
+        }
+        return encoded.clone();
     }
 
     private void verifyOpenSSL(OpenSSLKey pkey) throws CertificateException, SignatureException {
@@ -407,13 +440,21 @@ public final class OpenSSLX509Certificate extends X509Certificate {
     public void verify(PublicKey key)
             throws CertificateException, NoSuchAlgorithmException, InvalidKeyException,
                    NoSuchProviderException, SignatureException {
+        SignatureVerificationCache.Key cacheKey = SignatureVerificationCache.key(this, key);
+        if (cacheKey != null && VERIFIED_SIGNATURES.contains(cacheKey)) {
+            return;
+        }
+
         if (key instanceof OpenSSLKeyHolder) {
             OpenSSLKey pkey = ((OpenSSLKeyHolder) key).getOpenSSLKey();
             verifyOpenSSL(pkey);
-            return;
+        } else {
+            verifyInternal(key, null);
         }
 
-        verifyInternal(key, null);
+        if (cacheKey != null) {
+            VERIFIED_SIGNATURES.add(cacheKey);
+        }
     }
 
     @Override
@@ -463,6 +504,15 @@ public final class OpenSSLX509Certificate extends X509Certificate {
 
     @Override
     public PublicKey getPublicKey() {
+        PublicKey publicKey = mPublicKey;
+        if (publicKey == null) {
+            publicKey = decodePublicKey();
+            mPublicKey = publicKey;
+        }
+        return publicKey;
+    }
+
+    private PublicKey decodePublicKey() {
         /* First try to generate the key from supported OpenSSL key types. */
         try {
             OpenSSLKey pkey = new OpenSSLKey(NativeCrypto.X509_get_pubkey(mContext, this));
@@ -490,14 +540,22 @@ public final class OpenSSLX509Certificate extends X509Certificate {
 
     @Override
     public X500Principal getIssuerX500Principal() {
-        final byte[] issuer = NativeCrypto.X509_get_issuer_name(mContext, this);
-        return new X500Principal(issuer);
+        X500Principal issuer = mIssuer;
+        if (issuer == null) {
+            issuer = new X500Principal(NativeCrypto.X509_get_issuer_name(mContext, this));
+            mIssuer = issuer;
+        }
+        return issuer;
     }
 
     @Override
     public X500Principal getSubjectX500Principal() {
-        final byte[] subject = NativeCrypto.X509_get_subject_name(mContext, this);
-        return new X500Principal(subject);
+        X500Principal subject = mSubject;
+        if (subject == null) {
+            subject = new X500Principal(NativeCrypto.X509_get_subject_name(mContext, this));
+            mSubject = subject;
+        }
+        return subject;
     }
 
     @Override
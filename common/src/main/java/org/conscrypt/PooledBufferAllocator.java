@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link BufferAllocator} which recycles buffers rather than allocating a new one for each
+ * request.
+ *
+ * <p>Requests are rounded up to a power-of-two size class between {@link #MIN_SIZE_CLASS} and
+ * {@link #MAX_SIZE_CLASS} bytes. Released buffers are first kept in a small per-thread cache and
+ * then in a bounded arena shared between all threads, with separate arenas for direct and heap
+ * buffers. Requests larger than the largest size class are not pooled.
+ *
+ * <p>The {@link ByteBuffer} returned by {@link AllocatedBuffer#nioBuffer()} has its position set
+ * to zero and its limit set to the requested capacity, but its {@link ByteBuffer#capacity()} may
+ * be larger. Buffers must not be used after they have been released.
+ */
+final class PooledBufferAllocator extends BufferAllocator {
+    static final int MIN_SIZE_CLASS = 512;
+    static final int MAX_SIZE_CLASS = 64 * 1024;
+
+    private static final int MIN_SIZE_CLASS_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE_CLASS);
+    private static final int NUM_SIZE_CLASSES =
+            Integer.numberOfTrailingZeros(MAX_SIZE_CLASS) - MIN_SIZE_CLASS_SHIFT + 1;
+
+    private static final int DEFAULT_ARENA_CAPACITY = 256;
+    private static final int DEFAULT_THREAD_CACHE_CAPACITY = 8;
+
+    private static final PooledBufferAllocator DEFAULT =
+            new PooledBufferAllocator(DEFAULT_ARENA_CAPACITY, DEFAULT_THREAD_CACHE_CAPACITY);
+
+    private final Arena directArena;
+    private final Arena heapArena;
+    private final int threadCacheCapacity;
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            return new ThreadCache(threadCacheCapacity);
+        }
+    };
+
+    /**
+     * Creates a new allocator.
+     *
+     * @param arenaCapacity the maximum number of released buffers retained by the shared arena
+     *         for each size class and buffer type
+     * @param threadCacheCapacity the maximum number of released buffers retained by each thread
+     *         for each size class and buffer type
+     */
+    PooledBufferAllocator(int arenaCapacity, int threadCacheCapacity) {
+        checkArgument(arenaCapacity >= 0, "arenaCapacity must be >= 0");
+        checkArgument(threadCacheCapacity >= 0, "threadCacheCapacity must be >= 0");
+        this.directArena = new Arena(arenaCapacity);
+        this.heapArena = new Arena(arenaCapacity);
+        this.threadCacheCapacity = threadCacheCapacity;
+    }
+
+    /**
+     * Returns the shared allocator instance used by {@link BufferAllocator#pooled()}.
+     */
+    static PooledBufferAllocator getDefault() {
+        return DEFAULT;
+    }
+
+    @Override
+    public AllocatedBuffer allocateDirectBuffer(int capacity) {
+        return allocate(capacity, true);
+    }
+
+    @Override
+    public AllocatedBuffer allocateHeapBuffer(int capacity) {
+        return allocate(capacity, false);
+    }
+
+    private AllocatedBuffer allocate(int capacity, boolean direct) {
+        checkArgument(capacity >= 0, "capacity must be >= 0");
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass < 0) {
+            // Too large to pool.
+            return AllocatedBuffer.wrap(newBuffer(capacity, direct));
+        }
+
+        ByteBuffer buffer = threadCache.get().poll(sizeClass, direct);
+        if (buffer == null) {
+            buffer = arena(direct).poll(sizeClass);
+            if (buffer == null) {
+                buffer = newBuffer(sizeClassCapacity(sizeClass), direct);
+            }
+        }
+        buffer.clear();
+        buffer.limit(capacity);
+        return new PooledBuffer(buffer, sizeClass, direct);
+    }
+
+    private void recycle(ByteBuffer buffer, int sizeClass, boolean direct) {
+        if (!threadCache.get().offer(buffer, sizeClass, direct)) {
+            arena(direct).offer(buffer, sizeClass);
+        }
+    }
+
+    private Arena arena(boolean direct) {
+        return direct ? directArena : heapArena;
+    }
+
+    private static ByteBuffer newBuffer(int capacity, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Returns the index of the smallest size class which can hold {@code capacity} bytes, or
+     * {@code -1} if {@code capacity} is larger than {@link #MAX_SIZE_CLASS}.
+     */
+    static int sizeClass(int capacity) {
+        if (capacity > MAX_SIZE_CLASS) {
+            return -1;
+        }
+        if (capacity <= MIN_SIZE_CLASS) {
+            return 0;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        return shift - MIN_SIZE_CLASS_SHIFT;
+    }
+
+    static int sizeClassCapacity(int sizeClass) {
+        return MIN_SIZE_CLASS << sizeClass;
+    }
+
+    /**
+     * A buffer handed out by this allocator, which is returned to the pool when released.
+     */
+    private final class PooledBuffer extends AllocatedBuffer {
+        private final ByteBuffer buffer;
+        private final int sizeClass;
+        private final boolean direct;
+        private boolean released;
+
+        PooledBuffer(ByteBuffer buffer, int sizeClass, boolean direct) {
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+            this.direct = direct;
+        }
+
+        @Override
+        public ByteBuffer nioBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public AllocatedBuffer release() {
+            if (released) {
+                throw new IllegalStateException("Buffer has already been released");
+            }
+            released = true;
+            recycle(buffer, sizeClass, direct);
+            return this;
+        }
+    }
+
+    /**
+     * Bounded pools of free buffers for each size class, shared between all threads.
+     */
+    private static final class Arena {
+        private final int capacity;
+        private final List<Queue<ByteBuffer>> queues;
+        private final AtomicInteger[] sizes;
+
+        Arena(int capacity) {
+            this.capacity = capacity;
+            this.queues = new ArrayList<Queue<ByteBuffer>>(NUM_SIZE_CLASSES);
+            this.sizes = new AtomicInteger[NUM_SIZE_CLASSES];
+            for (int i = 0; i < NUM_SIZE_CLASSES; i++) {
+                queues.add(new ConcurrentLinkedQueue<ByteBuffer>());
+                sizes[i] = new AtomicInteger();
+            }
+        }
+
+        ByteBuffer poll(int sizeClass) {
+            ByteBuffer buffer = queues.get(sizeClass).poll();
+            if (buffer != null) {
+                sizes[sizeClass].decrementAndGet();
+            }
+            return buffer;
+        }
+
+        void offer(ByteBuffer buffer, int sizeClass) {
+            AtomicInteger size = sizes[sizeClass];
+            if (size.incrementAndGet() > capacity) {
+                // The arena is full, so leave this buffer to the garbage collector.
+                size.decrementAndGet();
+                return;
+            }
+            queues.get(sizeClass).offer(buffer);
+        }
+    }
+
+    /**
+     * Small per-thread stacks of free buffers, which avoid contention on the shared arenas for
+     * threads that repeatedly allocate and release buffers of the same size.
+     */
+    private static final class ThreadCache {
+        private final ByteBuffer[][] direct;
+        private final ByteBuffer[][] heap;
+        private final int[] directCount = new int[NUM_SIZE_CLASSES];
+        private final int[] heapCount = new int[NUM_SIZE_CLASSES];
+
+        ThreadCache(int capacity) {
+            direct = new ByteBuffer[NUM_SIZE_CLASSES][capacity];
+            heap = new ByteBuffer[NUM_SIZE_CLASSES][capacity];
+        }
+
+        ByteBuffer poll(int sizeClass, boolean isDirect) {
+            ByteBuffer[] stack = isDirect ? direct[sizeClass] : heap[sizeClass];
+            int[] counts = isDirect ? directCount : heapCount;
+            int count = counts[sizeClass];
+            if (count == 0) {
+                return null;
+            }
+            counts[sizeClass] = --count;
+            ByteBuffer buffer = stack[count];
+            stack[count] = null;
+            return buffer;
+        }
+
+        boolean offer(ByteBuffer buffer, int sizeClass, boolean isDirect) {
+            ByteBuffer[] stack = isDirect ? direct[sizeClass] : heap[sizeClass];
+            int[] counts = isDirect ? directCount : heapCount;
+            int count = counts[sizeClass];
+            if (count == stack.length) {
+                return false;
+            }
+            stack[count] = buffer;
+            counts[sizeClass] = count + 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.NativeConstants.SSL_MODE_CBC_RECORD_SPLITTING;
+import static org.conscrypt.NativeConstants.SSL_MODE_SEND_FALLBACK_SCSV;
+import static org.conscrypt.NativeConstants.SSL_OP_CIPHER_SERVER_PREFERENCE;
+import static org.conscrypt.NativeConstants.SSL_OP_NO_TICKET;
+
+import java.util.Arrays;
+
+/**
+ * The parts of an {@link SSLParametersImpl} configuration which don't depend on the connection,
+ * compiled into the arguments of {@link NativeCrypto#SSL_configure}.
+ *
+ * <p>Validating the protocols and cipher suites, building the cipher string and resolving the
+ * named groups is done once per configuration rather than once per connection, and the result
+ * is applied to each new {@code SSL} with a single native call.
+ */
+final class SSLConfiguration {
+    private static final int[] DEFAULT_GROUPS = new int[0];
+
+    // The inputs this configuration was compiled from.
+    private final boolean client;
+    private final String[] enabledProtocols;
+    private final String[] enabledCipherSuites;
+    private final String[] namedGroups;
+    private final String namedGroupsProperty;
+    private final boolean spake;
+    private final boolean useSessionTickets;
+    private final boolean hasOcspResponse;
+
+    private final int minVersion;
+    private final int maxVersion;
+    private final String cipherString;
+    private final int[] groups;
+    private final long setOptions;
+    private final long clearOptions;
+    private final long mode;
+
+    private SSLConfiguration(SSLParametersImpl parameters, boolean client,
+                             String namedGroupsProperty) {
+        this.client = client;
+        this.enabledProtocols = parameters.enabledProtocols;
+        this.enabledCipherSuites = parameters.enabledCipherSuites;
+        this.namedGroups = parameters.namedGroups;
+        this.namedGroupsProperty = namedGroupsProperty;
+        this.spake = parameters.isSpake();
+        this.useSessionTickets = parameters.useSessionTickets;
+        this.hasOcspResponse = parameters.ocspResponse != null;
+
+        int[] versions = NativeCrypto.getProtocolVersions(enabledProtocols);
+        this.minVersion = versions[0];
+        this.maxVersion = versions[1];
+
+        long mode = SSL_MODE_CBC_RECORD_SPLITTING;
+        if (spake) {
+            // The cipher suites are left as they are when using SPAKE.
+            this.cipherString = null;
+        } else {
+            this.cipherString = NativeCrypto.getCipherString(enabledCipherSuites, enabledProtocols);
+            if (NativeCrypto.sendsFallbackScsvUsingMode(enabledCipherSuites, enabledProtocols)) {
+                mode |= SSL_MODE_SEND_FALLBACK_SCSV;
+            }
+        }
+        this.mode = mode;
+
+        // - If the named groups are null, we use the default groups.
+        // - If the named groups are not null, it overrides the default groups.
+        // - Unknown curves are ignored.
+        // See:
+        // https://docs.oracle.com/en/java/javase/25/docs/api/java.base/javax/net/ssl/SSLParameters.html#getNamedGroups()
+        if (namedGroups != null) {
+            this.groups = NativeSsl.toBoringSslGroups(namedGroups);
+        } else if (namedGroupsProperty == null || namedGroupsProperty.isEmpty()) {
+            // If the property is not set or empty, use the default named groups. See:
+            // https://docs.oracle.com/javase/8/docs/technotes/guides/security/jsse/JSSERefGuide.html
+            this.groups = DEFAULT_GROUPS;
+        } else {
+            this.groups = NativeSsl.parseNamedGroupsProperty(namedGroupsProperty);
+        }
+
+        long setOptions = client ? 0 : SSL_OP_CIPHER_SERVER_PREFERENCE;
+        if (useSessionTickets) {
+            this.clearOptions = SSL_OP_NO_TICKET;
+        } else {
+            setOptions |= SSL_OP_NO_TICKET;
+            this.clearOptions = 0;
+        }
+        this.setOptions = setOptions;
+    }
+
+    /**
+     * Returns the configuration for the given parameters, reusing {@code cached} if it was
+     * compiled from an equivalent configuration.
+     */
+    static SSLConfiguration forParameters(
+            SSLConfiguration cached, SSLParametersImpl parameters, boolean client) {
+        String namedGroupsProperty =
+                parameters.namedGroups == null ? System.getProperty("jdk.tls.namedGroups") : null;
+        if (cached != null && cached.matches(parameters, client, namedGroupsProperty)) {
+            return cached;
+        }
+        return new SSLConfiguration(parameters, client, namedGroupsProperty);
+    }
+
+    private boolean matches(
+            SSLParametersImpl parameters, boolean client, String namedGroupsProperty) {
+        return this.client == client && spake == parameters.isSpake()
+                && useSessionTickets == parameters.useSessionTickets
+                && hasOcspResponse == (parameters.ocspResponse != null)
+                && sameContents(enabledProtocols, parameters.enabledProtocols)
+                && sameContents(enabledCipherSuites, parameters.enabledCipherSuites)
+                && sameContents(namedGroups, parameters.namedGroups)
+                && (this.namedGroupsProperty == null
+                                ? namedGroupsProperty == null
+                                : this.namedGroupsProperty.equals(namedGroupsProperty));
+    }
+
+    private static boolean sameContents(String[] a, String[] b) {
+        // The arrays are replaced rather than modified, so they are usually identical.
+        return a == b || Arrays.equals(a, b);
+    }
+
+    /**
+     * Applies this configuration to a newly created {@code SSL}.
+     */
+    void apply(long ssl, NativeSsl sslHolder) {
+        // OCSP stapling is always requested by clients, and offered by servers which have a
+        // response to staple.
+        NativeCrypto.SSL_configure(ssl, sslHolder, client, minVersion, maxVersion, cipherString,
+                groups, setOptions, clearOptions, mode, client || hasOcspResponse);
+    }
+
+    long getSetOptions() {
+        return setOptions;
+    }
+
+    long getClearOptions() {
+        return clearOptions;
+    }
+
+    long getMode() {
+        return mode;
+    }
+
+    String getCipherString() {
+        return cipherString;
+    }
+
+    int[] getGroups() {
+        return groups.clone();
+    }
+}
@@ -18,15 +18,20 @@
 package org.conscrypt;
 
 import java.security.AlgorithmConstraints;
+import java.security.InvalidKeyException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
 import java.security.SecureRandom;
 import java.security.UnrecoverableKeyException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -81,6 +86,17 @@ final class SSLParametersImpl implements Cloneable {
     // The TLS 1.0-1.2 cipher suites enabled for the SSL connection.  TLS 1.3 cipher suites
     // cannot be customized, so for simplicity this field never contains any TLS 1.3 suites.
     String[] enabledCipherSuites;
+    // Lookup sets for the enabled protocols and cipher suites above, used to check whether a
+    // cached session can be resumed.  Recomputed whenever either array is replaced.
+    private volatile SessionCompatibility sessionCompatibility;
+    // The most recently compiled native configurations for client and server mode, shared by
+    // the clones made for each connection.
+    private final CompiledConfigurations compiledConfigurations;
+    // Native forms of the key manager's certificate chains and private keys, by alias.
+    private final LocalCredentialCache localCredentialCache;
+    // Encoded subject names of the trust manager's accepted issuers, sent to request client
+    // certificates.
+    private final ClientCAListCache clientCAListCache;
 
     String[] namedGroups;
 
@@ -131,6 +147,7 @@ final class SSLParametersImpl implements Cloneable {
             throws KeyManagementException {
         this.serverSessionContext = serverSessionContext;
         this.clientSessionContext = clientSessionContext;
+        this.compiledConfigurations = new CompiledConfigurations();
         // initialize key managers
         if (kms == null) {
             x509KeyManager = getDefaultX509KeyManager();
@@ -167,6 +184,8 @@ final class SSLParametersImpl implements Cloneable {
             throw new KeyManagementException(
                     "Spake2PlusTrustManager and Spake2PlusKeyManager should be set together");
         }
+        localCredentialCache = new LocalCredentialCache();
+        clientCAListCache = new ClientCAListCache();
 
         // initialize the list of cipher suites and protocols enabled by default
         if (isSpake()) {
@@ -222,6 +241,17 @@ final class SSLParametersImpl implements Cloneable {
         this.enabledCipherSuites = (sslParams.enabledCipherSuites == null)
                 ? null
                 : sslParams.enabledCipherSuites.clone();
+        // Share the lookup sets, which are computed once per context rather than per connection.
+        this.sessionCompatibility = sslParams.getSessionCompatibility().withArrays(
+                enabledProtocols, enabledCipherSuites);
+        this.compiledConfigurations = new CompiledConfigurations();
+        // The cached credentials are only valid for the key manager they came from.
+        this.localCredentialCache = (x509KeyManager == sslParams.x509KeyManager)
+                ? sslParams.localCredentialCache
+                : new LocalCredentialCache();
+        this.clientCAListCache = (x509TrustManager == sslParams.x509TrustManager)
+                ? sslParams.clientCAListCache
+                : new ClientCAListCache();
         this.client_mode = sslParams.client_mode;
         this.need_client_auth = sslParams.need_client_auth;
         this.want_client_auth = sslParams.want_client_auth;
@@ -335,6 +365,54 @@ final class SSLParametersImpl implements Cloneable {
                 cipherSuites, NativeCrypto.SUPPORTED_TLS_1_3_CIPHER_SUITES_SET));
     }
 
+    /**
+     * Returns whether a session negotiated with the given protocol and cipher suite may be
+     * resumed with these parameters.
+     */
+    boolean isSessionCompatible(String protocol, String cipherSuite) {
+        SessionCompatibility compatibility = getSessionCompatibility();
+        return compatibility.protocols.contains(protocol)
+                && compatibility.cipherSuites.contains(cipherSuite);
+    }
+
+    private SessionCompatibility getSessionCompatibility() {
+        String[] protocols = enabledProtocols;
+        String[] cipherSuites = enabledCipherSuites;
+        SessionCompatibility compatibility = sessionCompatibility;
+        if (compatibility == null || compatibility.enabledProtocols != protocols
+                || compatibility.enabledCipherSuites != cipherSuites) {
+            compatibility = new SessionCompatibility(protocols, cipherSuites);
+            sessionCompatibility = compatibility;
+        }
+        return compatibility;
+    }
+
+    /**
+     * Returns the native form of the given certificate chain and private key, which the
+     * X.509 key manager returned for {@code alias}.
+     */
+    LocalCredentialCache.Credentials getLocalCredentials(String alias, X509Certificate[] chain,
+            PrivateKey privateKey) throws CertificateEncodingException, InvalidKeyException {
+        return localCredentialCache.get(alias, chain, privateKey);
+    }
+
+    /**
+     * Returns the native list of subject names of {@code issuers}, which the X.509 trust
+     * manager returned as its accepted issuers.
+     */
+    NativeRef.CRYPTO_BUFFER_STACK getClientCAList(X509Certificate[] issuers)
+            throws CertificateEncodingException {
+        return clientCAListCache.get(issuers);
+    }
+
+    /**
+     * Returns the connection-independent native configuration for these parameters in the given
+     * mode, compiling it only if it has changed since the last connection.
+     */
+    SSLConfiguration getSSLConfiguration(boolean client) {
+        return compiledConfigurations.get(this, client);
+    }
+
     /*
      * Returns the set of enabled protocols.
      */
@@ -831,4 +909,70 @@ final class SSLParametersImpl implements Cloneable {
     boolean isSpake() {
         return spake2PlusKeyManager != null;
     }
+
+    /**
+     * The most recently compiled client and server mode {@link SSLConfiguration}s, which are
+     * reused by new connections until these parameters change.
+     */
+    private static final class CompiledConfigurations {
+        private volatile SSLConfiguration client;
+        private volatile SSLConfiguration server;
+
+        SSLConfiguration get(SSLParametersImpl parameters, boolean clientMode) {
+            SSLConfiguration cached = clientMode ? client : server;
+            SSLConfiguration configuration =
+                    SSLConfiguration.forParameters(cached, parameters, clientMode);
+            if (configuration != cached) {
+                if (clientMode) {
+                    client = configuration;
+                } else {
+                    server = configuration;
+                }
+            }
+            return configuration;
+        }
+    }
+
+    /**
+     * The enabled protocols and cipher suites as sets, along with the arrays they were computed
+     * from.
+     */
+    private static final class SessionCompatibility {
+        final String[] enabledProtocols;
+        final String[] enabledCipherSuites;
+        final Set<String> protocols;
+        final Set<String> cipherSuites;
+
+        SessionCompatibility(String[] enabledProtocols, String[] enabledCipherSuites) {
+            this.enabledProtocols = enabledProtocols;
+            this.enabledCipherSuites = enabledCipherSuites;
+            this.protocols = new HashSet<String>();
+            this.cipherSuites = new HashSet<String>();
+            if (enabledProtocols != null) {
+                protocols.addAll(Arrays.asList(enabledProtocols));
+            }
+            if (enabledCipherSuites != null) {
+                cipherSuites.addAll(Arrays.asList(enabledCipherSuites));
+            }
+            if (protocols.contains(NativeCrypto.SUPPORTED_PROTOCOL_TLSV1_3)) {
+                cipherSuites.addAll(NativeCrypto.SUPPORTED_TLS_1_3_CIPHER_SUITES_SET);
+            }
+        }
+
+        private SessionCompatibility(String[] enabledProtocols, String[] enabledCipherSuites,
+                                     Set<String> protocols, Set<String> cipherSuites) {
+            this.enabledProtocols = enabledProtocols;
+            this.enabledCipherSuites = enabledCipherSuites;
+            this.protocols = protocols;
+            this.cipherSuites = cipherSuites;
+        }
+
+        /**
+         * Returns the same sets for copies of the arrays they were computed from.
+         */
+        SessionCompatibility withArrays(String[] enabledProtocols, String[] enabledCipherSuites) {
+            return new SessionCompatibility(
+                    enabledProtocols, enabledCipherSuites, protocols, cipherSuites);
+        }
+    }
 }
@@ -177,13 +177,31 @@ final class SSLUtils {
     /** Key type: Elliptic Curve certificate. */
     private static final String KEY_TYPE_EC = "EC";
 
+    /**
+     * The maximum number of peer certificates kept decoded for use by later connections.
+     */
+    private static final int MAX_INTERNED_PEER_CERTIFICATES = 1024;
+
+    /** Peer certificates shared by all connections. */
+    private static final CertificateInterner PEER_CERTIFICATES =
+            new CertificateInterner(MAX_INTERNED_PEER_CERTIFICATES);
+
     static X509Certificate[] decodeX509CertificateChain(byte[][] certChain)
             throws java.security.cert.CertificateException {
-        CertificateFactory certificateFactory = getCertificateFactory();
+        CertificateFactory certificateFactory = null;
         int numCerts = certChain.length;
         X509Certificate[] decodedCerts = new X509Certificate[numCerts];
         for (int i = 0; i < numCerts; i++) {
-            decodedCerts[i] = decodeX509Certificate(certificateFactory, certChain[i]);
+            X509Certificate interned = PEER_CERTIFICATES.get(certChain[i]);
+            if (interned != null) {
+                decodedCerts[i] = interned;
+                continue;
+            }
+            if (certificateFactory == null) {
+                certificateFactory = getCertificateFactory();
+            }
+            X509Certificate decoded = decodeX509Certificate(certificateFactory, certChain[i]);
+            decodedCerts[i] = PEER_CERTIFICATES.intern(certChain[i], decoded);
         }
         return decodedCerts;
     }
@@ -526,8 +544,28 @@ final class SSLUtils {
         return getEncryptedPacketLength(tmp);
     }
 
-    private static int getEncryptedPacketLength(ByteBuffer buffer) {
+    /**
+     * Returns the number of bytes from the current position of {@code buffer} which make up
+     * complete TLS records. Parsing stops at the first incomplete or malformed record.
+     */
+    static int getCompleteRecordsLength(ByteBuffer buffer) {
         int pos = buffer.position();
+        int limit = buffer.limit();
+        while (limit - pos >= SSL3_RT_HEADER_LENGTH) {
+            int packetLength = getEncryptedPacketLength(buffer, pos);
+            if (packetLength < 0 || limit - pos < packetLength) {
+                break;
+            }
+            pos += packetLength;
+        }
+        return pos - buffer.position();
+    }
+
+    private static int getEncryptedPacketLength(ByteBuffer buffer) {
+        return getEncryptedPacketLength(buffer, buffer.position());
+    }
+
+    private static int getEncryptedPacketLength(ByteBuffer buffer, int pos) {
         // SSLv3 or TLS - Check ContentType
         switch (unsignedByte(buffer.get(pos))) {
             case SSL3_RT_CHANGE_CIPHER_SPEC:
@@ -24,7 +24,8 @@ import javax.net.ssl.SSLContext;
  */
 @Internal
 public final class ServerSessionContext extends AbstractSessionContext {
-    private SSLServerSessionCache persistentCache;
+    private volatile SSLServerSessionCache persistentCache;
+    private final SessionTicketKeys sessionTicketKeys = new SessionTicketKeys();
 
     ServerSessionContext() {
         super(100);
@@ -50,20 +51,76 @@ public final class ServerSessionContext extends AbstractSessionContext {
      * Conscrypt#setServerSessionCache(SSLContext, SSLServerSessionCache)}.
      */
     public void setPersistentCache(SSLServerSessionCache persistentCache) {
+        setPersistentCache(persistentCache, false);
+    }
+
+    /**
+     * Applications should not use this method. Instead use {@link
+     * Conscrypt#setServerSessionCache(SSLContext, SSLServerSessionCache, boolean)}.
+     */
+    public void setPersistentCache(SSLServerSessionCache persistentCache, boolean writeBehind) {
+        SSLServerSessionCache previous = this.persistentCache;
+        if (persistentCache != null && writeBehind) {
+            persistentCache = new WriteBehindServerSessionCache(
+                    persistentCache, WriteBehindServerSessionCache.DEFAULT_CAPACITY);
+        }
         this.persistentCache = persistentCache;
+        if (previous instanceof WriteBehindServerSessionCache) {
+            ((WriteBehindServerSessionCache) previous).shutdown();
+        }
+    }
+
+    /**
+     * Applications should not use this method. Instead use {@link
+     * Conscrypt#addServerSessionTicketKey(SSLContext, byte[], long)}.
+     */
+    public void addSessionTicketKey(byte[] key, long activationTimeMillis) {
+        sessionTicketKeys.add(key, activationTimeMillis);
+        updateSessionTicketKeys(sessionTicketKeys);
+    }
+
+    /**
+     * Applications should not use this method. Instead use {@link
+     * Conscrypt#setServerSessionTicketKeyOverlap(SSLContext, long)}.
+     */
+    public void setSessionTicketKeyOverlap(long overlapMillis) {
+        sessionTicketKeys.setOverlapMillis(overlapMillis);
+        updateSessionTicketKeys(sessionTicketKeys);
+    }
+
+    /**
+     * Applications should not use this method. Instead use {@link
+     * Conscrypt#clearServerSessionTicketKeys(SSLContext)}.
+     */
+    public void clearSessionTicketKeys() {
+        sessionTicketKeys.clear();
+        updateSessionTicketKeys(sessionTicketKeys);
+    }
+
+    /**
+     * Gives the SSL_CTX of {@code context}, which a server connection was created from, the
+     * session ticket keys in effect now, and returns whether stateless session tickets are
+     * configured. Without keys, the SSL_CTX goes back to BoringSSL's own ticket keys.
+     */
+    boolean applySessionTicketKeys(AbstractSessionContext context) {
+        return context.updateSessionTicketKeys(sessionTicketKeys);
     }
 
     @Override
     NativeSslSession getSessionFromPersistentCache(byte[] sessionId) {
+        SSLServerSessionCache persistentCache = this.persistentCache;
         if (persistentCache != null) {
+            long start = System.nanoTime();
             byte[] data = persistentCache.getSessionData(sessionId);
             if (data != null) {
                 NativeSslSession session = NativeSslSession.newInstance(this, data, null, -1);
                 if (session != null && session.isValid()) {
+                    counters.recordPersistentLookup(true, start);
                     cacheSession(session);
                     return session;
                 }
             }
+            counters.recordPersistentLookup(false, start);
         }
 
         return null;
@@ -71,7 +128,9 @@ public final class ServerSessionContext extends AbstractSessionContext {
 
     @Override
     void onBeforeAddSession(NativeSslSession session) {
-        // TODO: Do this in background thread.
+        // Serializing is cheap, and a write-behind cache defers the store itself to its own
+        // thread.
+        SSLServerSessionCache persistentCache = this.persistentCache;
         if (persistentCache != null) {
             byte[] data = session.toBytes();
             if (data != null) {
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The counters behind {@link SessionCacheStats}, updated by a session context as it is used.
+ */
+final class SessionCacheCounters {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong sizeEvictions = new AtomicLong();
+    private final AtomicLong timeoutEvictions = new AtomicLong();
+    private final AtomicLong singleUseEvictions = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong persistentMisses = new AtomicLong();
+    private final AtomicLong persistentLoadTimeNanos = new AtomicLong();
+
+    void recordLookup(boolean hit) {
+        (hit ? hits : misses).incrementAndGet();
+    }
+
+    void recordSizeEviction() {
+        sizeEvictions.incrementAndGet();
+    }
+
+    void recordTimeoutEviction() {
+        timeoutEvictions.incrementAndGet();
+    }
+
+    void recordSingleUseEviction() {
+        singleUseEvictions.incrementAndGet();
+    }
+
+    /**
+     * Records a lookup in the persistent cache which started at {@code startNanos}, in
+     * {@link System#nanoTime()} time.
+     */
+    void recordPersistentLookup(boolean hit, long startNanos) {
+        persistentLoadTimeNanos.addAndGet(System.nanoTime() - startNanos);
+        (hit ? persistentHits : persistentMisses).incrementAndGet();
+    }
+
+    SessionCacheStats snapshot(int size, int maximumSize) {
+        return new SessionCacheStats(hits.get(), misses.get(), sizeEvictions.get(),
+                timeoutEvictions.get(), singleUseEvictions.get(), persistentHits.get(),
+                persistentMisses.get(), persistentLoadTimeNanos.get(), size, maximumSize);
+    }
+}
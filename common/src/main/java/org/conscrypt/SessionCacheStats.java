@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+/**
+ * A snapshot of the statistics of a session cache, as returned by
+ * {@link Conscrypt#getSessionCacheStats(javax.net.ssl.SSLSessionContext)}. Counts are cumulative
+ * from the creation of the session context.
+ *
+ * <p>A lookup is a search for a session to resume: by host and port for clients, and by the
+ * session ID offered by the client for servers. A lookup which finds nothing in memory falls
+ * back to the persistent cache, if one is set, and counts as a hit if the session is found
+ * there.
+ */
+@ExperimentalApi
+public final class SessionCacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long sizeEvictionCount;
+    private final long timeoutEvictionCount;
+    private final long singleUseEvictionCount;
+    private final long persistentCacheHitCount;
+    private final long persistentCacheMissCount;
+    private final long persistentCacheLoadTimeNanos;
+    private final int size;
+    private final int maximumSize;
+
+    SessionCacheStats(long hitCount, long missCount, long sizeEvictionCount,
+            long timeoutEvictionCount, long singleUseEvictionCount, long persistentCacheHitCount,
+            long persistentCacheMissCount, long persistentCacheLoadTimeNanos, int size,
+            int maximumSize) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.sizeEvictionCount = sizeEvictionCount;
+        this.timeoutEvictionCount = timeoutEvictionCount;
+        this.singleUseEvictionCount = singleUseEvictionCount;
+        this.persistentCacheHitCount = persistentCacheHitCount;
+        this.persistentCacheMissCount = persistentCacheMissCount;
+        this.persistentCacheLoadTimeNanos = persistentCacheLoadTimeNanos;
+        this.size = size;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the number of lookups which found a session to resume.
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups which found no session to resume, and so led to a full
+     * handshake.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the fraction of lookups which found a session, or {@code 0} if there have been no
+     * lookups.
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Returns the number of sessions removed to keep the cache within its maximum size.
+     */
+    public long getSizeEvictionCount() {
+        return sizeEvictionCount;
+    }
+
+    /**
+     * Returns the number of sessions removed because they had expired.
+     */
+    public long getTimeoutEvictionCount() {
+        return timeoutEvictionCount;
+    }
+
+    /**
+     * Returns the number of single-use (TLS 1.3) sessions removed because they were used.
+     */
+    public long getSingleUseEvictionCount() {
+        return singleUseEvictionCount;
+    }
+
+    /**
+     * Returns the number of lookups which were satisfied by the persistent cache.
+     */
+    public long getPersistentCacheHitCount() {
+        return persistentCacheHitCount;
+    }
+
+    /**
+     * Returns the number of lookups which went to the persistent cache and found no usable
+     * session there.
+     */
+    public long getPersistentCacheMissCount() {
+        return persistentCacheMissCount;
+    }
+
+    /**
+     * Returns the total time spent loading sessions from the persistent cache, including
+     * unsuccessful lookups.
+     */
+    public long getPersistentCacheLoadTimeNanos() {
+        return persistentCacheLoadTimeNanos;
+    }
+
+    /**
+     * Returns the mean time of a persistent cache lookup, or {@code 0} if there have been none.
+     */
+    public long getAveragePersistentCacheLoadTimeNanos() {
+        long loads = persistentCacheHitCount + persistentCacheMissCount;
+        return loads == 0 ? 0 : persistentCacheLoadTimeNanos / loads;
+    }
+
+    /**
+     * Returns the number of sessions in the in-memory cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of sessions in the in-memory cache, or {@code 0} if it is
+     * unbounded.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionCacheStats{hits=" + hitCount + ", misses=" + missCount
+                + ", sizeEvictions=" + sizeEvictionCount
+                + ", timeoutEvictions=" + timeoutEvictionCount
+                + ", singleUseEvictions=" + singleUseEvictionCount
+                + ", persistentHits=" + persistentCacheHitCount
+                + ", persistentMisses=" + persistentCacheMissCount
+                + ", persistentLoadTimeNanos=" + persistentCacheLoadTimeNanos
+                + ", size=" + size + ", maximumSize=" + maximumSize + "}";
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+import static org.conscrypt.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The schedule of keys a server uses for stateless session tickets.
+ *
+ * <p>Each key becomes the issuing key at its activation time, replacing the key before it. A
+ * key continues to be accepted for resumption for an overlap period after it has been replaced,
+ * and is accepted for the same period before its own activation, so that servers whose clocks
+ * differ slightly can still resume each other's tickets.
+ *
+ * <p>Each key is {@link #KEY_LENGTH} bytes: a 16-byte key name, followed by a 16-byte HMAC-SHA256
+ * key and a 16-byte AES-128 key.
+ */
+final class SessionTicketKeys {
+    static final int KEY_LENGTH = 48;
+    static final long DEFAULT_OVERLAP_MILLIS = 60 * 60 * 1000L;
+
+    private static final byte[] NO_KEYS = EmptyArray.BYTE;
+
+    // @GuardedBy("this")
+    private final List<Key> keys = new ArrayList<Key>();
+    // @GuardedBy("this")
+    private long overlapMillis = DEFAULT_OVERLAP_MILLIS;
+    // @GuardedBy("this")
+    private byte[] encoded = NO_KEYS;
+
+    /** The time at which {@link #encoded} needs to be recomputed. */
+    private volatile long nextUpdateMillis = Long.MAX_VALUE;
+
+    /**
+     * Schedules {@code key} to become the issuing key at {@code activationTimeMillis}.
+     */
+    synchronized void add(byte[] key, long activationTimeMillis) {
+        checkNotNull(key, "key");
+        checkArgument(key.length == KEY_LENGTH, "key must be %d bytes", KEY_LENGTH);
+        int i = keys.size();
+        while (i > 0 && keys.get(i - 1).activationTimeMillis > activationTimeMillis) {
+            i--;
+        }
+        keys.add(i, new Key(key.clone(), activationTimeMillis));
+        nextUpdateMillis = Long.MIN_VALUE;
+    }
+
+    synchronized void clear() {
+        keys.clear();
+        nextUpdateMillis = Long.MIN_VALUE;
+    }
+
+    synchronized void setOverlapMillis(long overlapMillis) {
+        checkArgument(overlapMillis >= 0, "overlapMillis must be >= 0");
+        this.overlapMillis = overlapMillis;
+        nextUpdateMillis = Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the keys to use at {@code nowMillis}, concatenated with the issuing key first, or
+     * {@code null} if no key is active yet. The returned array must not be modified.
+     */
+    byte[] getKeys(long nowMillis) {
+        if (nowMillis >= nextUpdateMillis) {
+            update(nowMillis);
+        }
+        synchronized (this) {
+            return encoded.length == 0 ? null : encoded;
+        }
+    }
+
+    private synchronized void update(long nowMillis) {
+        int issuing = -1;
+        while (issuing + 1 < keys.size()
+                && keys.get(issuing + 1).activationTimeMillis <= nowMillis) {
+            issuing++;
+        }
+        if (issuing < 0) {
+            encoded = NO_KEYS;
+            nextUpdateMillis = keys.isEmpty() ? Long.MAX_VALUE : keys.get(0).activationTimeMillis;
+            return;
+        }
+
+        // Forget keys which were replaced more than the overlap period ago.
+        long next = Long.MAX_VALUE;
+        while (issuing > 0) {
+            long replacedAt = keys.get(1).activationTimeMillis;
+            if (nowMillis - replacedAt < overlapMillis) {
+                next = Math.min(next, replacedAt + overlapMillis);
+                break;
+            }
+            keys.remove(0);
+            issuing--;
+        }
+
+        List<Key> accepted = new ArrayList<Key>();
+        accepted.add(keys.get(issuing));
+        for (int i = issuing - 1; i >= 0; i--) {
+            accepted.add(keys.get(i));
+        }
+        for (int i = issuing + 1; i < keys.size(); i++) {
+            long activation = keys.get(i).activationTimeMillis;
+            next = Math.min(next, activation);
+            if (activation - nowMillis > overlapMillis) {
+                next = Math.min(next, activation - overlapMillis);
+                break;
+            }
+            accepted.add(keys.get(i));
+        }
+
+        byte[] result = new byte[accepted.size() * KEY_LENGTH];
+        for (int i = 0; i < accepted.size(); i++) {
+            System.arraycopy(accepted.get(i).key, 0, result, i * KEY_LENGTH, KEY_LENGTH);
+        }
+        encoded = result;
+        nextUpdateMillis = next;
+    }
+
+    private static final class Key {
+        final byte[] key;
+        final long activationTimeMillis;
+
+        Key(byte[] key, long activationTimeMillis) {
+            this.key = key;
+            this.activationTimeMillis = activationTimeMillis;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+/**
+ * Remembers which certificates have been verified to be signed by which public keys, so that
+ * the same issuer-to-subject signature, which chain building and validation check several times
+ * per handshake, is only checked once.
+ *
+ * <p>Entries are keyed by the SHA-256 hashes of the whole encoded certificate, including its
+ * signature, and of the encoded public key, so a certificate only matches an entry if it is
+ * byte-for-byte the certificate which was verified. Only successful verifications are cached,
+ * and entries which haven't been used recently are dropped once the maximum size is reached.
+ * Lookups don't lock, so concurrent signature checks don't serialize on the cache.
+ */
+final class SignatureVerificationCache {
+    private final ClockCache<Key, Boolean> verified;
+
+    SignatureVerificationCache(int maxSize) {
+        this.verified = new ClockCache<Key, Boolean>(maxSize);
+    }
+
+    /**
+     * Returns the key for the signature of {@code cert} by {@code publicKey}, or {@code null}
+     * if they can't be encoded.
+     */
+    static Key key(X509Certificate cert, PublicKey publicKey) {
+        try {
+            byte[] encodedKey = publicKey.getEncoded();
+            if (encodedKey == null) {
+                return null;
+            }
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] certDigest = md.digest(cert.getEncoded());
+            byte[] keyDigest = md.digest(encodedKey);
+            return new Key(certDigest, keyDigest);
+        } catch (CertificateEncodingException e) {
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether the signature identified by {@code key} was previously verified.
+     */
+    boolean contains(Key key) {
+        return verified.containsKey(key);
+    }
+
+    /**
+     * Records that the signature identified by {@code key} was verified.
+     */
+    void add(Key key) {
+        verified.putIfAbsent(key, Boolean.TRUE);
+    }
+
+    int size() {
+        return verified.size();
+    }
+
+    static final class Key {
+        private final byte[] certDigest;
+        private final byte[] keyDigest;
+        private final int hashCode;
+
+        Key(byte[] certDigest, byte[] keyDigest) {
+            this.certDigest = certDigest;
+            this.keyDigest = keyDigest;
+            this.hashCode = 31 * Arrays.hashCode(certDigest) + Arrays.hashCode(keyDigest);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return hashCode == that.hashCode && Arrays.equals(certDigest, that.certDigest)
+                    && Arrays.equals(keyDigest, that.keyDigest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Validates already-built certificate chains without the {@link java.security.cert.CertPath}
+ * and {@link java.security.cert.CertPathValidator} machinery, for the common case of chains
+ * which use no features beyond name chaining, signatures, validity periods, basic constraints,
+ * key usage and extended key usage.
+ *
+ * <p>This never rejects a chain: it only reports whether it accepts it. Chains it doesn't accept,
+ * whether because they're invalid or because they use features it doesn't support, such as name
+ * or policy constraints, must be validated with PKIX, which also reports why they're invalid.
+ *
+ * <p>Only keys and signature algorithms from a conservative allowlist are accepted: RSA keys of
+ * at least 2048 bits, P-256, P-384 and P-521 keys, Ed25519 keys, and signatures using SHA-256 or
+ * better. Anything else is left to PKIX. The minimum strength of all chains is still checked
+ * separately by {@link ChainStrengthAnalyzer}.
+ *
+ * <p>PKIX also applies the algorithm constraints the platform is configured with
+ * ({@code jdk.certpath.disabledAlgorithms}), which can be stricter than the allowlist. Callers must
+ * only use this validator if {@link #isCompatibleWithPlatformPolicy} returns {@code true}, that is
+ * if the configured constraints only restrict algorithms and key sizes the allowlist already
+ * excludes.
+ */
+final class SimpleChainValidator {
+    private static final String BASIC_CONSTRAINTS_OID = "2.5.29.19";
+    private static final String KEY_USAGE_OID = "2.5.29.15";
+    private static final String SUBJECT_ALT_NAME_OID = "2.5.29.17";
+    private static final String EXTENDED_KEY_USAGE_OID = "2.5.29.37";
+
+    private static final String EKU_anyExtendedKeyUsage = "2.5.29.37.0";
+    private static final String EKU_clientAuth = "1.3.6.1.5.5.7.3.2";
+    private static final String EKU_serverAuth = "1.3.6.1.5.5.7.3.1";
+    private static final String EKU_nsSGC = "2.16.840.1.113730.4.1";
+    private static final String EKU_msSGC = "1.3.6.1.4.1.311.10.3.3";
+
+    /**
+     * Critical extensions which are fully processed here.
+     */
+    private static final Set<String> SUPPORTED_CRITICAL_EXTENSIONS =
+            Collections.unmodifiableSet(new HashSet<String>(
+                    Arrays.asList(BASIC_CONSTRAINTS_OID, KEY_USAGE_OID, SUBJECT_ALT_NAME_OID)));
+
+    /**
+     * Extensions which constrain the rest of the path, whether or not they're critical.
+     */
+    private static final String[] PATH_CONSTRAINT_EXTENSIONS = {
+            "2.5.29.30", // nameConstraints
+            "2.5.29.33", // policyMappings
+            "2.5.29.36", // policyConstraints
+            "2.5.29.54", // inhibitAnyPolicy
+    };
+
+    private static final int KEY_USAGE_KEY_CERT_SIGN = 5;
+
+    private static final Set<String> ALLOWED_SIGNATURE_ALGORITHMS =
+            Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+                    "1.2.840.113549.1.1.11", // sha256WithRSAEncryption
+                    "1.2.840.113549.1.1.12", // sha384WithRSAEncryption
+                    "1.2.840.113549.1.1.13", // sha512WithRSAEncryption
+                    "1.2.840.10045.4.3.2", // ecdsa-with-SHA256
+                    "1.2.840.10045.4.3.3", // ecdsa-with-SHA384
+                    "1.2.840.10045.4.3.4", // ecdsa-with-SHA512
+                    "1.3.101.112" // Ed25519
+                    )));
+
+    private static final int MIN_RSA_KEY_BITS = 2048;
+    private static final int MIN_EC_KEY_BITS = 256;
+
+    static final String DISABLED_ALGORITHMS_PROPERTY = "jdk.certpath.disabledAlgorithms";
+    static final String DISABLED_NAMED_CURVES_PROPERTY = "jdk.disabled.namedCurves";
+
+    /**
+     * Names, normalized by {@link #normalize}, under which algorithm constraints can refer to the
+     * algorithms, curves and digests of the allowlist.
+     */
+    private static final Set<String> ALLOWLISTED_ALGORITHM_NAMES =
+            Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+                    "RSA", "RSAENCRYPTION", "1.2.840.113549.1.1.1",
+                    "EC", "ECDSA", "1.2.840.10045.2.1",
+                    "EDDSA", "ED25519", "1.3.101.112",
+                    "SHA256", "SHA384", "SHA512",
+                    "SHA256WITHRSA", "SHA384WITHRSA", "SHA512WITHRSA",
+                    "SHA256WITHRSAENCRYPTION", "SHA384WITHRSAENCRYPTION",
+                    "SHA512WITHRSAENCRYPTION", "1.2.840.113549.1.1.11", "1.2.840.113549.1.1.12",
+                    "1.2.840.113549.1.1.13",
+                    "SHA256WITHECDSA", "SHA384WITHECDSA", "SHA512WITHECDSA",
+                    "ECDSAWITHSHA256", "ECDSAWITHSHA384", "ECDSAWITHSHA512",
+                    "1.2.840.10045.4.3.2", "1.2.840.10045.4.3.3", "1.2.840.10045.4.3.4",
+                    "SECP256R1", "PRIME256V1", "NISTP256", "P256", "1.2.840.10045.3.1.7",
+                    "SECP384R1", "NISTP384", "P384", "1.3.132.0.34",
+                    "SECP521R1", "NISTP521", "P521", "1.3.132.0.35")));
+
+    /**
+     * The encoded SubjectPublicKeyInfo of allowed non-RSA keys, up to the key itself. These fix
+     * the named curve and the length of an uncompressed point.
+     */
+    private static final byte[][] ALLOWED_PUBLIC_KEY_PREFIXES = {
+            // P-256
+            {0x30, 0x59, 0x30, 0x13, 0x06, 0x07, 0x2a, (byte) 0x86, 0x48, (byte) 0xce, 0x3d, 0x02,
+                    0x01, 0x06, 0x08, 0x2a, (byte) 0x86, 0x48, (byte) 0xce, 0x3d, 0x03, 0x01, 0x07,
+                    0x03, 0x42, 0x00},
+            // P-384
+            {0x30, 0x76, 0x30, 0x10, 0x06, 0x07, 0x2a, (byte) 0x86, 0x48, (byte) 0xce, 0x3d, 0x02,
+                    0x01, 0x06, 0x05, 0x2b, (byte) 0x81, 0x04, 0x00, 0x22, 0x03, 0x62, 0x00},
+            // P-521
+            {0x30, (byte) 0x81, (byte) 0x9b, 0x30, 0x10, 0x06, 0x07, 0x2a, (byte) 0x86, 0x48,
+                    (byte) 0xce, 0x3d, 0x02, 0x01, 0x06, 0x05, 0x2b, (byte) 0x81, 0x04, 0x00, 0x23,
+                    0x03, (byte) 0x81, (byte) 0x86, 0x00},
+            // Ed25519
+            {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00},
+    };
+
+    private SimpleChainValidator() {}
+
+    /**
+     * Returns whether the platform's certification path algorithm constraints only reject chains
+     * which this validator doesn't accept anyway, so that accepting a chain here can't skip a
+     * check PKIX would have made.
+     */
+    static boolean isCompatibleWithPlatformPolicy() {
+        try {
+            return isCompatibleWithPolicy(Security.getProperty(DISABLED_ALGORITHMS_PROPERTY),
+                    Security.getProperty(DISABLED_NAMED_CURVES_PROPERTY));
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether the given values of {@code jdk.certpath.disabledAlgorithms} and
+     * {@code jdk.disabled.namedCurves} only restrict algorithms this validator doesn't accept.
+     * Constraints which can't be shown to be harmless, including any this doesn't understand,
+     * make it incompatible.
+     */
+    static boolean isCompatibleWithPolicy(String disabledAlgorithms, String disabledNamedCurves) {
+        if (disabledAlgorithms == null) {
+            return true;
+        }
+        for (String entry : disabledAlgorithms.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String[] parts = entry.split("\\s+", 2);
+            if (parts[0].equalsIgnoreCase("include")) {
+                if (parts.length != 2 || !parts[1].trim().equals(DISABLED_NAMED_CURVES_PROPERTY)
+                        || !isCompatibleWithDisabledCurves(disabledNamedCurves)) {
+                    return false;
+                }
+                continue;
+            }
+            String name = normalize(parts[0]);
+            if (!ALLOWLISTED_ALGORITHM_NAMES.contains(name)) {
+                // Chains using this algorithm are never accepted here.
+                continue;
+            }
+            if (parts.length != 2 || !isWeakerThanAllowlist(name, parts[1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCompatibleWithDisabledCurves(String disabledNamedCurves) {
+        if (disabledNamedCurves == null) {
+            return true;
+        }
+        for (String curve : disabledNamedCurves.split(",")) {
+            if (ALLOWLISTED_ALGORITHM_NAMES.contains(normalize(curve))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether {@code constraint} on the allowlisted algorithm {@code name} is a key size
+     * limit which only disables keys smaller than the allowlist accepts.
+     */
+    private static boolean isWeakerThanAllowlist(String name, String constraint) {
+        int minBits;
+        if (name.equals("RSA")) {
+            minBits = MIN_RSA_KEY_BITS;
+        } else if (name.equals("EC")) {
+            minBits = MIN_EC_KEY_BITS;
+        } else {
+            return false;
+        }
+        String[] parts = constraint.trim().split("\\s+");
+        if (parts.length != 3 || !parts[0].equals("keySize")) {
+            return false;
+        }
+        int bits;
+        try {
+            bits = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (parts[1].equals("<")) {
+            return bits <= minBits;
+        }
+        if (parts[1].equals("<=")) {
+            return bits < minBits;
+        }
+        return false;
+    }
+
+    private static String normalize(String algorithm) {
+        return algorithm.trim().replaceAll("[-_\\s]", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns whether {@code untrustedChain}, which starts with the end-entity certificate and
+     * is issued by {@code anchor}, is valid at {@code date} for client or server authentication.
+     * If this returns {@code false}, the chain may still be valid.
+     *
+     * <p>This doesn't apply the platform's algorithm constraints; see
+     * {@link #isCompatibleWithPlatformPolicy}.
+     */
+    static boolean accepts(List<X509Certificate> untrustedChain, TrustAnchor anchor,
+            boolean clientAuth, Date date) {
+        X509Certificate anchorCert = anchor.getTrustedCert();
+        X500Principal issuerName;
+        PublicKey issuerKey;
+        if (anchorCert != null) {
+            if (hasPathConstraints(anchorCert)) {
+                return false;
+            }
+            issuerName = anchorCert.getSubjectX500Principal();
+            issuerKey = anchorCert.getPublicKey();
+        } else {
+            issuerName = anchor.getCA();
+            issuerKey = anchor.getCAPublicKey();
+        }
+        if (anchor.getNameConstraints() != null || !isAllowedKey(issuerKey)) {
+            return false;
+        }
+
+        // Walk from the anchor towards the end-entity certificate, as PKIX does.
+        for (int i = untrustedChain.size() - 1; i >= 0; i--) {
+            X509Certificate cert = untrustedChain.get(i);
+            boolean endEntity = (i == 0);
+            try {
+                if (!cert.getIssuerX500Principal().equals(issuerName)) {
+                    return false;
+                }
+                cert.checkValidity(date);
+                if (!ALLOWED_SIGNATURE_ALGORITHMS.contains(cert.getSigAlgOID())
+                        || !isAllowedKey(cert.getPublicKey())) {
+                    return false;
+                }
+                if (!hasOnlySupportedCriticalExtensions(cert, endEntity)
+                        || hasPathConstraints(cert)) {
+                    return false;
+                }
+                if (endEntity) {
+                    if (!hasAcceptableExtendedKeyUsage(cert, clientAuth)) {
+                        return false;
+                    }
+                } else if (!isCertificateAuthority(cert, i - 1)) {
+                    return false;
+                }
+                cert.verify(issuerKey);
+            } catch (Exception e) {
+                return false;
+            }
+            issuerName = cert.getSubjectX500Principal();
+            issuerKey = cert.getPublicKey();
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the extended key usage of {@code leaf}, if it has one, allows it to be used
+     * for client or server authentication.
+     */
+    static boolean hasAcceptableExtendedKeyUsage(X509Certificate leaf, boolean clientAuth)
+            throws CertificateParsingException {
+        List<String> ekuOids = leaf.getExtendedKeyUsage();
+        if (ekuOids == null) {
+            return true;
+        }
+        for (String ekuOid : ekuOids) {
+            // anyExtendedKeyUsage for clients and servers
+            if (ekuOid.equals(EKU_anyExtendedKeyUsage)) {
+                return true;
+            }
+
+            // clients
+            if (clientAuth) {
+                if (ekuOid.equals(EKU_clientAuth)) {
+                    return true;
+                }
+                continue;
+            }
+
+            // servers
+            if (ekuOid.equals(EKU_serverAuth) || ekuOid.equals(EKU_nsSGC)
+                    || ekuOid.equals(EKU_msSGC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAllowedKey(PublicKey key) {
+        if (key instanceof RSAPublicKey) {
+            return "RSA".equals(key.getAlgorithm())
+                    && ((RSAPublicKey) key).getModulus().bitLength() >= MIN_RSA_KEY_BITS;
+        }
+        byte[] encoded = key.getEncoded();
+        if (encoded == null) {
+            return false;
+        }
+        for (byte[] prefix : ALLOWED_PUBLIC_KEY_PREFIXES) {
+            if (encoded.length > prefix.length
+                    && Arrays.equals(prefix, Arrays.copyOf(encoded, prefix.length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasOnlySupportedCriticalExtensions(
+            X509Certificate cert, boolean endEntity) {
+        Set<String> critical = cert.getCriticalExtensionOIDs();
+        if (critical == null) {
+            return true;
+        }
+        for (String oid : critical) {
+            if (!SUPPORTED_CRITICAL_EXTENSIONS.contains(oid)
+                    && !(endEntity && oid.equals(EXTENDED_KEY_USAGE_OID))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasPathConstraints(X509Certificate cert) {
+        for (String oid : PATH_CONSTRAINT_EXTENSIONS) {
+            if (cert.getExtensionValue(oid) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether {@code cert} may issue certificates, with {@code intermediatesBelow} CA
+     * certificates between it and the end-entity certificate.
+     */
+    private static boolean isCertificateAuthority(X509Certificate cert, int intermediatesBelow) {
+        int pathLength = cert.getBasicConstraints();
+        if (pathLength < 0 || intermediatesBelow > pathLength) {
+            return false;
+        }
+        boolean[] keyUsage = cert.getKeyUsage();
+        return keyUsage == null
+                || (keyUsage.length > KEY_USAGE_KEY_CERT_SIGN && keyUsage[KEY_USAGE_KEY_CERT_SIGN]);
+    }
+}
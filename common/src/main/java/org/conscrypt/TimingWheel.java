@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A hashed timing wheel, which tracks items until a deadline in constant time per item.
+ *
+ * <p>Time is divided into ticks, and each item is placed in the bucket for the tick containing
+ * its deadline, modulo the number of buckets. {@link #advance(long)} visits the buckets for the
+ * ticks which have passed since the previous call, returning the items which are due and
+ * carrying the ones whose deadline is a whole rotation or more away over to a later bucket.
+ * Items are therefore returned up to one tick after their deadline.
+ *
+ * <p>Scheduling and cancelling never block. Only one thread advances the wheel at a time; other
+ * threads calling {@link #advance(long)} at the same time return immediately.
+ */
+final class TimingWheel<T> {
+    private final long tickMillis;
+    private final AtomicReferenceArray<Queue<Timeout<T>>> buckets;
+    private final AtomicBoolean advancing = new AtomicBoolean();
+
+    /** The number of timeouts in the buckets, and how many of those have been cancelled. */
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+
+    /** The last tick whose bucket has been visited. */
+    private volatile long processedTick;
+
+    TimingWheel(int bucketCount, long tickMillis, long nowMillis) {
+        checkArgument(bucketCount > 0, "bucketCount must be > 0");
+        checkArgument(tickMillis > 0, "tickMillis must be > 0");
+        this.tickMillis = tickMillis;
+        this.buckets = new AtomicReferenceArray<Queue<Timeout<T>>>(bucketCount);
+        this.processedTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Adds {@code item} to the wheel, to be returned by {@link #advance(long)} once
+     * {@code deadlineMillis} has passed.
+     */
+    Timeout<T> schedule(T item, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<T>(item, deadlineMillis);
+        enqueue(timeout);
+        return timeout;
+    }
+
+    private void enqueue(Timeout<T> timeout) {
+        // A timeout whose tick has already been visited goes in the next bucket. If the wheel is
+        // being advanced past that bucket right now, it may have to wait a further rotation.
+        long tick = Math.max(timeout.deadlineMillis / tickMillis, processedTick + 1);
+        bucket(tick).offer(timeout);
+        queued.incrementAndGet();
+    }
+
+    private Queue<Timeout<T>> bucket(long tick) {
+        int index = (int) (tick % buckets.length());
+        Queue<Timeout<T>> bucket = buckets.get(index);
+        if (bucket == null) {
+            // Buckets are created lazily, since most are never used by small caches.
+            buckets.compareAndSet(index, null, new ConcurrentLinkedQueue<Timeout<T>>());
+            bucket = buckets.get(index);
+        }
+        return bucket;
+    }
+
+    /**
+     * Removes the given timeout's item from the wheel, if it hasn't been returned by
+     * {@link #advance(long)} already. The timeout itself is discarded when its bucket is next
+     * visited, or earlier if cancelled timeouts build up.
+     */
+    void cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.getAndSet(null) == null) {
+            return;
+        }
+        if (cancelled.incrementAndGet() > queued.get() / 2 + 16) {
+            purgeCancelled();
+        }
+    }
+
+    /**
+     * Removes and returns the items whose deadline is at or before {@code nowMillis}. Returns an
+     * empty list if another thread is already advancing the wheel.
+     */
+    List<T> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        if (nowTick <= processedTick || !advancing.compareAndSet(false, true)) {
+            return Collections.emptyList();
+        }
+        try {
+            List<T> expired = new ArrayList<T>();
+            List<Timeout<T>> pending = new ArrayList<Timeout<T>>();
+            long fromTick = processedTick + 1;
+            // After a long pause, each bucket only needs to be visited once.
+            long toTick = Math.min(nowTick, fromTick + buckets.length() - 1);
+            for (long tick = fromTick; tick <= toTick; tick++) {
+                Queue<Timeout<T>> bucket = buckets.get((int) (tick % buckets.length()));
+                if (bucket == null) {
+                    continue;
+                }
+                Timeout<T> timeout;
+                while ((timeout = bucket.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (timeout.deadlineMillis > nowMillis) {
+                        pending.add(timeout);
+                        continue;
+                    }
+                    T item = timeout.getAndSet(null);
+                    if (item != null) {
+                        expired.add(item);
+                    } else {
+                        cancelled.decrementAndGet();
+                    }
+                }
+            }
+            processedTick = nowTick;
+            for (Timeout<T> timeout : pending) {
+                if (timeout.get() != null) {
+                    enqueue(timeout);
+                } else {
+                    cancelled.decrementAndGet();
+                }
+            }
+            return expired;
+        } finally {
+            advancing.set(false);
+        }
+    }
+
+    private void purgeCancelled() {
+        if (!advancing.compareAndSet(false, true)) {
+            // The thread advancing the wheel will discard some of them anyway.
+            return;
+        }
+        try {
+            for (int i = 0; i < buckets.length(); i++) {
+                Queue<Timeout<T>> bucket = buckets.get(i);
+                if (bucket == null) {
+                    continue;
+                }
+                Iterator<Timeout<T>> it = bucket.iterator();
+                while (it.hasNext()) {
+                    if (it.next().get() == null) {
+                        it.remove();
+                        queued.decrementAndGet();
+                        cancelled.decrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            advancing.set(false);
+        }
+    }
+
+    /** Returns the number of items in the wheel, including cancelled ones not yet discarded. */
+    int queuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * An item's place in the wheel. The reference to the item is cleared when it is returned
+     * or cancelled.
+     */
+    @SuppressWarnings("serial")
+    static final class Timeout<T> extends AtomicReference<T> {
+        final long deadlineMillis;
+
+        Timeout(T item, long deadlineMillis) {
+            super(item);
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Remembers the chains that a {@link TrustManagerImpl} built and validated for the certificates
+ * peers presented, so that a peer presenting byte-identical certificates again doesn't require
+ * path building and PKIX validation to be repeated.
+ *
+ * <p>Only successful decisions are cached. A decision is kept for at most the configured maximum
+ * age, and never past the expiry of any certificate in the validated chain. Once the maximum
+ * number of decisions is reached, one which hasn't been used recently is dropped for each new one.
+ */
+final class TrustDecisionCache {
+    private final int maxEntries;
+    private final long maxAgeMillis;
+    private final ClockCache<Key, Decision> decisions;
+
+    TrustDecisionCache(int maxEntries, long maxAgeMillis) {
+        checkArgument(maxEntries > 0, "maxEntries must be > 0");
+        checkArgument(maxAgeMillis > 0, "maxAgeMillis must be > 0");
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAgeMillis;
+        this.decisions = new ClockCache<Key, Decision>(maxEntries);
+    }
+
+    /**
+     * Returns the key for a trust decision about {@code certs}, as presented by the peer along
+     * with the given stapled OCSP response and SCTs.
+     */
+    static Key key(X509Certificate[] certs, byte[] ocspData, byte[] tlsSctData, String authType,
+            String host, boolean clientAuth) throws CertificateEncodingException {
+        byte[][] encodedCerts = new byte[certs.length][];
+        for (int i = 0; i < certs.length; i++) {
+            encodedCerts[i] = certs[i].getEncoded();
+        }
+        return new Key(encodedCerts, ocspData, tlsSctData, authType, host, clientAuth);
+    }
+
+    /**
+     * Returns a copy of the chain validated for {@code key}, or {@code null} if there is no
+     * decision for it which is still valid at {@code nowMillis}.
+     */
+    List<X509Certificate> get(Key key, long nowMillis) {
+        Decision decision = decisions.get(key);
+        if (decision == null) {
+            return null;
+        }
+        if (nowMillis >= decision.expiryMillis) {
+            decisions.remove(key, decision);
+            return null;
+        }
+        return new ArrayList<X509Certificate>(decision.chain);
+    }
+
+    /**
+     * Records that {@code chain} was validated for {@code key} at {@code nowMillis}.
+     */
+    void put(Key key, List<X509Certificate> chain, long nowMillis) {
+        long expiryMillis = nowMillis + maxAgeMillis;
+        for (X509Certificate cert : chain) {
+            expiryMillis = Math.min(expiryMillis, cert.getNotAfter().getTime());
+        }
+        if (expiryMillis <= nowMillis) {
+            return;
+        }
+        decisions.put(key, new Decision(new ArrayList<X509Certificate>(chain), expiryMillis));
+    }
+
+    /**
+     * Returns a new, empty cache with the same limits as this one. Callers replace a cache with
+     * an empty copy rather than clearing it when the trust anchors its decisions were based on
+     * change, so that validations which started before the change can't repopulate it.
+     */
+    TrustDecisionCache emptyCopy() {
+        return new TrustDecisionCache(maxEntries, maxAgeMillis);
+    }
+
+    int size() {
+        return decisions.size();
+    }
+
+    private static final class Decision {
+        final List<X509Certificate> chain;
+        final long expiryMillis;
+
+        Decision(List<X509Certificate> chain, long expiryMillis) {
+            this.chain = chain;
+            this.expiryMillis = expiryMillis;
+        }
+    }
+
+    static final class Key {
+        private final byte[][] encodedCerts;
+        private final byte[] ocspData;
+        private final byte[] tlsSctData;
+        private final String authType;
+        private final String host;
+        private final boolean clientAuth;
+        private final int hashCode;
+
+        Key(byte[][] encodedCerts, byte[] ocspData, byte[] tlsSctData, String authType,
+                String host, boolean clientAuth) {
+            this.encodedCerts = encodedCerts;
+            this.ocspData = ocspData;
+            this.tlsSctData = tlsSctData;
+            this.authType = authType;
+            this.host = host;
+            this.clientAuth = clientAuth;
+
+            int result = Arrays.deepHashCode(encodedCerts);
+            result = 31 * result + Arrays.hashCode(ocspData);
+            result = 31 * result + Arrays.hashCode(tlsSctData);
+            result = 31 * result + authType.hashCode();
+            result = 31 * result + (host != null ? host.hashCode() : 0);
+            result = 31 * result + (clientAuth ? 1 : 0);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return hashCode == that.hashCode && clientAuth == that.clientAuth
+                    && authType.equals(that.authType)
+                    && (host != null ? host.equals(that.host) : that.host == null)
+                    && Arrays.equals(ocspData, that.ocspData)
+                    && Arrays.equals(tlsSctData, that.tlsSctData)
+                    && Arrays.deepEquals(encodedCerts, that.encodedCerts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
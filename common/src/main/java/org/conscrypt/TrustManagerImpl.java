@@ -34,6 +34,8 @@
 
 package org.conscrypt;
 
+import static org.conscrypt.Preconditions.checkArgument;
+
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.Socket;
@@ -57,10 +59,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 import javax.net.ssl.HttpsURLConnection;
@@ -111,16 +115,23 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
 
     private final CertPathValidator validator;
 
+    /**
+     * Whether chains may be validated by {@link SimpleChainValidator} instead of
+     * {@link #validator}, which depends on the platform's algorithm constraints when this trust
+     * manager was created.
+     */
+    private final boolean simpleValidationAllowed;
+
     /**
      * An index of TrustAnchor instances that we've seen.
      */
     private final TrustedCertificateIndex trustedCertificateIndex;
 
     /**
-     * An index of intermediate certificates that we've seen. These certificates are NOT implicitly
-     * trusted and must still form a valid chain to an anchor.
+     * A bounded cache of intermediate certificates that we've seen. These certificates are NOT
+     * implicitly trusted and must still form a valid chain to an anchor.
      */
-    private final TrustedCertificateIndex intermediateIndex;
+    private final IntermediateCertificateCache intermediateCache;
 
     /**
      * This is lazily initialized in the AndroidCAStore case since it
@@ -137,6 +148,14 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
 
     private ConscryptHostnameVerifier hostnameVerifier;
 
+    /**
+     * Chains validated for previously seen peer certificates, or {@code null} if trust decisions
+     * aren't cached (the default).
+     */
+    private volatile TrustDecisionCache decisionCache;
+
+    private volatile Executor signatureVerificationExecutor;
+
     /**
      * Creates X509TrustManager based on a keystore
      */
@@ -199,9 +218,11 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
         this.rootKeyStore = rootKeyStoreLocal;
         this.trustedCertificateStore = trustedCertificateStoreLocal;
         this.validator = validatorLocal;
+        this.simpleValidationAllowed = SimpleChainValidator.isCompatibleWithPlatformPolicy();
         this.factory = factoryLocal;
         this.trustedCertificateIndex = trustedCertificateIndexLocal;
-        this.intermediateIndex = new TrustedCertificateIndex();
+        this.intermediateCache = new IntermediateCertificateCache(
+                IntermediateCertificateCache.DEFAULT_MAXIMUM_SIZE);
         this.acceptedIssuers = acceptedIssuersLocal;
         this.err = errLocal;
         this.blocklist = blocklist;
@@ -368,6 +389,14 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
         } else {
             trustedCertificateIndex.reset(trustAnchors(acceptedIssuers));
         }
+        // Replace the cache only after the new anchors are in place: validations which read the
+        // old cache may have used the old anchors, so their decisions go into the discarded one.
+        synchronized (this) {
+            TrustDecisionCache cache = decisionCache;
+            if (cache != null) {
+                decisionCache = cache.emptyCopy();
+            }
+        }
     }
 
     private List<X509Certificate> checkTrusted(X509Certificate[] certs, String authType,
@@ -457,6 +486,32 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
         if (err != null) {
             throw new CertificateException(err);
         }
+        TrustDecisionCache cache = decisionCache;
+        if (cache == null) {
+            return buildTrustedChain(certs, ocspData, tlsSctData, host, clientAuth);
+        }
+        TrustDecisionCache.Key key =
+                TrustDecisionCache.key(certs, ocspData, tlsSctData, authType, host, clientAuth);
+        List<X509Certificate> wholeChain = cache.get(key, System.currentTimeMillis());
+        if (wholeChain != null) {
+            // Pins and the blocklist can change without notice, and are cheap to check.
+            if (pinManager != null) {
+                pinManager.checkChainPinning(host, wholeChain);
+            }
+            for (X509Certificate cert : wholeChain) {
+                checkBlocklist(cert);
+            }
+            return wholeChain;
+        }
+        wholeChain = buildTrustedChain(certs, ocspData, tlsSctData, host, clientAuth);
+        cache.put(key, wholeChain, System.currentTimeMillis());
+        return wholeChain;
+    }
+
+    private List<X509Certificate> buildTrustedChain(X509Certificate[] certs, byte[] ocspData,
+                                                    byte[] tlsSctData, String host,
+                                                    boolean clientAuth)
+            throws CertificateException {
         Set<X509Certificate> used = new HashSet<>();
         List<X509Certificate> untrustedChain = new ArrayList<>();
         List<TrustAnchor> trustedChain = new ArrayList<>();
@@ -472,8 +527,10 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
             untrustedChain.add(leaf);
         }
         used.add(leaf);
+        CandidateIssuerVerifier issuerVerifier =
+                new CandidateIssuerVerifier(signatureVerificationExecutor);
         return checkTrustedRecursive(certs, ocspData, tlsSctData, host, clientAuth, untrustedChain,
-                                     trustedChain, used);
+                                     trustedChain, used, issuerVerifier);
     }
 
     /**
@@ -490,6 +547,7 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
      * @param untrustedChain the untrusted section of the chain built so far. Must be mutable.
      * @param trustAnchorChain the trusted section of the chain built so far. Must be mutable.
      * @param used the set certificates used so far in path building. Must be mutable.
+     * @param issuerVerifier checks and remembers which candidate issuers signed a certificate.
      *
      * @return The entire valid chain starting with the leaf certificate. This is the
      * concatenation of untrustedChain and trustAnchorChain.
@@ -504,7 +562,8 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
                                                         boolean clientAuth,
                                                         List<X509Certificate> untrustedChain,
                                                         List<TrustAnchor> trustAnchorChain,
-                                                        Set<X509Certificate> used)
+                                                        Set<X509Certificate> used,
+                                                        CandidateIssuerVerifier issuerVerifier)
             throws CertificateException {
         CertificateException lastException = null;
         X509Certificate current;
@@ -541,7 +600,8 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
             trustAnchorChain.add(anchor);
             try {
                 return checkTrustedRecursive(certs, ocspData, tlsSctData, host, clientAuth,
-                                             untrustedChain, trustAnchorChain, used);
+                                             untrustedChain, trustAnchorChain, used,
+                                             issuerVerifier);
             } catch (CertificateException ex) {
                 lastException = ex;
             }
@@ -565,6 +625,7 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
 
         // 4. Use the certificates provided by the peer to grow the chain.
         // Ignore the first certificate, as that is the leaf certificate.
+        List<X509Certificate> candidateIssuers = new ArrayList<>();
         for (int i = 1; i < certs.length; i++) {
             X509Certificate candidateIssuer = certs[i];
             // Avoid using certificates that have already been used.
@@ -584,23 +645,40 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
                             ex);
                     continue;
                 }
-                used.add(candidateIssuer);
-                untrustedChain.add(candidateIssuer);
-                try {
-                    return checkTrustedRecursive(certs, ocspData, tlsSctData, host, clientAuth,
-                                                 untrustedChain, trustAnchorChain, used);
-                } catch (CertificateException ex) {
-                    lastException = ex;
-                }
-                // Could not form a valid chain via this certificate, remove it from this chain.
-                used.remove(candidateIssuer);
-                untrustedChain.remove(untrustedChain.size() - 1);
+                candidateIssuers.add(candidateIssuer);
+            }
+        }
+        // If there is a choice of issuers, such as with cross-signed intermediates, prune the
+        // ones which didn't sign the current certificate before exploring chains through them. A
+        // single candidate's signature is left to chain validation.
+        if (candidateIssuers.size() > 1) {
+            List<X509Certificate> verifiedIssuers =
+                    issuerVerifier.verifiedIssuers(current, candidateIssuers);
+            if (verifiedIssuers.size() < candidateIssuers.size()) {
+                lastException = new CertificateException(new CertPathValidatorException(
+                        "Certificate not signed by candidate issuer: "
+                                + current.getIssuerX500Principal()));
             }
+            candidateIssuers = verifiedIssuers;
+        }
+        for (X509Certificate candidateIssuer : candidateIssuers) {
+            used.add(candidateIssuer);
+            untrustedChain.add(candidateIssuer);
+            try {
+                return checkTrustedRecursive(certs, ocspData, tlsSctData, host, clientAuth,
+                                             untrustedChain, trustAnchorChain, used,
+                                             issuerVerifier);
+            } catch (CertificateException ex) {
+                lastException = ex;
+            }
+            // Could not form a valid chain via this certificate, remove it from this chain.
+            used.remove(candidateIssuer);
+            untrustedChain.remove(untrustedChain.size() - 1);
         }
 
         // 5. Finally try the cached intermediates to handle server that failed to send them.
         Set<TrustAnchor> intermediateAnchors =
-                intermediateIndex.findAllByIssuerAndSignature(current);
+                intermediateCache.findAllByIssuerAndSignature(current, System.currentTimeMillis());
         for (TrustAnchor intermediate : sortPotentialAnchors(intermediateAnchors)) {
             X509Certificate intermediateCert = intermediate.getTrustedCert();
             // Avoid using certificates that have already been used.
@@ -611,7 +689,8 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
             untrustedChain.add(intermediateCert);
             try {
                 return checkTrustedRecursive(certs, ocspData, tlsSctData, host, clientAuth,
-                                             untrustedChain, trustAnchorChain, used);
+                                             untrustedChain, trustAnchorChain, used,
+                                             issuerVerifier);
             } catch (CertificateException ex) {
                 lastException = ex;
             }
@@ -637,13 +716,9 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
                                               boolean clientAuth, byte[] ocspData,
                                               byte[] tlsSctData) throws CertificateException {
         try {
-            // build the cert path from the list of certs sans trust anchors
-            // TODO: check whether this is slow and should be replaced by a minimalistic CertPath
-            // impl since we already have built the path.
-            CertPath certPath = factory.generateCertPath(untrustedChain);
-
             // Check that there are at least some trust anchors
             if (trustAnchorChain.isEmpty()) {
+                CertPath certPath = factory.generateCertPath(untrustedChain);
                 throw new CertificateException(new CertPathValidatorException(
                         "Trust anchor for certification path not found.", null, certPath, -1));
             }
@@ -673,28 +748,23 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
 
             ChainStrengthAnalyzer.check(untrustedChain);
 
-            // Validate the untrusted part of the chain
-            try {
-                Set<TrustAnchor> anchorSet = new HashSet<>();
-                // We know that untrusted chains to the first trust anchor, only add that.
-                anchorSet.add(trustAnchorChain.get(0));
-                PKIXParameters params = new PKIXParameters(anchorSet);
-                params.setRevocationEnabled(false);
-                X509Certificate endPointCert = untrustedChain.get(0);
-                setOcspResponses(params, endPointCert, ocspData);
-                params.addCertPathChecker(
-                        new ExtendedKeyUsagePKIXCertPathChecker(clientAuth, endPointCert));
-                validator.validate(certPath, params);
-            } catch (InvalidAlgorithmParameterException e) {
-                throw new CertificateException("Chain validation failed", e);
-            } catch (CertPathValidatorException e) {
-                throw new CertificateException("Chain validation failed", e);
+            // Validate the untrusted part of the chain. We know that untrusted chains to the first
+            // trust anchor, so that is the only anchor needed. Most chains can be validated
+            // without building a CertPath; the rest, any with a stapled OCSP response to check,
+            // and all chains if the platform restricts algorithms the simple validator allows,
+            // go through the PKIX validator.
+            TrustAnchor anchor = trustAnchorChain.get(0);
+            if (ocspData != null || !simpleValidationAllowed
+                    || !SimpleChainValidator.accepts(
+                            untrustedChain, anchor, clientAuth, new Date())) {
+                validateWithPkix(untrustedChain, anchor, clientAuth, ocspData);
             }
             // Add intermediate CAs to the index to tolerate sites
             // that assume that the browser will have cached these.
             // http://b/3404902
+            long nowMillis = System.currentTimeMillis();
             for (int i = 1; i < untrustedChain.size(); i++) {
-                intermediateIndex.index(untrustedChain.get(i));
+                intermediateCache.add(untrustedChain.get(i), nowMillis);
             }
             return wholeChain;
         } catch (CertificateException e) {
@@ -703,6 +773,25 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
         }
     }
 
+    private void validateWithPkix(List<X509Certificate> untrustedChain, TrustAnchor anchor,
+                                  boolean clientAuth, byte[] ocspData)
+            throws CertificateException {
+        CertPath certPath = factory.generateCertPath(untrustedChain);
+        try {
+            PKIXParameters params = new PKIXParameters(Collections.singleton(anchor));
+            params.setRevocationEnabled(false);
+            X509Certificate endPointCert = untrustedChain.get(0);
+            setOcspResponses(params, endPointCert, ocspData);
+            params.addCertPathChecker(
+                    new ExtendedKeyUsagePKIXCertPathChecker(clientAuth, endPointCert));
+            validator.validate(certPath, params);
+        } catch (InvalidAlgorithmParameterException e) {
+            throw new CertificateException("Chain validation failed", e);
+        } catch (CertPathValidatorException e) {
+            throw new CertificateException("Chain validation failed", e);
+        }
+    }
+
     private void checkBlocklist(X509Certificate cert) throws CertificateException {
         if (blocklist != null && blocklist.isPublicKeyBlockListed(cert.getPublicKey())) {
             throw new CertificateException("Certificate blocklisted by public key: " + cert);
@@ -795,12 +884,6 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
     private static class ExtendedKeyUsagePKIXCertPathChecker extends PKIXCertPathChecker {
         private static final String EKU_OID = "2.5.29.37";
 
-        private static final String EKU_anyExtendedKeyUsage = "2.5.29.37.0";
-        private static final String EKU_clientAuth = "1.3.6.1.5.5.7.3.2";
-        private static final String EKU_serverAuth = "1.3.6.1.5.5.7.3.1";
-        private static final String EKU_nsSGC = "2.16.840.1.113730.4.1";
-        private static final String EKU_msSGC = "1.3.6.1.4.1.311.10.3.3";
-
         private static final Set<String> SUPPORTED_EXTENSIONS =
                 Collections.unmodifiableSet(new HashSet<>(Collections.singletonList(EKU_OID)));
 
@@ -833,49 +916,14 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
             if (c != leaf) {
                 return;
             }
-            List<String> ekuOids;
+            boolean goodExtendedKeyUsage;
             try {
-                ekuOids = leaf.getExtendedKeyUsage();
+                goodExtendedKeyUsage =
+                        SimpleChainValidator.hasAcceptableExtendedKeyUsage(leaf, clientAuth);
             } catch (CertificateParsingException e) {
                 // A malformed EKU is bad news, consider it fatal.
                 throw new CertPathValidatorException(e);
             }
-            // We are here to check EKU, but there is none.
-            if (ekuOids == null) {
-                return;
-            }
-
-            boolean goodExtendedKeyUsage = false;
-            for (String ekuOid : ekuOids) {
-                // anyExtendedKeyUsage for clients and servers
-                if (ekuOid.equals(EKU_anyExtendedKeyUsage)) {
-                    goodExtendedKeyUsage = true;
-                    break;
-                }
-
-                // clients
-                if (clientAuth) {
-                    if (ekuOid.equals(EKU_clientAuth)) {
-                        goodExtendedKeyUsage = true;
-                        break;
-                    }
-                    continue;
-                }
-
-                // servers
-                if (ekuOid.equals(EKU_serverAuth)) {
-                    goodExtendedKeyUsage = true;
-                    break;
-                }
-                if (ekuOid.equals(EKU_nsSGC)) {
-                    goodExtendedKeyUsage = true;
-                    break;
-                }
-                if (ekuOid.equals(EKU_msSGC)) {
-                    goodExtendedKeyUsage = true;
-                    break;
-                }
-            }
             if (goodExtendedKeyUsage) {
                 // Mark extendedKeyUsage as resolved if present.
                 unresolvedCritExts.remove(EKU_OID);
@@ -976,6 +1024,41 @@ public final class TrustManagerImpl extends X509ExtendedTrustManager {
         return hostnameVerifier;
     }
 
+    /**
+     * Sets the executor used to check the signatures of candidate issuers concurrently when a
+     * peer sends more than one certificate which may have issued another, or {@code null} (the
+     * default) to check them on the handshaking thread. Signatures the executor rejects or
+     * hasn't started on are checked on the handshaking thread.
+     */
+    void setSignatureVerificationExecutor(Executor executor) {
+        this.signatureVerificationExecutor = executor;
+    }
+
+    /**
+     * Sets the maximum number of intermediate certificates remembered from validated chains.
+     */
+    void setIntermediateCacheSize(int maximumSize) {
+        intermediateCache.setMaximumSize(maximumSize, System.currentTimeMillis());
+    }
+
+    IntermediateCacheStats getIntermediateCacheStats() {
+        return intermediateCache.getStats();
+    }
+
+    /**
+     * Enables caching of the chains this instance validates, so that peers presenting the same
+     * certificates, OCSP response and SCTs for the same host skip path building and validation.
+     * At most {@code maxEntries} decisions are kept, each for at most {@code maxAgeMillis} and
+     * never past the expiry of its chain. Certificate pinning and the blocklist are still checked
+     * for every decision, and {@link #handleTrustStorageUpdate()} forgets all decisions. If
+     * {@code maxEntries} is zero, caching is disabled (the default).
+     */
+    synchronized void setTrustDecisionCache(int maxEntries, long maxAgeMillis) {
+        checkArgument(maxEntries >= 0, "maxEntries must be >= 0");
+        decisionCache = (maxEntries == 0) ? null
+                                          : new TrustDecisionCache(maxEntries, maxAgeMillis);
+    }
+
     private ConscryptHostnameVerifier getHttpsVerifier() {
         if (hostnameVerifier != null) {
             return hostnameVerifier;
@@ -19,36 +19,47 @@ package org.conscrypt;
 import java.security.PublicKey;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.security.auth.x500.X500Principal;
 
 /**
  * Indexes {@code TrustAnchor} instances so they can be found in O(1)
  * time instead of O(N).
+ *
+ * <p>Lookups don't lock. Each subject maps to an immutable array of entries, which is replaced
+ * as a whole when an anchor is added, and {@link #reset(Set)} swaps in a complete new index.
+ * Anchors whose subject key identifier differs from the authority key identifier of the
+ * certificate being looked up cannot have issued it, so their signatures aren't checked.
  */
 @Internal
 public final class TrustedCertificateIndex {
-    private final Map<X500Principal, List<TrustAnchor>> subjectToTrustAnchors =
-            new HashMap<X500Principal, List<TrustAnchor>>();
+    private static final String SUBJECT_KEY_IDENTIFIER_OID = "2.5.29.14";
+    private static final String AUTHORITY_KEY_IDENTIFIER_OID = "2.5.29.35";
+
+    private static final int DER_TAG_OCTET_STRING = 0x04;
+    private static final int DER_TAG_SEQUENCE = 0x30;
+    private static final int DER_TAG_KEY_IDENTIFIER = 0x80;
+
+    private final Object writeLock = new Object();
+    private volatile ConcurrentMap<X500Principal, Entry[]> subjectToEntries =
+            new ConcurrentHashMap<X500Principal, Entry[]>();
 
     public TrustedCertificateIndex() {}
 
     public TrustedCertificateIndex(Set<TrustAnchor> anchors) {
-        index(anchors);
+        index(subjectToEntries, anchors);
     }
 
-    private void index(Set<TrustAnchor> anchors) {
+    private static void index(
+            ConcurrentMap<X500Principal, Entry[]> subjectToEntries, Set<TrustAnchor> anchors) {
         for (TrustAnchor anchor : anchors) {
-            index(anchor);
+            index(subjectToEntries, anchor);
         }
     }
 
@@ -59,6 +70,21 @@ public final class TrustedCertificateIndex {
     }
 
     public void index(TrustAnchor anchor) {
+        X509Certificate cert = anchor.getTrustedCert();
+        if (cert != null) {
+            // Avoid taking the lock for certificates which are already indexed
+            Entry[] entries = subjectToEntries.get(cert.getSubjectX500Principal());
+            if (entries != null && contains(entries, cert)) {
+                return;
+            }
+        }
+        synchronized (writeLock) {
+            index(subjectToEntries, anchor);
+        }
+    }
+
+    private static void index(
+            ConcurrentMap<X500Principal, Entry[]> subjectToEntries, TrustAnchor anchor) {
         X500Principal subject;
         X509Certificate cert = anchor.getTrustedCert();
         if (cert != null) {
@@ -67,90 +93,107 @@ public final class TrustedCertificateIndex {
             subject = anchor.getCA();
         }
 
-        synchronized (subjectToTrustAnchors) {
-            List<TrustAnchor> anchors = subjectToTrustAnchors.get(subject);
-            if (anchors == null) {
-                anchors = new ArrayList<TrustAnchor>(1);
-                subjectToTrustAnchors.put(subject, anchors);
-            } else {
-                // Avoid indexing the same certificate multiple times
-                if (cert != null) {
-                    for (TrustAnchor entry : anchors) {
-                        if (cert.equals(entry.getTrustedCert())) {
-                            return;
-                        }
+        Entry[] entries = subjectToEntries.get(subject);
+        Entry[] updated;
+        if (entries == null) {
+            updated = new Entry[1];
+        } else {
+            // Avoid indexing the same certificate multiple times
+            if (cert != null && contains(entries, cert)) {
+                return;
+            }
+            updated = Arrays.copyOf(entries, entries.length + 1);
+        }
+        updated[updated.length - 1] = new Entry(anchor);
+        subjectToEntries.put(subject, updated);
+    }
+
+    private static boolean contains(Entry[] entries, X509Certificate cert) {
+        for (Entry entry : entries) {
+            if (cert.equals(entry.anchor.getTrustedCert())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the anchor for {@code cert}, if it is indexed.
+     */
+    void remove(X509Certificate cert) {
+        X500Principal subject = cert.getSubjectX500Principal();
+        synchronized (writeLock) {
+            Entry[] entries = subjectToEntries.get(subject);
+            if (entries == null) {
+                return;
+            }
+            for (int i = 0; i < entries.length; i++) {
+                if (cert.equals(entries[i].anchor.getTrustedCert())) {
+                    if (entries.length == 1) {
+                        subjectToEntries.remove(subject);
+                    } else {
+                        Entry[] updated = new Entry[entries.length - 1];
+                        System.arraycopy(entries, 0, updated, 0, i);
+                        System.arraycopy(entries, i + 1, updated, i, updated.length - i);
+                        subjectToEntries.put(subject, updated);
                     }
+                    return;
                 }
             }
-            anchors.add(anchor);
         }
     }
 
     public void reset() {
-        synchronized (subjectToTrustAnchors) {
-            subjectToTrustAnchors.clear();
+        synchronized (writeLock) {
+            subjectToEntries = new ConcurrentHashMap<X500Principal, Entry[]>();
         }
     }
 
     public void reset(Set<TrustAnchor> anchors) {
-        synchronized (subjectToTrustAnchors) {
-            reset();
-            index(anchors);
+        ConcurrentMap<X500Principal, Entry[]> replacement =
+                new ConcurrentHashMap<X500Principal, Entry[]>();
+        index(replacement, anchors);
+        synchronized (writeLock) {
+            subjectToEntries = replacement;
         }
     }
 
     public TrustAnchor findByIssuerAndSignature(X509Certificate cert) {
-        X500Principal issuer = cert.getIssuerX500Principal();
-        synchronized (subjectToTrustAnchors) {
-            List<TrustAnchor> anchors = subjectToTrustAnchors.get(issuer);
-            if (anchors == null) {
-                return null;
-            }
+        Entry[] entries = subjectToEntries.get(cert.getIssuerX500Principal());
+        if (entries == null) {
+            return null;
+        }
 
-            for (TrustAnchor anchor : anchors) {
-                PublicKey publicKey;
-                try {
-                    X509Certificate caCert = anchor.getTrustedCert();
-                    if (caCert != null) {
-                        publicKey = caCert.getPublicKey();
-                    } else {
-                        publicKey = anchor.getCAPublicKey();
-                    }
-                    cert.verify(publicKey);
-                    return anchor;
-                } catch (Exception ignored) {
-                    // Ignored
-                }
+        byte[] authorityKeyId = authorityKeyIdentifier(cert);
+        for (Entry entry : entries) {
+            if (!entry.mayHaveIssued(authorityKeyId)) {
+                continue;
+            }
+            try {
+                cert.verify(entry.publicKey);
+                return entry.anchor;
+            } catch (Exception ignored) {
+                // Ignored
             }
         }
         return null;
     }
 
     public TrustAnchor findBySubjectAndPublicKey(X509Certificate cert) {
-        X500Principal subject = cert.getSubjectX500Principal();
-        synchronized (subjectToTrustAnchors) {
-            List<TrustAnchor> anchors = subjectToTrustAnchors.get(subject);
-            if (anchors == null) {
-                return null;
-            }
-            return findBySubjectAndPublicKey(cert, anchors);
+        Entry[] entries = subjectToEntries.get(cert.getSubjectX500Principal());
+        if (entries == null) {
+            return null;
         }
+        return findBySubjectAndPublicKey(cert, entries);
     }
 
-    private static TrustAnchor findBySubjectAndPublicKey(X509Certificate cert,
-                                                         Collection<TrustAnchor> anchors) {
+    private static TrustAnchor findBySubjectAndPublicKey(X509Certificate cert, Entry[] entries) {
         PublicKey certPublicKey = cert.getPublicKey();
-        for (TrustAnchor anchor : anchors) {
-            PublicKey caPublicKey;
+        for (Entry entry : entries) {
+            PublicKey caPublicKey = entry.publicKey;
             try {
-                X509Certificate caCert = anchor.getTrustedCert();
-                if (caCert != null) {
-                    caPublicKey = caCert.getPublicKey();
-                } else {
-                    caPublicKey = anchor.getCAPublicKey();
-                }
                 if (caPublicKey.equals(certPublicKey)) {
-                    return anchor;
+                    return entry.anchor;
                 } else {
                     // PublicKey.equals is not required to compare keys across providers. Fall back
                     // to checking using the encoded form.
@@ -160,7 +203,7 @@ public final class TrustedCertificateIndex {
                         byte[] certPublicKeyEncoded = certPublicKey.getEncoded();
                         if (certPublicKeyEncoded != null && caPublicKeyEncoded != null
                             && Arrays.equals(caPublicKeyEncoded, certPublicKeyEncoded)) {
-                            return anchor;
+                            return entry.anchor;
                         }
                     }
                 }
@@ -172,33 +215,115 @@ public final class TrustedCertificateIndex {
     }
 
     public Set<TrustAnchor> findAllByIssuerAndSignature(X509Certificate cert) {
-        X500Principal issuer = cert.getIssuerX500Principal();
-        synchronized (subjectToTrustAnchors) {
-            List<TrustAnchor> anchors = subjectToTrustAnchors.get(issuer);
-            if (anchors == null) {
-                return Collections.<TrustAnchor>emptySet();
+        Entry[] entries = subjectToEntries.get(cert.getIssuerX500Principal());
+        if (entries == null) {
+            return Collections.<TrustAnchor>emptySet();
+        }
+
+        byte[] authorityKeyId = authorityKeyIdentifier(cert);
+        Set<TrustAnchor> result = new HashSet<TrustAnchor>();
+        for (Entry entry : entries) {
+            if (entry.publicKey == null || !entry.mayHaveIssued(authorityKeyId)) {
+                continue;
+            }
+            try {
+                cert.verify(entry.publicKey);
+                result.add(entry.anchor);
+            } catch (Exception ignored) {
+                // Ignored
             }
+        }
+        return result;
+    }
 
-            Set<TrustAnchor> result = new HashSet<TrustAnchor>();
-            for (TrustAnchor anchor : anchors) {
-                try {
-                    PublicKey publicKey;
-                    X509Certificate caCert = anchor.getTrustedCert();
-                    if (caCert != null) {
-                        publicKey = caCert.getPublicKey();
-                    } else {
-                        publicKey = anchor.getCAPublicKey();
-                    }
-                    if (publicKey == null) {
-                        continue;
-                    }
-                    cert.verify(publicKey);
-                    result.add(anchor);
-                } catch (Exception ignored) {
-                    // Ignored
-                }
+    /**
+     * Returns the key identifier from the subject key identifier extension of {@code cert}, or
+     * {@code null} if it has none.
+     */
+    static byte[] subjectKeyIdentifier(X509Certificate cert) {
+        // SubjectKeyIdentifier ::= KeyIdentifier, which is an OCTET STRING
+        byte[] extension = extensionValue(cert, SUBJECT_KEY_IDENTIFIER_OID);
+        return derContents(extension, DER_TAG_OCTET_STRING);
+    }
+
+    /**
+     * Returns the key identifier from the authority key identifier extension of {@code cert}, or
+     * {@code null} if it has none.
+     */
+    static byte[] authorityKeyIdentifier(X509Certificate cert) {
+        // AuthorityKeyIdentifier ::= SEQUENCE { keyIdentifier [0] KeyIdentifier OPTIONAL, ... }
+        byte[] extension = extensionValue(cert, AUTHORITY_KEY_IDENTIFIER_OID);
+        return derContents(derContents(extension, DER_TAG_SEQUENCE), DER_TAG_KEY_IDENTIFIER);
+    }
+
+    private static byte[] extensionValue(X509Certificate cert, String oid) {
+        try {
+            // The extension value is wrapped in an OCTET STRING
+            return derContents(cert.getExtensionValue(oid), DER_TAG_OCTET_STRING);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the contents of the DER element at the start of {@code der} if it has the given
+     * tag, or {@code null} if it doesn't or can't be parsed.
+     */
+    private static byte[] derContents(byte[] der, int tag) {
+        if (der == null || der.length < 2 || (der[0] & 0xff) != tag) {
+            return null;
+        }
+        int offset = 2;
+        int length = der[1] & 0xff;
+        if ((length & 0x80) != 0) {
+            int lengthBytes = length & 0x7f;
+            if (lengthBytes == 0 || lengthBytes > 3 || der.length < offset + lengthBytes) {
+                return null;
+            }
+            length = 0;
+            for (int i = 0; i < lengthBytes; i++) {
+                length = (length << 8) | (der[offset++] & 0xff);
+            }
+        }
+        if (der.length - offset < length) {
+            return null;
+        }
+        return Arrays.copyOfRange(der, offset, offset + length);
+    }
+
+    private static final class Entry {
+        final TrustAnchor anchor;
+        final PublicKey publicKey;
+        final byte[] subjectKeyId;
+
+        Entry(TrustAnchor anchor) {
+            this.anchor = anchor;
+            X509Certificate caCert = anchor.getTrustedCert();
+            if (caCert != null) {
+                this.publicKey = publicKey(caCert);
+                this.subjectKeyId = subjectKeyIdentifier(caCert);
+            } else {
+                this.publicKey = anchor.getCAPublicKey();
+                this.subjectKeyId = null;
             }
-            return result;
+        }
+
+        private static PublicKey publicKey(X509Certificate caCert) {
+            try {
+                return caCert.getPublicKey();
+            } catch (RuntimeException e) {
+                // can happen with unsupported public key types
+                return null;
+            }
+        }
+
+        /**
+         * Returns whether this anchor may have issued a certificate with the given authority key
+         * identifier, which is {@code null} if the certificate doesn't have one.
+         */
+        boolean mayHaveIssued(byte[] authorityKeyId) {
+            return authorityKeyId == null || subjectKeyId == null
+                    || Arrays.equals(authorityKeyId, subjectKeyId);
         }
     }
 }
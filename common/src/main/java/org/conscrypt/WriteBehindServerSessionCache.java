@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.Preconditions.checkArgument;
+import static org.conscrypt.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * An {@link SSLServerSessionCache} which stores sessions in another cache from a background
+ * thread, so that a slow store never delays the handshake that created the session.
+ *
+ * <p>Stored sessions are queued and written to the underlying cache in batches on a single
+ * dedicated thread. The queue is bounded: if the underlying cache can't keep up, new sessions
+ * are dropped rather than blocking the handshake, which at worst costs a future resumption.
+ * Sessions which are still queued are served from the queue.
+ */
+final class WriteBehindServerSessionCache implements SSLServerSessionCache {
+    private static final Logger logger =
+            Logger.getLogger(WriteBehindServerSessionCache.class.getName());
+
+    static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    private final SSLServerSessionCache delegate;
+    private final BlockingQueue<PendingWrite> queue;
+    // The most recently queued write for each session ID which hasn't been written yet.
+    private final ConcurrentMap<ByteArray, PendingWrite> pending =
+            new ConcurrentHashMap<ByteArray, PendingWrite>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    WriteBehindServerSessionCache(SSLServerSessionCache delegate, int capacity) {
+        checkNotNull(delegate, "delegate");
+        checkArgument(capacity > 0, "capacity must be > 0");
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<PendingWrite>(capacity);
+        this.executor = new ThreadPoolExecutor(1, 1, IDLE_THREAD_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ConscryptSessionWriteBehind");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // Don't keep a thread around for contexts which rarely create sessions.
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public byte[] getSessionData(byte[] id) {
+        PendingWrite write = pending.get(new ByteArray(id));
+        if (write != null) {
+            return write.data;
+        }
+        return delegate.getSessionData(id);
+    }
+
+    @Override
+    public void putSessionData(SSLSession session, byte[] sessionData) {
+        checkNotNull(session, "session");
+        checkNotNull(sessionData, "sessionData");
+        ByteArray key = new ByteArray(session.getId());
+        PendingWrite write = new PendingWrite(key, session, sessionData);
+        if (!queue.offer(write)) {
+            onDropped();
+            return;
+        }
+        pending.put(key, write);
+        // The writer may already have stored it, in which case it found nothing to remove.
+        if (write.written) {
+            pending.remove(key, write);
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Returns the number of sessions which were not stored because the queue was full.
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Stops accepting new sessions once the queued ones have been written.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits up to the given time for the sessions queued before {@link #shutdown} to be written.
+     * Returns whether they were written before the time elapsed.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(flushTask);
+            } catch (RejectedExecutionException e) {
+                // We've been shut down, so drop whatever is left.
+                flushScheduled.set(false);
+                PendingWrite write;
+                while ((write = queue.poll()) != null) {
+                    markWritten(write);
+                    onDropped();
+                }
+            }
+        }
+    }
+
+    private void flush() {
+        List<PendingWrite> batch = new ArrayList<PendingWrite>(MAX_BATCH_SIZE);
+        boolean completed = false;
+        try {
+            for (;;) {
+                queue.drainTo(batch, MAX_BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    flushScheduled.set(false);
+                    // A session may have been queued after the drain but before the flag was
+                    // cleared, in which case its scheduleFlush() call saw the flag set and did
+                    // nothing.
+                    if (queue.isEmpty() || !flushScheduled.compareAndSet(false, true)) {
+                        completed = true;
+                        return;
+                    }
+                    continue;
+                }
+                for (PendingWrite write : batch) {
+                    try {
+                        delegate.putSessionData(write.session, write.data);
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "Failed to store session", e);
+                    } finally {
+                        markWritten(write);
+                    }
+                }
+                batch.clear();
+            }
+        } finally {
+            if (!completed) {
+                // The delegate threw an Error, which ends this task. Drop the rest of the batch
+                // and hand whatever is still queued to a new task, since scheduleFlush() does
+                // nothing while the flag is set.
+                for (PendingWrite write : batch) {
+                    if (!write.written) {
+                        markWritten(write);
+                        onDropped();
+                    }
+                }
+                flushScheduled.set(false);
+                if (!queue.isEmpty()) {
+                    scheduleFlush();
+                }
+            }
+        }
+    }
+
+    private void markWritten(PendingWrite write) {
+        write.written = true;
+        pending.remove(write.key, write);
+    }
+
+    private void onDropped() {
+        if (droppedCount.getAndIncrement() == 0) {
+            logger.warning("Session store is not keeping up, dropping sessions");
+        }
+    }
+
+    private static final class PendingWrite {
+        final ByteArray key;
+        final SSLSession session;
+        final byte[] data;
+        // Set once the write is no longer queued, so it must not be left in pending.
+        volatile boolean written;
+
+        PendingWrite(ByteArray key, SSLSession session, byte[] data) {
+            this.key = key;
+            this.session = session;
+            this.data = data;
+        }
+    }
+}
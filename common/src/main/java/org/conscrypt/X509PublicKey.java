@@ -47,7 +47,8 @@ final class X509PublicKey implements PublicKey {
 
     @Override
     public byte[] getEncoded() {
-        return encoded;
+        // Certificates cache their public key, so callers must not be able to change it.
+        return encoded.clone();
     }
 
     @Override
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.TrustedCertificateIndexTest.CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.LEAF_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.OTHER_CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.decode;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class CandidateIssuerVerifierTest {
+    private static X509Certificate ca;
+    private static X509Certificate otherCa;
+    private static X509Certificate leaf;
+
+    @BeforeClass
+    public static void decodeCertificates() throws Exception {
+        ca = decode(CA_PEM);
+        otherCa = decode(OTHER_CA_PEM);
+        leaf = decode(LEAF_PEM);
+    }
+
+    @Test
+    public void verifiedIssuers_onCallingThread() throws Exception {
+        CandidateIssuerVerifier verifier = new CandidateIssuerVerifier(null);
+        assertEquals(Collections.singletonList(ca),
+                verifier.verifiedIssuers(leaf, Arrays.asList(otherCa, ca)));
+        assertEquals(Collections.emptyList(),
+                verifier.verifiedIssuers(leaf, Collections.singletonList(otherCa)));
+    }
+
+    @Test
+    public void verifiedIssuers_onExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CandidateIssuerVerifier verifier = new CandidateIssuerVerifier(executor);
+            List<X509Certificate> candidates = Arrays.asList(otherCa, ca, otherCa, ca);
+            assertEquals(Arrays.asList(ca, ca), verifier.verifiedIssuers(leaf, candidates));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void verifiedIssuers_busyExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            // The executor's only thread is blocked until after the verification, so the queued
+            // checks must be run by the calling thread.
+            CandidateIssuerVerifier verifier = new CandidateIssuerVerifier(executor);
+            List<X509Certificate> candidates = Arrays.asList(otherCa, ca, otherCa);
+            assertEquals(Collections.singletonList(ca),
+                    verifier.verifiedIssuers(leaf, candidates));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void verifiedIssuers_executorRejects() throws Exception {
+        final AtomicInteger executed = new AtomicInteger();
+        CandidateIssuerVerifier verifier = new CandidateIssuerVerifier(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executed.incrementAndGet();
+                throw new RejectedExecutionException();
+            }
+        });
+        List<X509Certificate> candidates = Arrays.asList(ca, otherCa);
+        assertEquals(Collections.singletonList(ca), verifier.verifiedIssuers(leaf, candidates));
+        assertEquals(1, executed.get());
+
+        // Results are remembered, so nothing is verified again.
+        assertEquals(Collections.singletonList(ca), verifier.verifiedIssuers(leaf, candidates));
+        assertEquals(1, executed.get());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+@RunWith(JUnit4.class)
+public class CertificateInternerTest {
+    // openssl req -x509 -nodes -days 3650 -subj '/CN=interned.test' -newkey ec \
+    //   -pkeyopt ec_paramgen_curve:prime256v1 -keyout k.pem -out c.pem
+    private static final String FIRST_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBhjCCASugAwIBAgIUCrjUBttDohCqSwKV6w3mDijnZfowCgYIKoZIzj0EAwIw\n"
+            + "GDEWMBQGA1UEAwwNaW50ZXJuZWQudGVzdDAeFw0yNjEwMTcwMDQ0MThaFw0zNjEw\n"
+            + "MTQwMDQ0MThaMBgxFjAUBgNVBAMMDWludGVybmVkLnRlc3QwWTATBgcqhkjOPQIB\n"
+            + "BggqhkjOPQMBBwNCAARXJhsAFnhAaTnIJyWoDhmT7OnFygdCTmmmduxhRowVfDYp\n"
+            + "YNWlq07VZs+hJsx+ToEl50aZHOYjkLmRwbuvrKRco1MwUTAdBgNVHQ4EFgQUzXEI\n"
+            + "OqAWo1cjVczE/JD0sKen4zIwHwYDVR0jBBgwFoAUzXEIOqAWo1cjVczE/JD0sKen\n"
+            + "4zIwDwYDVR0TAQH/BAUwAwEB/zAKBggqhkjOPQQDAgNJADBGAiEAoA70+7hmDF6O\n"
+            + "ZSUHOIN3gZTPO3aogGONV80A2iPjQXkCIQCLyZhr9pOgsVW8a9nygEbyJoDsPeEn\n"
+            + "p+d+hRq34Ul0RQ==\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // As above, with -subj '/CN=other.test'
+    private static final String SECOND_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBfzCCASWgAwIBAgIULTx+TiplUD2qBQ874GD8EuObFakwCgYIKoZIzj0EAwIw\n"
+            + "FTETMBEGA1UEAwwKb3RoZXIudGVzdDAeFw0yNjEwMTcwMDQ0NThaFw0zNjEwMTQw\n"
+            + "MDQ0NThaMBUxEzARBgNVBAMMCm90aGVyLnRlc3QwWTATBgcqhkjOPQIBBggqhkjO\n"
+            + "PQMBBwNCAASzbw0aJiEO3UjD3NzFBq+3rMBjiGfrBIBccPMhGs1FpN6VWYIRmmAb\n"
+            + "4B3v48xsviax3eeXhjLV6Gu0G3WA0HjKo1MwUTAdBgNVHQ4EFgQUVBlmMrToOSvR\n"
+            + "+tS/Lgse5kD+AtIwHwYDVR0jBBgwFoAUVBlmMrToOSvR+tS/Lgse5kD+AtIwDwYD\n"
+            + "VR0TAQH/BAUwAwEB/zAKBggqhkjOPQQDAgNIADBFAiEA3oyItNQ7E3m51b2yvAM7\n"
+            + "Vif3TcdDFOYo1QnKt+gBhNcCICPygP8mqwtcVXwNQCOj5WA0qQSkuE5kLt1HeDji\n"
+            + "I8GB\n"
+            + "-----END CERTIFICATE-----\n";
+
+    @Test
+    public void intern_returnsFirstCertificateForEqualEncodings() throws Exception {
+        CertificateInterner interner = new CertificateInterner(10);
+        X509Certificate first = decode(FIRST_PEM);
+        X509Certificate copy = decode(FIRST_PEM);
+
+        assertNull(interner.get(first.getEncoded()));
+        assertSame(first, interner.intern(first.getEncoded(), first));
+        assertSame(first, interner.intern(copy.getEncoded(), copy));
+        // Looked up by contents, not by array identity.
+        assertSame(first, interner.get(copy.getEncoded()));
+        assertEquals(1, interner.size());
+    }
+
+    @Test
+    public void intern_keepsDifferentCertificatesApart() throws Exception {
+        CertificateInterner interner = new CertificateInterner(10);
+        X509Certificate first = decode(FIRST_PEM);
+        X509Certificate second = decode(SECOND_PEM);
+
+        interner.intern(first.getEncoded(), first);
+        interner.intern(second.getEncoded(), second);
+        assertSame(first, interner.get(first.getEncoded()));
+        assertSame(second, interner.get(second.getEncoded()));
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    public void intern_isBounded() throws Exception {
+        CertificateInterner interner = new CertificateInterner(1);
+        X509Certificate first = decode(FIRST_PEM);
+        X509Certificate second = decode(SECOND_PEM);
+
+        interner.intern(first.getEncoded(), first);
+        // Still returned to the caller, even though one of the two has to be dropped.
+        assertSame(second, interner.intern(second.getEncoded(), second));
+        assertEquals(1, interner.size());
+    }
+
+    private static X509Certificate decode(String pem) throws Exception {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        return (X509Certificate) cf.generateCertificate(
+                new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
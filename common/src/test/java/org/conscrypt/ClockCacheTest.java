@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@RunWith(JUnit4.class)
+public class ClockCacheTest {
+    @Test
+    public void evictsUnreferencedEntries() {
+        ClockCache<String, Integer> cache = new ClockCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+
+        cache.put("c", 3);
+        assertEquals(2, cache.size());
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+    }
+
+    @Test
+    public void evictionDoesNotDependOnHashOrder() {
+        ClockCache<Integer, Integer> cache = new ClockCache<Integer, Integer>(4);
+        cache.put(0, 0);
+        // Keep using the key in the lowest hash bin; it must survive all the others.
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(Integer.valueOf(0), cache.get(0));
+            cache.put(i, i);
+        }
+        assertEquals(Integer.valueOf(100), cache.get(100));
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void removedEntryFreesItsSlot() {
+        ClockCache<String, Integer> cache = new ClockCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.remove("a", 1);
+        cache.put("c", 3);
+        assertEquals(Integer.valueOf(2), cache.get("b"));
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+    }
+
+    @Test
+    public void putReplacesValue() {
+        ClockCache<String, Integer> cache = new ClockCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.put("a", 2);
+        assertEquals(1, cache.size());
+        assertEquals(Integer.valueOf(2), cache.get("a"));
+    }
+
+    @Test
+    public void putIfAbsentKeepsExistingValue() {
+        ClockCache<String, Integer> cache = new ClockCache<String, Integer>(2);
+        assertNull(cache.putIfAbsent("a", 1));
+        assertEquals(Integer.valueOf(1), cache.putIfAbsent("a", 2));
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertTrue(cache.containsKey("a"));
+    }
+
+    @Test
+    public void removeOnlyMatchingValue() {
+        ClockCache<String, Integer> cache = new ClockCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.remove("a", 2);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.remove("a", 1);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void concurrentUseStaysBounded() throws Exception {
+        final ClockCache<Integer, Integer> cache = new ClockCache<Integer, Integer>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 10000; i++) {
+                            Integer key = (i * 31 + seed) % 500;
+                            Integer value = cache.get(key);
+                            if (value != null) {
+                                assertEquals(key, value);
+                            } else {
+                                cache.putIfAbsent(key, key);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 64);
+    }
+
+    @Test
+    public void rejectsNonPositiveSize() {
+        try {
+            new ClockCache<String, Integer>(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.TrustedCertificateIndexTest.CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.LEAF_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.OTHER_CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.decode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class IntermediateCertificateCacheTest {
+    private static X509Certificate ca;
+    private static X509Certificate otherCa;
+    private static X509Certificate leaf;
+    private static long now;
+
+    @BeforeClass
+    public static void decodeCertificates() throws Exception {
+        ca = decode(CA_PEM);
+        otherCa = decode(OTHER_CA_PEM);
+        leaf = decode(LEAF_PEM);
+        now = ca.getNotBefore().getTime();
+    }
+
+    @Test
+    public void findAllByIssuerAndSignature_findsAddedIssuer() throws Exception {
+        IntermediateCertificateCache cache = new IntermediateCertificateCache(16);
+        assertTrue(cache.findAllByIssuerAndSignature(leaf, now).isEmpty());
+
+        cache.add(ca, now);
+        cache.add(otherCa, now);
+        Set<TrustAnchor> found = cache.findAllByIssuerAndSignature(leaf, now);
+        assertEquals(1, found.size());
+        assertEquals(ca, found.iterator().next().getTrustedCert());
+
+        IntermediateCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void findAllByIssuerAndSignature_dropsExpiredIssuer() throws Exception {
+        IntermediateCertificateCache cache = new IntermediateCertificateCache(16);
+        cache.add(ca, now);
+
+        long expired = ca.getNotAfter().getTime() + 1;
+        assertTrue(cache.findAllByIssuerAndSignature(leaf, expired).isEmpty());
+        assertEquals(0, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getExpiryEvictionCount());
+
+        // Expired certificates aren't added at all.
+        cache.add(ca, expired);
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void add_evictsLeastRecentlyUsed() throws Exception {
+        IntermediateCertificateCache cache = new IntermediateCertificateCache(2);
+        cache.add(ca, now);
+        cache.add(otherCa, now + 1);
+        assertEquals(1, cache.findAllByIssuerAndSignature(leaf, now + 2).size());
+
+        // The lookup above made otherCa the least recently used.
+        cache.add(leaf, now + 3);
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getSizeEvictionCount());
+        assertEquals(1, cache.findAllByIssuerAndSignature(leaf, now + 4).size());
+
+        cache.setMaximumSize(1, now + 5);
+        assertEquals(1, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getMaximumSize());
+    }
+}
@@ -136,7 +136,7 @@ public class NativeCryptoArgTest {
                                       .hasArg(0, long.class)
                                       .hasArg(1, conscryptClass("NativeSsl"))
                                       .except(nonThrowingMethods)
-                                      .expectSize(60)
+                                      .expectSize(67)
                                       .build();
 
         testMethods(filter, NullPointerException.class);
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+
+@RunWith(JUnit4.class)
+public class PooledBufferAllocatorTest {
+    @Test
+    public void sizeClass() {
+        assertEquals(0, PooledBufferAllocator.sizeClass(0));
+        assertEquals(0, PooledBufferAllocator.sizeClass(PooledBufferAllocator.MIN_SIZE_CLASS));
+        assertEquals(1, PooledBufferAllocator.sizeClass(PooledBufferAllocator.MIN_SIZE_CLASS + 1));
+        assertEquals(PooledBufferAllocator.MAX_SIZE_CLASS,
+                PooledBufferAllocator.sizeClassCapacity(
+                        PooledBufferAllocator.sizeClass(PooledBufferAllocator.MAX_SIZE_CLASS)));
+        assertEquals(-1, PooledBufferAllocator.sizeClass(PooledBufferAllocator.MAX_SIZE_CLASS + 1));
+    }
+
+    @Test
+    public void allocate_setsLimitToRequestedCapacity() {
+        PooledBufferAllocator allocator = new PooledBufferAllocator(4, 4);
+
+        AllocatedBuffer direct = allocator.allocateDirectBuffer(1000);
+        assertTrue(direct.nioBuffer().isDirect());
+        assertEquals(0, direct.nioBuffer().position());
+        assertEquals(1000, direct.nioBuffer().limit());
+        assertEquals(1024, direct.nioBuffer().capacity());
+
+        AllocatedBuffer heap = allocator.allocateHeapBuffer(1000);
+        assertFalse(heap.nioBuffer().isDirect());
+        assertEquals(1000, heap.nioBuffer().remaining());
+    }
+
+    @Test
+    public void release_recyclesBuffer() {
+        PooledBufferAllocator allocator = new PooledBufferAllocator(4, 4);
+
+        AllocatedBuffer first = allocator.allocateDirectBuffer(16 * 1024);
+        ByteBuffer buffer = first.nioBuffer();
+        buffer.position(100);
+        first.release();
+
+        AllocatedBuffer second = allocator.allocateDirectBuffer(10000);
+        assertSame(buffer, second.nioBuffer());
+        assertEquals(0, buffer.position());
+        assertEquals(10000, buffer.limit());
+
+        // Heap and direct buffers are pooled separately.
+        second.release();
+        assertFalse(allocator.allocateHeapBuffer(10000).nioBuffer().isDirect());
+    }
+
+    @Test
+    public void release_fromOtherThreadGoesToArena() throws Exception {
+        final PooledBufferAllocator allocator = new PooledBufferAllocator(4, 0);
+        final AllocatedBuffer allocated = allocator.allocateHeapBuffer(2048);
+        ByteBuffer buffer = allocated.nioBuffer();
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                allocated.release();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertSame(buffer, allocator.allocateHeapBuffer(2048).nioBuffer());
+    }
+
+    @Test
+    public void release_whenPoolFullDropsBuffer() {
+        PooledBufferAllocator allocator = new PooledBufferAllocator(0, 0);
+
+        AllocatedBuffer first = allocator.allocateDirectBuffer(512);
+        ByteBuffer buffer = first.nioBuffer();
+        first.release();
+
+        assertNotSame(buffer, allocator.allocateDirectBuffer(512).nioBuffer());
+    }
+
+    @Test
+    public void allocate_largeBufferIsNotPooled() {
+        PooledBufferAllocator allocator = new PooledBufferAllocator(4, 4);
+        int capacity = PooledBufferAllocator.MAX_SIZE_CLASS + 1;
+
+        AllocatedBuffer first = allocator.allocateDirectBuffer(capacity);
+        ByteBuffer buffer = first.nioBuffer();
+        assertEquals(capacity, buffer.capacity());
+        first.release();
+
+        assertNotSame(buffer, allocator.allocateDirectBuffer(capacity).nioBuffer());
+    }
+
+    @Test
+    public void release_twiceThrows() {
+        AllocatedBuffer buffer = BufferAllocator.pooled().allocateDirectBuffer(100);
+        buffer.release();
+        try {
+            buffer.release();
+            fail();
+        } catch (IllegalStateException expected) {
+            // Expected.
+        }
+    }
+}
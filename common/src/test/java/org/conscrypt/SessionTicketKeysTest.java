@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class SessionTicketKeysTest {
+    private static final long OVERLAP = 1000;
+
+    private final byte[] keyA = newKey(1);
+    private final byte[] keyB = newKey(2);
+    private final byte[] keyC = newKey(3);
+
+    @Test
+    public void noKeys() {
+        SessionTicketKeys keys = new SessionTicketKeys();
+        assertNull(keys.getKeys(0));
+
+        keys.add(keyA, 100);
+        assertNull(keys.getKeys(99));
+    }
+
+    @Test
+    public void rotation() {
+        SessionTicketKeys keys = new SessionTicketKeys();
+        keys.setOverlapMillis(OVERLAP);
+        keys.add(keyA, 0);
+        keys.add(keyC, 20000);
+        keys.add(keyB, 10000);
+
+        assertArrayEquals(concat(keyA), keys.getKeys(5000));
+        // B is accepted shortly before it starts issuing tickets...
+        assertArrayEquals(concat(keyA, keyB), keys.getKeys(9500));
+        // ...and A shortly after it stops.
+        assertArrayEquals(concat(keyB, keyA), keys.getKeys(10000));
+        assertArrayEquals(concat(keyB, keyA), keys.getKeys(10999));
+        assertArrayEquals(concat(keyB), keys.getKeys(11000));
+        assertArrayEquals(concat(keyC, keyB), keys.getKeys(20500));
+        assertArrayEquals(concat(keyC), keys.getKeys(30000));
+    }
+
+    @Test
+    public void clear() {
+        SessionTicketKeys keys = new SessionTicketKeys();
+        keys.add(keyA, 0);
+        assertArrayEquals(keyA, keys.getKeys(0));
+
+        keys.clear();
+        assertNull(keys.getKeys(0));
+    }
+
+    @Test
+    public void add_copiesKey() {
+        SessionTicketKeys keys = new SessionTicketKeys();
+        byte[] key = keyA.clone();
+        keys.add(key, 0);
+        key[0]++;
+        assertArrayEquals(keyA, keys.getKeys(0));
+    }
+
+    @Test
+    public void add_wrongLengthThrows() {
+        SessionTicketKeys keys = new SessionTicketKeys();
+        try {
+            keys.add(new byte[SessionTicketKeys.KEY_LENGTH - 1], 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected.
+        }
+    }
+
+    private static byte[] newKey(int value) {
+        byte[] key = new byte[SessionTicketKeys.KEY_LENGTH];
+        Arrays.fill(key, (byte) value);
+        return key;
+    }
+
+    private static byte[] concat(byte[]... keys) {
+        byte[] result = new byte[keys.length * SessionTicketKeys.KEY_LENGTH];
+        for (int i = 0; i < keys.length; i++) {
+            System.arraycopy(keys[i], 0, result, i * SessionTicketKeys.KEY_LENGTH,
+                             SessionTicketKeys.KEY_LENGTH);
+        }
+        return result;
+    }
+}
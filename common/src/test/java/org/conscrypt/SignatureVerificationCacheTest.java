@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.TrustedCertificateIndexTest.CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.LEAF_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.OTHER_CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.decode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.cert.X509Certificate;
+
+@RunWith(JUnit4.class)
+public class SignatureVerificationCacheTest {
+    private static X509Certificate ca;
+    private static X509Certificate otherCa;
+    private static X509Certificate leaf;
+
+    @BeforeClass
+    public static void decodeCertificates() throws Exception {
+        ca = decode(CA_PEM);
+        otherCa = decode(OTHER_CA_PEM);
+        leaf = decode(LEAF_PEM);
+    }
+
+    @Test
+    public void key_identifiesCertificateAndKey() throws Exception {
+        SignatureVerificationCache.Key key =
+                SignatureVerificationCache.key(leaf, ca.getPublicKey());
+        // Equal certificates and keys decoded separately have equal keys.
+        assertEquals(key, SignatureVerificationCache.key(decode(LEAF_PEM), ca.getPublicKey()));
+        assertNotEquals(key, SignatureVerificationCache.key(leaf, otherCa.getPublicKey()));
+        assertNotEquals(key, SignatureVerificationCache.key(ca, ca.getPublicKey()));
+    }
+
+    @Test
+    public void contains_onlyAddedSignatures() throws Exception {
+        SignatureVerificationCache cache = new SignatureVerificationCache(16);
+        SignatureVerificationCache.Key key =
+                SignatureVerificationCache.key(leaf, ca.getPublicKey());
+        assertFalse(cache.contains(key));
+
+        cache.add(key);
+        assertTrue(cache.contains(key));
+        assertFalse(cache.contains(SignatureVerificationCache.key(leaf, otherCa.getPublicKey())));
+    }
+
+    @Test
+    public void add_isBounded() throws Exception {
+        SignatureVerificationCache cache = new SignatureVerificationCache(2);
+        cache.add(SignatureVerificationCache.key(leaf, ca.getPublicKey()));
+        cache.add(SignatureVerificationCache.key(leaf, otherCa.getPublicKey()));
+        cache.add(SignatureVerificationCache.key(ca, ca.getPublicKey()));
+        assertEquals(2, cache.size());
+    }
+}
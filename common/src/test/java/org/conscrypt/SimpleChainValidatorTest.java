@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.TrustedCertificateIndexTest.CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.LEAF_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.OTHER_CA_PEM;
+import static org.conscrypt.TrustedCertificateIndexTest.decode;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+@RunWith(JUnit4.class)
+public class SimpleChainValidatorTest {
+    // Issued by TrustedCertificateIndexTest.LEAF_PEM, which is not a CA.
+    private static final String NOT_CA_ISSUED_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBdjCCARygAwIBAgIUNRUqRDMFIwsb2AfY1W2A4oCUA5AwCgYIKoZIzj0EAwIw\n"
+            + "FDESMBAGA1UEAwwJbGVhZi50ZXN0MB4XDTI2MTAxNzAwNTI1MloXDTM2MTAxNDAw\n"
+            + "NTI1MlowEzERMA8GA1UEAwwIc3ViLnRlc3QwWTATBgcqhkjOPQIBBggqhkjOPQMB\n"
+            + "BwNCAAS+y0tyLTfyFlb2lB+H1bXZ/YpHWbpMcc5ZtC91jtIzM4W9ZTfCpLjKwnTl\n"
+            + "OWUNdVCFYvapykqGH7f6Ge75agq6o00wSzAJBgNVHRMEAjAAMB0GA1UdDgQWBBRp\n"
+            + "FPOBAfMcC8lPTPt/gKZ7ayYaqDAfBgNVHSMEGDAWgBTTI5Vcld4hy6NDUc4tMcN2\n"
+            + "AZ6h2jAKBggqhkjOPQQDAgNIADBFAiEAmhw9ENp563+AKKAsMMLSD3xUrUKtAPZz\n"
+            + "9YjjvYu5FSkCIHl/aOiLi9Q3oTJRJELfRUhVl3q3600ttBzsBfhBE84g\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // openssl req -x509 -nodes -days 3650 -subj '/CN=Constrained Test CA' -newkey ec \
+    //   -pkeyopt ec_paramgen_curve:prime256v1 -keyout ca.key -out ca.pem \
+    //   -addext "nameConstraints=critical,permitted;DNS:.example.com"
+    private static final String CONSTRAINED_CA_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBsTCCAVegAwIBAgIUCsK9orH84/yxOH9PigvO7nbl68swCgYIKoZIzj0EAwIw\n"
+            + "HjEcMBoGA1UEAwwTQ29uc3RyYWluZWQgVGVzdCBDQTAeFw0yNjEwMTcwMDUyNTJa\n"
+            + "Fw0zNjEwMTQwMDUyNTJaMB4xHDAaBgNVBAMME0NvbnN0cmFpbmVkIFRlc3QgQ0Ew\n"
+            + "WTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAAQ0pg6XKUm+3eCrrfzQI3tEBIhjwFzY\n"
+            + "CcVZE/U+rgItzFoSRepI32HEN7+feUiiAK2g5/Bjbs5s3tgZ/5nFFrXuo3MwcTAd\n"
+            + "BgNVHQ4EFgQUsYsEhsR9P12epPWFBZxNvmO6wwswHwYDVR0jBBgwFoAUsYsEhsR9\n"
+            + "P12epPWFBZxNvmO6wwswDwYDVR0TAQH/BAUwAwEB/zAeBgNVHR4BAf8EFDASoBAw\n"
+            + "DoIMLmV4YW1wbGUuY29tMAoGCCqGSM49BAMCA0gAMEUCIG1RDbwjEBomGafE2J6l\n"
+            + "pSFNUE4ohjhov2YG+bhEWRFkAiEAgtzlaFcFToT3uLzjq6sXVWOm30FbzXk8a8tc\n"
+            + "F4e4wc0=\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // Issued by CONSTRAINED_CA_PEM.
+    private static final String CONSTRAINED_LEAF_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBhzCCAS2gAwIBAgIUJKagHHtOzLON4qIJVxMhmXjXCbwwCgYIKoZIzj0EAwIw\n"
+            + "HjEcMBoGA1UEAwwTQ29uc3RyYWluZWQgVGVzdCBDQTAeFw0yNjEwMTcwMDUyNTJa\n"
+            + "Fw0zNjEwMTQwMDUyNTJaMBoxGDAWBgNVBAMMD3d3dy5leGFtcGxlLmNvbTBZMBMG\n"
+            + "ByqGSM49AgEGCCqGSM49AwEHA0IABDDVot17nDpfnaUtUy40oUQhaT5RBpcxPxIW\n"
+            + "7+PZ7K3b/6WnMYIcFT1g+wFEelxWsQyXeR46M6u7TykjO4eS16qjTTBLMAkGA1Ud\n"
+            + "EwQCMAAwHQYDVR0OBBYEFEm7weXLdYK41HAhIM0Ij9dSDZLiMB8GA1UdIwQYMBaA\n"
+            + "FLGLBIbEfT9dnqT1hQWcTb5jusMLMAoGCCqGSM49BAMCA0gAMEUCIQCQOkew/uYB\n"
+            + "Hu5LX3xfiuFQKsS3+VJ61E8kHxz2elOX9gIgdtQlW5s+os4MdBekBpTLdLj3ttRr\n"
+            + "LTAOlMsiRFL8SsA=\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // A P-192 end-entity certificate issued by TrustedCertificateIndexTest.CA_PEM, which
+    // OpenJDK's default jdk.certpath.disabledAlgorithms rejects (EC keySize < 224).
+    private static final String P192_LEAF_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBbDCCARGgAwIBAgIUccpjVCvz6w18HUxPe142ZjXzxvQwCgYIKoZIzj0EAwIw\n"
+            + "GDEWMBQGA1UEAwwNSW5kZXggVGVzdCBDQTAeFw0yNjEwMTcwMTExNDBaFw0zNjEw\n"
+            + "MTQwMTExNDBaMBQxEjAQBgNVBAMMCXAxOTIudGVzdDBJMBMGByqGSM49AgEGCCqG\n"
+            + "SM49AwEBAzIABKXmhcKBWSXukrIT+gJYvVsOnh0r+b/Ddx9yacFZAlaP4sgTmYM3\n"
+            + "oE6OpvXNxexML6NNMEswHwYDVR0jBBgwFoAUjOG/TAWtw+VbpknanK5RaCVBRX0w\n"
+            + "CQYDVR0TBAIwADAdBgNVHQ4EFgQUk9tY4xNtG2Bb4E4N4NTH+O0PMkgwCgYIKoZI\n"
+            + "zj0EAwIDSQAwRgIhAKlmNFbBfqxZEuARq/Dy0ECByV6WOfXtvEJfuTAUectFAiEA\n"
+            + "4W3jIJdWVXblJsL+CYF/9llUU3MqekuHjh0LcItLoVE=\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // A 1024-bit RSA end-entity certificate issued by TrustedCertificateIndexTest.CA_PEM, which
+    // platforms configured with RSA keySize < 2048 reject.
+    private static final String RSA1024_LEAF_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBwzCCAWigAwIBAgIUccpjVCvz6w18HUxPe142ZjXzxvMwCgYIKoZIzj0EAwIw\n"
+            + "GDEWMBQGA1UEAwwNSW5kZXggVGVzdCBDQTAeFw0yNjEwMTcwMTExMzRaFw0zNjEw\n"
+            + "MTQwMTExMzRaMBQxEjAQBgNVBAMMCXdlYWsudGVzdDCBnzANBgkqhkiG9w0BAQEF\n"
+            + "AAOBjQAwgYkCgYEAvJ0Sjec9QcHD0ODcas7lRS5zgI5YpZLWhqXqRSyQiYj4tiPz\n"
+            + "fHF87WxzNE6v3WX0v5xLkpGDqaNxs7zIrW4gGdTYwzXLuutW55p5eFBrFBJ+N6GM\n"
+            + "7yAqcq2Z+MOzGpnUSpGRKiy0d9N5RoAG6xGb2K0Bh4X3F5Kjf2hDk3idd6MCAwEA\n"
+            + "AaNNMEswHwYDVR0jBBgwFoAUjOG/TAWtw+VbpknanK5RaCVBRX0wCQYDVR0TBAIw\n"
+            + "ADAdBgNVHQ4EFgQU/gXN+uw1bMh5xlBUk9vI1U12YwkwCgYIKoZIzj0EAwIDSQAw\n"
+            + "RgIhAP2Zmlee8Emx/0HYQ8lmzZBsSvJTMs8vT5q2LEfaJ/3OAiEAsE9jnkhCyDBh\n"
+            + "gV9PWS9td3X0WK0LHugFyHiSmyTeRBE=\n"
+            + "-----END CERTIFICATE-----\n";
+
+    private static X509Certificate ca;
+    private static X509Certificate otherCa;
+    private static X509Certificate leaf;
+    private static Date now;
+
+    @BeforeClass
+    public static void decodeCertificates() throws Exception {
+        ca = decode(CA_PEM);
+        otherCa = decode(OTHER_CA_PEM);
+        leaf = decode(LEAF_PEM);
+        now = new Date(decode(CONSTRAINED_LEAF_PEM).getNotBefore().getTime() + 86400000L);
+    }
+
+    @Test
+    public void accepts_validChain() throws Exception {
+        TrustAnchor anchor = new TrustAnchor(ca, null);
+        assertTrue(SimpleChainValidator.accepts(
+                Collections.singletonList(leaf), anchor, false, now));
+        assertTrue(SimpleChainValidator.accepts(
+                Collections.singletonList(leaf), anchor, true, now));
+
+        // The self-signed CA as an intermediate under itself.
+        assertTrue(SimpleChainValidator.accepts(Arrays.asList(leaf, ca), anchor, false, now));
+
+        // An anchor without a certificate.
+        TrustAnchor keyAnchor =
+                new TrustAnchor(ca.getSubjectX500Principal(), ca.getPublicKey(), null);
+        assertTrue(SimpleChainValidator.accepts(
+                Collections.singletonList(leaf), keyAnchor, false, now));
+    }
+
+    @Test
+    public void accepts_wrongIssuerKey() throws Exception {
+        assertFalse(SimpleChainValidator.accepts(
+                Collections.singletonList(leaf), new TrustAnchor(otherCa, null), false, now));
+    }
+
+    @Test
+    public void accepts_outsideValidityPeriod() throws Exception {
+        Date expired = new Date(leaf.getNotAfter().getTime() + 1);
+        assertFalse(SimpleChainValidator.accepts(
+                Collections.singletonList(leaf), new TrustAnchor(ca, null), false, expired));
+    }
+
+    @Test
+    public void accepts_intermediateNotCa() throws Exception {
+        X509Certificate notCaIssued = decode(NOT_CA_ISSUED_PEM);
+        assertFalse(SimpleChainValidator.accepts(
+                Arrays.asList(notCaIssued, leaf), new TrustAnchor(ca, null), false, now));
+    }
+
+    @Test
+    public void accepts_nameConstraintsLeftToPkix() throws Exception {
+        X509Certificate constrainedCa = decode(CONSTRAINED_CA_PEM);
+        X509Certificate constrainedLeaf = decode(CONSTRAINED_LEAF_PEM);
+        assertFalse(SimpleChainValidator.accepts(Collections.singletonList(constrainedLeaf),
+                new TrustAnchor(constrainedCa, null), false, now));
+    }
+
+    @Test
+    public void accepts_weakKeysLeftToPkix() throws Exception {
+        TrustAnchor anchor = new TrustAnchor(ca, null);
+        assertFalse(SimpleChainValidator.accepts(
+                Collections.singletonList(decode(P192_LEAF_PEM)), anchor, false, now));
+        assertFalse(SimpleChainValidator.accepts(
+                Collections.singletonList(decode(RSA1024_LEAF_PEM)), anchor, false, now));
+    }
+
+    @Test
+    public void isCompatibleWithPolicy_defaultPolicy() {
+        assertTrue(SimpleChainValidator.isCompatibleWithPolicy(null, null));
+        // The OpenJDK 17 default, with part of its disabled curves.
+        assertTrue(SimpleChainValidator.isCompatibleWithPolicy("MD2, MD5, "
+                        + "SHA1 jdkCA & usage TLSServer, RSA keySize < 1024, DSA keySize < 1024, "
+                        + "EC keySize < 224, SHA1 usage SignedJAR & denyAfter 2019-01-01, "
+                        + "include jdk.disabled.namedCurves",
+                "secp112r1, secp256k1, X9.63 c2tnb191v1, brainpoolP512r1"));
+        assertTrue(SimpleChainValidator.isCompatibleWithPolicy(
+                "RSA keySize < 2048, EC keySize <= 255", null));
+    }
+
+    @Test
+    public void isCompatibleWithPolicy_stricterPolicy() {
+        String[] policies = {
+                "RSA keySize < 3072",
+                "RSA keySize <= 2048",
+                "EC keySize < 384",
+                "SHA256withRSA",
+                "SHA-256",
+                "secp256r1",
+                "Ed25519",
+                "RSA keySize < 1024 & denyAfter 2030-01-01",
+                "SHA256withECDSA usage TLSServer",
+                "include some.other.property",
+        };
+        for (String policy : policies) {
+            assertFalse(policy, SimpleChainValidator.isCompatibleWithPolicy("MD5, " + policy, ""));
+        }
+        assertFalse(SimpleChainValidator.isCompatibleWithPolicy(
+                "include jdk.disabled.namedCurves", "secp112r1, secp384r1"));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TimingWheelTest {
+    private static final long TICK = 100;
+
+    @Test
+    public void advance_returnsDueItems() {
+        TimingWheel<String> wheel = new TimingWheel<String>(8, TICK, 0);
+        wheel.schedule("a", 150);
+        wheel.schedule("b", 250);
+        wheel.schedule("c", 250);
+
+        assertEquals(Collections.emptyList(), wheel.advance(99));
+        assertEquals(Collections.emptyList(), wheel.advance(149));
+        assertEquals(Arrays.asList("a"), wheel.advance(200));
+        assertEquals(Arrays.asList("b", "c"), sorted(wheel.advance(300)));
+        assertEquals(0, wheel.queuedCount());
+    }
+
+    @Test
+    public void advance_carriesItemsOverRotations() {
+        TimingWheel<String> wheel = new TimingWheel<String>(4, TICK, 0);
+        // Shares a bucket with ticks 1 and 5, but isn't due until the third rotation.
+        wheel.schedule("late", 950);
+
+        for (long now = TICK; now < 900; now += TICK) {
+            assertEquals(Collections.emptyList(), wheel.advance(now));
+        }
+        assertEquals(Collections.emptyList(), wheel.advance(949));
+        assertEquals(Arrays.asList("late"), wheel.advance(1000));
+    }
+
+    @Test
+    public void advance_afterLongPauseReturnsEverythingDue() {
+        TimingWheel<String> wheel = new TimingWheel<String>(4, TICK, 0);
+        wheel.schedule("a", 100);
+        wheel.schedule("b", 700);
+        wheel.schedule("c", 5000);
+
+        assertEquals(Arrays.asList("a", "b"), sorted(wheel.advance(2000)));
+        assertEquals(Arrays.asList("c"), wheel.advance(5100));
+    }
+
+    @Test
+    public void schedule_pastDeadlineIsReturnedByNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<String>(4, TICK, 1000);
+        wheel.schedule("past", 0);
+        assertEquals(Arrays.asList("past"), wheel.advance(1100));
+    }
+
+    @Test
+    public void cancel_removesItem() {
+        TimingWheel<String> wheel = new TimingWheel<String>(4, TICK, 0);
+        TimingWheel.Timeout<String> a = wheel.schedule("a", 100);
+        wheel.schedule("b", 100);
+        wheel.cancel(a);
+        wheel.cancel(a);
+        wheel.cancel(null);
+
+        assertEquals(Arrays.asList("b"), wheel.advance(100));
+        assertEquals(0, wheel.queuedCount());
+    }
+
+    @Test
+    public void cancel_purgesWhenCancelledTimeoutsBuildUp() {
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>(4, TICK, 0);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<TimingWheel.Timeout<Integer>>();
+        for (int i = 0; i < 1000; i++) {
+            timeouts.add(wheel.schedule(i, 100000));
+        }
+        for (TimingWheel.Timeout<Integer> timeout : timeouts) {
+            wheel.cancel(timeout);
+        }
+        assertTrue(String.valueOf(wheel.queuedCount()), wheel.queuedCount() < 100);
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> copy = new ArrayList<String>(list);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import org.conscrypt.java.security.TestKeyStore;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TrustDecisionCacheTest {
+    private static final long NOW = 1000000L;
+    private static final long MAX_AGE = 60000L;
+
+    private static X509Certificate[] chain;
+
+    @BeforeClass
+    public static void initChain() throws Exception {
+        chain = (X509Certificate[]) TestKeyStore.getServer()
+                        .getPrivateKey("RSA", "RSA")
+                        .getCertificateChain();
+    }
+
+    @Test
+    public void get_returnsValidatedChain() throws Exception {
+        TrustDecisionCache cache = new TrustDecisionCache(16, MAX_AGE);
+        List<X509Certificate> wholeChain = Arrays.asList(chain);
+        cache.put(key("example.com"), wholeChain, NOW);
+
+        assertEquals(wholeChain, cache.get(key("example.com"), NOW + MAX_AGE - 1));
+        assertNull(cache.get(key("other.example.com"), NOW));
+    }
+
+    @Test
+    public void key_includesPeerData() throws Exception {
+        TrustDecisionCache.Key key = key("example.com");
+        X509Certificate[] leafOnly = new X509Certificate[] {chain[0]};
+        assertNotEquals(
+                key, TrustDecisionCache.key(leafOnly, null, null, "RSA", "example.com", false));
+        assertNotEquals(
+                key, TrustDecisionCache.key(chain, new byte[1], null, "RSA", "example.com", false));
+        assertNotEquals(
+                key, TrustDecisionCache.key(chain, null, new byte[1], "RSA", "example.com", false));
+        assertNotEquals(
+                key, TrustDecisionCache.key(chain, null, null, "EC", "example.com", false));
+        assertNotEquals(
+                key, TrustDecisionCache.key(chain, null, null, "RSA", "example.com", true));
+        assertNotEquals(key, TrustDecisionCache.key(chain, null, null, "RSA", null, false));
+    }
+
+    @Test
+    public void get_expiresAfterMaxAge() throws Exception {
+        TrustDecisionCache cache = new TrustDecisionCache(16, MAX_AGE);
+        cache.put(key("example.com"), Arrays.asList(chain), NOW);
+
+        assertNull(cache.get(key("example.com"), NOW + MAX_AGE));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void get_expiresWithChain() throws Exception {
+        long notAfter = Long.MAX_VALUE;
+        for (X509Certificate cert : chain) {
+            notAfter = Math.min(notAfter, cert.getNotAfter().getTime());
+        }
+        TrustDecisionCache cache = new TrustDecisionCache(16, MAX_AGE);
+        cache.put(key("example.com"), Arrays.asList(chain), notAfter - 10);
+
+        assertEquals(Arrays.asList(chain), cache.get(key("example.com"), notAfter - 1));
+        assertNull(cache.get(key("example.com"), notAfter));
+
+        // Chains which have already expired aren't cached at all.
+        cache.put(key("example.com"), Arrays.asList(chain), notAfter);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void put_isBounded() throws Exception {
+        TrustDecisionCache cache = new TrustDecisionCache(4, MAX_AGE);
+        for (int i = 0; i < 10; i++) {
+            cache.put(key("host" + i + ".example.com"), Arrays.asList(chain), NOW);
+        }
+        assertEquals(4, cache.size());
+        assertEquals(0, cache.emptyCopy().size());
+    }
+
+    private static TrustDecisionCache.Key key(String host) throws Exception {
+        return TrustDecisionCache.key(chain, null, null, "RSA", host, false);
+    }
+}
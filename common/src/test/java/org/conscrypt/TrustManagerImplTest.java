@@ -29,9 +29,21 @@ import org.junit.runners.JUnit4;
 import java.io.IOException;
 import java.security.KeyStore;
 import java.security.Principal;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathParameters;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertPathValidatorResult;
+import java.security.cert.CertPathValidatorSpi;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
+import java.security.cert.PKIXCertPathValidatorResult;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPublicKey;
 import java.util.Arrays;
 import java.util.List;
 
@@ -45,6 +57,49 @@ import javax.net.ssl.X509TrustManager;
 
 @RunWith(JUnit4.class)
 public class TrustManagerImplTest {
+    // openssl req -x509 -newkey rsa:2048 -sha256 -nodes -days 3650 -subj /CN=rsa2048.ca.test \
+    //   -addext basicConstraints=critical,CA:true -addext keyUsage=critical,keyCertSign
+    private static final String RSA2048_CA_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIDJTCCAg2gAwIBAgIUdPYp2diEiT2XBjOsiMth1c/anjQwDQYJKoZIhvcNAQEL\n"
+            + "BQAwGjEYMBYGA1UEAwwPcnNhMjA0OC5jYS50ZXN0MB4XDTI2MTAxNzAxMzEzMloX\n"
+            + "DTM2MTAxNDAxMzEzMlowGjEYMBYGA1UEAwwPcnNhMjA0OC5jYS50ZXN0MIIBIjAN\n"
+            + "BgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEAtGpU2quAZlZDobKHy+JzioCGnDpY\n"
+            + "WJPUlkIbIHNdJL9TuC9Pf5lVYOi22DXqEKyi0VOhw2tV4+L6OFkt8zXJDfKYAurN\n"
+            + "HOMjZw4HwbklOEonbV+VgiiTSqR0J5ANGR/aMr8LR80XZbcIoTcwg/y09pGk4EOy\n"
+            + "VC6k8YSEAlLy43dcRZ5ZtSv9UkgrxyqYLZsUAXztn26mIudL5M9JUajXUmOYjelB\n"
+            + "J6ji+GP6At7QeC99HG4eivAF7GYcfgd1N4wJ3MtqIdXptPeyXQiAHhDET/R6PRb8\n"
+            + "P/X84qlmi/IcITOt6H1K3LiRAGV+kKIBnhrBk0DLT//1fA4n0ofxquUdowIDAQAB\n"
+            + "o2MwYTAdBgNVHQ4EFgQUzzVwxYXUZGLbwsxpn05gniWEMgswHwYDVR0jBBgwFoAU\n"
+            + "zzVwxYXUZGLbwsxpn05gniWEMgswDwYDVR0TAQH/BAUwAwEB/zAOBgNVHQ8BAf8E\n"
+            + "BAMCAgQwDQYJKoZIhvcNAQELBQADggEBABr3jk/JLz0fOlQShbdBw7xjO8VjH2ml\n"
+            + "SXxMhMdxil43Y38jjwAVOCOZO1MSMsbkJuIwtEuhCJx4QkN3AkH5srSD2Hb2HYeq\n"
+            + "TilxbomI27xcWdvNFNBYMyovsSLxlzNMl8GjPLQQEKCdK9QTpoZT1lr10Pm4g9dn\n"
+            + "Wohpox5OtwMC8wWx3ds3mmP2/s23hTcFYkGOOvMH9A7ApHdSonoRte0/qBLiaBF6\n"
+            + "JChRAXK0n1QabeHwZn0O7w4aKofHjcGMz7Uxds1EhHE8vt7zZZGtjpkod4x3xWtZ\n"
+            + "YfWs8T0Qi69TSc9av7cX9gh5AeshijcxVZddtVOtXp59Wa5Qy34re+g=\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // A 2048-bit RSA end-entity certificate issued by RSA2048_CA_PEM with sha256WithRSA.
+    private static final String RSA2048_LEAF_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIICuDCCAaACFESwuWZaRjHpcoCXkNOOIiBYpRUiMA0GCSqGSIb3DQEBCwUAMBox\n"
+            + "GDAWBgNVBAMMD3JzYTIwNDguY2EudGVzdDAeFw0yNjEwMTcwMTMxMzJaFw0zNjEw\n"
+            + "MTQwMTMxMzJaMBcxFTATBgNVBAMMDHJzYTIwNDgudGVzdDCCASIwDQYJKoZIhvcN\n"
+            + "AQEBBQADggEPADCCAQoCggEBAN0FS5gjuT9O6gKlxkY67s2ENMGRT3Yi17bp+bav\n"
+            + "RtaoiY0YxsxzmDVylKKpCr25wOKSVvx3FMZO87ZWuTK9+p9t4vSusFb/Ed6cIyIB\n"
+            + "fGzJuq45lZ44yQLN3+/GartblhbKsNZ5AeSpzCBRum3KmUXk2e2SD5SpFIOkaERG\n"
+            + "Yg9AeIjqqkSmnLkMJjB9B/92AVmE3PPphhvHWHMQ5xRebMJhKRWqgd7XpYa4cBph\n"
+            + "wvWHnQrm2CFrODE5AEpRscks9d9sjTmXWkWbVPEA507uplYu6OvmAHBRI86Pne1E\n"
+            + "I3Lrs9TJ2LftMqp7NuMF/LHFNN8y+Hwz4yVS4kZoH3oEP8kCAwEAATANBgkqhkiG\n"
+            + "9w0BAQsFAAOCAQEABy13RbmVc8jyWBh23C8aMDL20suTfykY0+j9rKJloWmO85Qx\n"
+            + "q4R5zrcfu1OpBMvUviMrny0UZAH1uXZP+IwpYwvGVNz1qOHJSXYLZilVrMYCVMUm\n"
+            + "xCerZvYS6jeThEys9VJE0KksGN5QnQ6n/X3h6+ygvOaOLq+Oa7CBw5Wlqf33LBi5\n"
+            + "j8WF+5qdWRiN/rszCTPx6q0uRR6NoshvBM7HGWutOlPUcgb4pcEmaGz5A2kio5hy\n"
+            + "0yWkmMXTSj5okkrRF7iiMq4G3UPvxqJS3enXknVWCUpcNs94CBhJ88haPEaDq249\n"
+            + "5joQAx64fX7m8FLLisYLCQxzCpRxDhS4qjjUEw==\n"
+            + "-----END CERTIFICATE-----\n";
+
     /**
      * Ensure that our non-standard behavior of learning to trust new
      * intermediate CAs does not regress. http://b/3404902
@@ -220,6 +275,83 @@ public class TrustManagerImplTest {
         }
     }
 
+    @Test
+    public void testTrustDecisionCache() throws Exception {
+        TestUtils.assumeExtendedTrustManagerAvailable();
+        KeyStore.PrivateKeyEntry pke = TestKeyStore.getServer().getPrivateKey("RSA", "RSA");
+        X509Certificate[] chain3 = (X509Certificate[]) pke.getCertificateChain();
+        X509Certificate[] chain2 = new X509Certificate[] {chain3[0], chain3[1]};
+        KeyStore keyStore = TestKeyStore.createKeyStore();
+        keyStore.setCertificateEntry("alias", chain3[2]);
+        final boolean[] pinned = new boolean[] {true};
+        TrustManagerImpl tmi = new TrustManagerImpl(keyStore, new CertPinManager() {
+            @Override
+            public void checkChainPinning(String hostname, List<X509Certificate> chain)
+                    throws CertificateException {
+                if (!pinned[0]) {
+                    throw new CertificateException("Pin failure");
+                }
+            }
+        });
+        Conscrypt.setTrustDecisionCache(tmi, 16, 60000L);
+
+        assertEquals(Arrays.asList(chain3),
+                tmi.checkServerTrusted(chain2, "RSA", new FakeSSLSession("purple.com")));
+        assertEquals(Arrays.asList(chain3),
+                tmi.checkServerTrusted(chain2, "RSA", new FakeSSLSession("purple.com")));
+
+        // Pins are checked even when the decision is cached.
+        pinned[0] = false;
+        try {
+            tmi.checkServerTrusted(chain2, "RSA", new FakeSSLSession("purple.com"));
+            fail();
+        } catch (CertificateException expected) {
+        }
+        pinned[0] = true;
+
+        tmi.handleTrustStorageUpdate();
+        assertEquals(Arrays.asList(chain3),
+                tmi.checkServerTrusted(chain2, "RSA", new FakeSSLSession("purple.com")));
+
+        Conscrypt.setTrustDecisionCache(tmi, 0, 0L);
+        assertEquals(Arrays.asList(chain3),
+                tmi.checkServerTrusted(chain2, "RSA", new FakeSSLSession("purple.com")));
+    }
+
+    @Test
+    public void testPlatformAlgorithmPolicyIsNotBypassed() throws Exception {
+        TestUtils.assumeExtendedTrustManagerAvailable();
+        X509Certificate ca = TrustedCertificateIndexTest.decode(RSA2048_CA_PEM);
+        X509Certificate[] chain =
+                new X509Certificate[] {TrustedCertificateIndexTest.decode(RSA2048_LEAF_PEM)};
+        KeyStore keyStore = TestKeyStore.createKeyStore();
+        keyStore.setCertificateEntry("alias", ca);
+
+        String policy = Security.getProperty(SimpleChainValidator.DISABLED_ALGORITHMS_PROPERTY);
+        // The platform PKIX validator reads its policy once per process, so stand in for it with
+        // one which applies the stricter policy set below.
+        Security.insertProviderAt(new StrictPkixProvider(), 1);
+        try {
+            // The default policy allows the chain to be validated without PKIX.
+            TrustManagerImpl tmi = new TrustManagerImpl(keyStore);
+            tmi.checkServerTrusted(chain, "RSA", new FakeSSLSession("purple.com"));
+
+            Security.setProperty(SimpleChainValidator.DISABLED_ALGORITHMS_PROPERTY,
+                    StrictPkixSpi.POLICY);
+            tmi = new TrustManagerImpl(keyStore);
+            try {
+                tmi.checkServerTrusted(chain, "RSA", new FakeSSLSession("purple.com"));
+                fail();
+            } catch (CertificateException expected) {
+                // Expected.
+            }
+        } finally {
+            Security.removeProvider(StrictPkixProvider.NAME);
+            Security.setProperty(SimpleChainValidator.DISABLED_ALGORITHMS_PROPERTY,
+                    policy != null ? policy : "");
+        }
+    }
+
     private X509TrustManager trustManager(X509Certificate ca) throws Exception {
         KeyStore keyStore = TestKeyStore.createKeyStore();
         keyStore.setCertificateEntry("alias", ca);
@@ -250,6 +382,37 @@ public class TrustManagerImplTest {
         }
     }
 
+    private static class StrictPkixProvider extends Provider {
+        private static final String NAME = "StrictPkix";
+
+        StrictPkixProvider() {
+            super(NAME, 1.0, "PKIX with a stricter algorithm policy, for testing only");
+            put("CertPathValidator.PKIX", StrictPkixSpi.class.getName());
+        }
+    }
+
+    /**
+     * A PKIX validator which only checks the policy {@code RSA keySize < 3072}.
+     */
+    public static class StrictPkixSpi extends CertPathValidatorSpi {
+        static final String POLICY = "RSA keySize < 3072";
+
+        @Override
+        public CertPathValidatorResult engineValidate(CertPath certPath,
+                CertPathParameters params) throws CertPathValidatorException {
+            for (Certificate cert : certPath.getCertificates()) {
+                PublicKey key = cert.getPublicKey();
+                if (key instanceof RSAPublicKey
+                        && ((RSAPublicKey) key).getModulus().bitLength() < 3072) {
+                    throw new CertPathValidatorException("Disallowed by " + POLICY);
+                }
+            }
+            TrustAnchor anchor = ((PKIXParameters) params).getTrustAnchors().iterator().next();
+            return new PKIXCertPathValidatorResult(
+                    anchor, null, certPath.getCertificates().get(0).getPublicKey());
+        }
+    }
+
     private static class FakeSSLSession implements SSLSession {
         private final String hostname;
         private final X509Certificate[] peerCerts;
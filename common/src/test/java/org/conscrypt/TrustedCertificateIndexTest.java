@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateFactory;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class TrustedCertificateIndexTest {
+    // openssl req -x509 -nodes -days 3650 -subj '/CN=Index Test CA' -newkey ec \
+    //   -pkeyopt ec_paramgen_curve:prime256v1 -keyout ca.key -out ca.pem
+    static final String CA_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBhTCCASugAwIBAgIUROj49IZDgQUVlPBI6AJc/IcjSg4wCgYIKoZIzj0EAwIw\n"
+            + "GDEWMBQGA1UEAwwNSW5kZXggVGVzdCBDQTAeFw0yNjEwMTcwMDQ4NTBaFw0zNjEw\n"
+            + "MTQwMDQ4NTBaMBgxFjAUBgNVBAMMDUluZGV4IFRlc3QgQ0EwWTATBgcqhkjOPQIB\n"
+            + "BggqhkjOPQMBBwNCAAQDI0oaiV63QPLzaQCQqpGhSUZEVe7PGnDvyWEHq/wk7Zrc\n"
+            + "IfBuXmCE1qbQvp5nraBU+zvzLVQzTY1TB1UmoGuto1MwUTAdBgNVHQ4EFgQUjOG/\n"
+            + "TAWtw+VbpknanK5RaCVBRX0wHwYDVR0jBBgwFoAUjOG/TAWtw+VbpknanK5RaCVB\n"
+            + "RX0wDwYDVR0TAQH/BAUwAwEB/zAKBggqhkjOPQQDAgNIADBFAiBETU2Mr5pFeLv6\n"
+            + "S5hLtKBf6zfBwqIuArBS3pBZxUPNRgIhAJ2nFDusekc1XTX1koI0FqO5n+h+eSev\n"
+            + "ag21tLthVHTW\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // As above, with a different key.
+    static final String OTHER_CA_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBhTCCASugAwIBAgIUe6/PsFDMyAAM7z0CaOnQnlcIiEowCgYIKoZIzj0EAwIw\n"
+            + "GDEWMBQGA1UEAwwNSW5kZXggVGVzdCBDQTAeFw0yNjEwMTcwMDQ4NTBaFw0zNjEw\n"
+            + "MTQwMDQ4NTBaMBgxFjAUBgNVBAMMDUluZGV4IFRlc3QgQ0EwWTATBgcqhkjOPQIB\n"
+            + "BggqhkjOPQMBBwNCAAS8nGWTcJTMV6j/z3RyEY70TWahdeIO+BJiSi4B6Im3SKws\n"
+            + "DmxOodRPgdJkSCeANMkulmDe4LkGJPGOvhsHZkkXo1MwUTAdBgNVHQ4EFgQUcaVC\n"
+            + "wWKqfty3aOXZDMaDicjVxqgwHwYDVR0jBBgwFoAUcaVCwWKqfty3aOXZDMaDicjV\n"
+            + "xqgwDwYDVR0TAQH/BAUwAwEB/zAKBggqhkjOPQQDAgNIADBFAiEA7j8KuFnCDKGE\n"
+            + "VbQwnxH2iLzevTRQksZULtGizLa+rvUCIF4CLNH9PyNZZh+NKYaNz65oYOeC/ulI\n"
+            + "xGCx8cv1sUAr\n"
+            + "-----END CERTIFICATE-----\n";
+
+    // Issued by CA_PEM, with an authority key identifier.
+    static final String LEAF_PEM = ""
+            + "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBezCCASGgAwIBAgIUccpjVCvz6w18HUxPe142ZjXzxvIwCgYIKoZIzj0EAwIw\n"
+            + "GDEWMBQGA1UEAwwNSW5kZXggVGVzdCBDQTAeFw0yNjEwMTcwMDQ4NTBaFw0zNjEw\n"
+            + "MTQwMDQ4NTBaMBQxEjAQBgNVBAMMCWxlYWYudGVzdDBZMBMGByqGSM49AgEGCCqG\n"
+            + "SM49AwEHA0IABCRyVis4/J2hWJ6Avu/bBoKDQmq5gEt/g6iHGDeSMPOVK4SJGk1E\n"
+            + "XZuCyX+tca3gey8lyd13mCr5l5biC8meUXSjTTBLMB8GA1UdIwQYMBaAFIzhv0wF\n"
+            + "rcPlW6ZJ2pyuUWglQUV9MAkGA1UdEwQCMAAwHQYDVR0OBBYEFNMjlVyV3iHLo0NR\n"
+            + "zi0xw3YBnqHaMAoGCCqGSM49BAMCA0gAMEUCIQDrCp0GhNwvpyG7Ryem/0pqX3n2\n"
+            + "r5FxRdag0n27xOMm8gIgaB8TF+SNiaUfggS8ol5g4D18Hc5oOBzmW6O4dVfK8fU=\n"
+            + "-----END CERTIFICATE-----\n";
+
+    private static X509Certificate ca;
+    private static X509Certificate otherCa;
+    private static X509Certificate leaf;
+
+    @BeforeClass
+    public static void decodeCertificates() throws Exception {
+        ca = decode(CA_PEM);
+        otherCa = decode(OTHER_CA_PEM);
+        leaf = decode(LEAF_PEM);
+    }
+
+    @Test
+    public void keyIdentifiers() throws Exception {
+        byte[] subjectKeyId = TrustedCertificateIndex.subjectKeyIdentifier(ca);
+        assertNotNull(subjectKeyId);
+        assertEquals(20, subjectKeyId.length);
+        assertArrayEquals(subjectKeyId, TrustedCertificateIndex.authorityKeyIdentifier(leaf));
+    }
+
+    @Test
+    public void findByIssuerAndSignature_selectsIssuerAmongSameSubject() throws Exception {
+        TrustedCertificateIndex index = new TrustedCertificateIndex();
+        index.index(otherCa);
+        assertNull(index.findByIssuerAndSignature(leaf));
+        assertEquals(Collections.emptySet(), index.findAllByIssuerAndSignature(leaf));
+
+        TrustAnchor anchor = index.index(ca);
+        assertSame(anchor, index.findByIssuerAndSignature(leaf));
+        assertEquals(Collections.singleton(anchor), index.findAllByIssuerAndSignature(leaf));
+    }
+
+    @Test
+    public void findByIssuerAndSignature_anchorWithoutKeyIdentifier() throws Exception {
+        TrustAnchor anchor = new TrustAnchor(ca.getSubjectX500Principal(), ca.getPublicKey(), null);
+        TrustedCertificateIndex index = new TrustedCertificateIndex(Collections.singleton(anchor));
+        assertSame(anchor, index.findByIssuerAndSignature(leaf));
+    }
+
+    @Test
+    public void index_ignoresDuplicates() throws Exception {
+        TrustedCertificateIndex index = new TrustedCertificateIndex();
+        TrustAnchor anchor = index.index(ca);
+        index.index(decode(CA_PEM));
+        assertEquals(Collections.singleton(anchor), index.findAllByIssuerAndSignature(leaf));
+    }
+
+    @Test
+    public void remove() throws Exception {
+        TrustedCertificateIndex index = new TrustedCertificateIndex();
+        index.index(otherCa);
+        TrustAnchor anchor = index.index(ca);
+        index.remove(otherCa);
+        assertSame(anchor, index.findBySubjectAndPublicKey(ca));
+        assertNull(index.findBySubjectAndPublicKey(otherCa));
+
+        index.remove(ca);
+        assertNull(index.findByIssuerAndSignature(leaf));
+    }
+
+    @Test
+    public void reset() throws Exception {
+        TrustedCertificateIndex index = new TrustedCertificateIndex();
+        index.index(ca);
+        index.reset();
+        assertNull(index.findBySubjectAndPublicKey(ca));
+
+        Set<TrustAnchor> anchors = new HashSet<TrustAnchor>();
+        anchors.add(new TrustAnchor(otherCa, null));
+        index.reset(anchors);
+        assertNull(index.findBySubjectAndPublicKey(ca));
+        assertNotNull(index.findBySubjectAndPublicKey(otherCa));
+    }
+
+    static X509Certificate decode(String pem) throws Exception {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        return (X509Certificate) factory.generateCertificate(
+                new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.conscrypt.javax.net.ssl.FakeSSLSession;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSession;
+
+@RunWith(JUnit4.class)
+public class WriteBehindServerSessionCacheTest {
+    private static final byte[] DATA = new byte[] {1, 2, 3};
+
+    @Test
+    public void putSessionData_storesInBackground() throws Exception {
+        BlockingCache delegate = new BlockingCache();
+        WriteBehindServerSessionCache cache = new WriteBehindServerSessionCache(delegate, 4);
+
+        // Returns even though the delegate is blocked.
+        cache.putSessionData(new FakeSSLSession("a"), DATA);
+        // Served from the queue until it has been stored.
+        assertArrayEquals(DATA, cache.getSessionData(id("a")));
+        assertNull(delegate.stored.get("a"));
+
+        delegate.release.countDown();
+        cache.shutdown();
+        assertTrue(cache.awaitTermination(5, TimeUnit.SECONDS));
+        assertArrayEquals(DATA, delegate.stored.get("a"));
+        assertArrayEquals(DATA, cache.getSessionData(id("a")));
+    }
+
+    @Test
+    public void putSessionData_dropsWhenFull() throws Exception {
+        BlockingCache delegate = new BlockingCache();
+        WriteBehindServerSessionCache cache = new WriteBehindServerSessionCache(delegate, 2);
+
+        cache.putSessionData(new FakeSSLSession("a"), DATA);
+        // Wait for the writer to take "a" and block in the delegate.
+        assertTrue(delegate.entered.await(5, TimeUnit.SECONDS));
+        cache.putSessionData(new FakeSSLSession("b"), DATA);
+        cache.putSessionData(new FakeSSLSession("c"), DATA);
+        cache.putSessionData(new FakeSSLSession("d"), DATA);
+        assertEquals(1, cache.getDroppedCount());
+        assertNull(cache.getSessionData(id("d")));
+
+        delegate.release.countDown();
+        cache.shutdown();
+        assertTrue(cache.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(3, delegate.stored.size());
+        assertNull(delegate.stored.get("d"));
+    }
+
+    @Test
+    public void putSessionData_droppedWriteKeepsQueuedSession() throws Exception {
+        BlockingCache delegate = new BlockingCache();
+        WriteBehindServerSessionCache cache = new WriteBehindServerSessionCache(delegate, 2);
+
+        cache.putSessionData(new FakeSSLSession("a"), DATA);
+        assertTrue(delegate.entered.await(5, TimeUnit.SECONDS));
+        cache.putSessionData(new FakeSSLSession("b"), DATA);
+        cache.putSessionData(new FakeSSLSession("c"), DATA);
+        // Dropped, so the queued session for "b" is still the one to serve.
+        cache.putSessionData(new FakeSSLSession("b"), new byte[] {4, 5, 6});
+        assertEquals(1, cache.getDroppedCount());
+        assertArrayEquals(DATA, cache.getSessionData(id("b")));
+
+        delegate.release.countDown();
+        cache.shutdown();
+        assertTrue(cache.awaitTermination(5, TimeUnit.SECONDS));
+        assertArrayEquals(DATA, delegate.stored.get("b"));
+    }
+
+    @Test
+    public void putSessionData_continuesAfterError() throws Exception {
+        final Map<String, byte[]> stored = new ConcurrentHashMap<String, byte[]>();
+        final CountDownLatch failed = new CountDownLatch(1);
+        final CountDownLatch storedGood = new CountDownLatch(1);
+        SSLServerSessionCache delegate = new SSLServerSessionCache() {
+            @Override
+            public byte[] getSessionData(byte[] id) {
+                return stored.get(new String(id, UTF_8));
+            }
+
+            @Override
+            public void putSessionData(SSLSession session, byte[] sessionData) {
+                if (session.getPeerHost().equals("bad")) {
+                    failed.countDown();
+                    throw new Error("Expected");
+                }
+                stored.put(session.getPeerHost(), sessionData);
+                storedGood.countDown();
+            }
+        };
+        WriteBehindServerSessionCache cache = new WriteBehindServerSessionCache(delegate, 4);
+
+        cache.putSessionData(new FakeSSLSession("bad"), DATA);
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        cache.putSessionData(new FakeSSLSession("good"), DATA);
+        assertTrue(storedGood.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(DATA, stored.get("good"));
+        assertNull(cache.getSessionData(id("bad")));
+        cache.shutdown();
+    }
+
+    private static byte[] id(String host) {
+        return new FakeSSLSession(host).getId();
+    }
+
+    private static final class BlockingCache implements SSLServerSessionCache {
+        final Map<String, byte[]> stored = new ConcurrentHashMap<String, byte[]>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public byte[] getSessionData(byte[] id) {
+            return stored.get(new String(id, UTF_8));
+        }
+
+        @Override
+        public void putSessionData(SSLSession session, byte[] sessionData) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stored.put(session.getPeerHost(), sessionData);
+        }
+    }
+}
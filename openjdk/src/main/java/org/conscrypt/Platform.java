@@ -882,4 +882,13 @@ final public class Platform {
     public static boolean isSdkGreater(int sdk) {
         return false;
     }
+
+    static boolean registerSessionCacheMBean(String name, AbstractSessionContext context) {
+        SessionCacheMBean.register(name, context);
+        return true;
+    }
+
+    static boolean unregisterSessionCacheMBean(String name) {
+        return SessionCacheMBean.unregister(name);
+    }
 }
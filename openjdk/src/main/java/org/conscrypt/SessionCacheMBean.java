@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the {@link SessionCacheStats} of a session context as read-only attributes of an
+ * MBean. This is a dynamic MBean so that it doesn't need a public management interface.
+ */
+final class SessionCacheMBean implements DynamicMBean {
+    private static final String DOMAIN = "org.conscrypt";
+
+    private static final String[][] ATTRIBUTES = {
+            {"HitCount", "long", "Lookups which found a session to resume"},
+            {"MissCount", "long", "Lookups which found no session to resume"},
+            {"HitRate", "double", "Fraction of lookups which found a session"},
+            {"SizeEvictionCount", "long", "Sessions evicted to stay within the maximum size"},
+            {"TimeoutEvictionCount", "long", "Sessions evicted because they expired"},
+            {"SingleUseEvictionCount", "long",
+                    "Single-use sessions evicted because they were used"},
+            {"PersistentCacheHitCount", "long", "Lookups satisfied by the persistent cache"},
+            {"PersistentCacheMissCount", "long", "Persistent cache lookups which found nothing"},
+            {"PersistentCacheLoadTimeNanos", "long",
+                    "Total time spent in persistent cache lookups"},
+            {"AveragePersistentCacheLoadTimeNanos", "long",
+                    "Mean time of a persistent cache lookup"},
+            {"Size", "int", "Sessions in the in-memory cache"},
+            {"MaximumSize", "int", "Maximum sessions in the in-memory cache, or 0 if unbounded"},
+    };
+
+    private final AbstractSessionContext context;
+    private final MBeanInfo info;
+
+    private SessionCacheMBean(AbstractSessionContext context) {
+        this.context = context;
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[ATTRIBUTES.length];
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            attributes[i] = new MBeanAttributeInfo(ATTRIBUTES[i][0], ATTRIBUTES[i][1],
+                    ATTRIBUTES[i][2], true, false, false);
+        }
+        this.info = new MBeanInfo(SessionCacheMBean.class.getName(),
+                "Conscrypt TLS session cache statistics", attributes, null,
+                new MBeanOperationInfo[0], null);
+    }
+
+    static void register(String name, AbstractSessionContext context) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new SessionCacheMBean(context), objectName(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Failed to register session cache MBean " + name, e);
+        }
+    }
+
+    /**
+     * Unregisters the MBean registered under {@code name}, and returns whether there was one.
+     */
+    static boolean unregister(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName(name));
+            return true;
+        } catch (InstanceNotFoundException e) {
+            // Already gone.
+            return false;
+        } catch (JMException e) {
+            throw new IllegalArgumentException(
+                    "Failed to unregister session cache MBean " + name, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=SessionCache,name=" + ObjectName.quote(name));
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        return getAttribute(context.getStats(), attribute);
+    }
+
+    private static Object getAttribute(SessionCacheStats stats, String attribute)
+            throws AttributeNotFoundException {
+        switch (attribute) {
+            case "HitCount":
+                return stats.getHitCount();
+            case "MissCount":
+                return stats.getMissCount();
+            case "HitRate":
+                return stats.getHitRate();
+            case "SizeEvictionCount":
+                return stats.getSizeEvictionCount();
+            case "TimeoutEvictionCount":
+                return stats.getTimeoutEvictionCount();
+            case "SingleUseEvictionCount":
+                return stats.getSingleUseEvictionCount();
+            case "PersistentCacheHitCount":
+                return stats.getPersistentCacheHitCount();
+            case "PersistentCacheMissCount":
+                return stats.getPersistentCacheMissCount();
+            case "PersistentCacheLoadTimeNanos":
+                return stats.getPersistentCacheLoadTimeNanos();
+            case "AveragePersistentCacheLoadTimeNanos":
+                return stats.getAveragePersistentCacheLoadTimeNanos();
+            case "Size":
+                return stats.getSize();
+            case "MaximumSize":
+                return stats.getMaximumSize();
+            default:
+                throw new AttributeNotFoundException(attribute);
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        // Take one snapshot so the returned values are consistent with each other.
+        SessionCacheStats stats = context.getStats();
+        AttributeList result = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                result.add(new Attribute(attribute, getAttribute(stats, attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Omitted, as specified by DynamicMBean.
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        return info;
+    }
+}
@@ -19,6 +19,7 @@ package org.conscrypt;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
@@ -120,6 +121,73 @@ public abstract class AbstractSessionContextTest<T extends AbstractSessionContex
         assertNull(getCachedSession(context, single));
     }
 
+    @Test
+    public void testConcurrentAdditionRespectsMaximumSize() throws Exception {
+        final int threads = 4;
+        final int sessionsPerThread = 50;
+        context.setSessionCacheSize(10);
+        final NativeSslSession[][] sessions = new NativeSslSession[threads][sessionsPerThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < sessionsPerThread; i++) {
+                sessions[t][i] = newSession("host-" + t + "-" + i);
+            }
+        }
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final NativeSslSession[] toCache = sessions[t];
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (NativeSslSession session : toCache) {
+                        context.cacheSession(session);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertTrue(size(context) <= 10);
+        // Each thread's most recent session was added after all of its earlier ones.
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < sessionsPerThread - 10; i++) {
+                assertNull(getCachedSession(context, sessions[t][i]));
+            }
+        }
+    }
+
+    @Test
+    public void testStatsCountLookupsAndEvictions() {
+        context.setSessionCacheSize(1);
+        NativeSslSession multi = new MockSessionBuilder().host("multi").singleUse(false).build();
+        NativeSslSession single = new MockSessionBuilder().host("single").singleUse(true).build();
+        NativeSslSession expired = new MockSessionBuilder().host("expired").valid(false).build();
+
+        context.cacheSession(multi);
+        assertSame(multi, getCachedSession(context, multi));
+
+        // Evicts multi to make room.
+        context.cacheSession(single);
+        assertNull(getCachedSession(context, multi));
+        assertSame(single, getCachedSession(context, single));
+
+        context.cacheSession(expired);
+        assertNull(getCachedSession(context, expired));
+
+        SessionCacheStats stats = Conscrypt.getSessionCacheStats(context);
+        assertEquals(2, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(1, stats.getSizeEvictionCount());
+        assertEquals(1, stats.getSingleUseEvictionCount());
+        assertEquals(1, stats.getTimeoutEvictionCount());
+        assertEquals(0, stats.getPersistentCacheHitCount());
+        assertEquals(0, stats.getSize());
+        assertEquals(1, stats.getMaximumSize());
+    }
+
     @Test
     public void testSerializeSession() throws Exception {
         byte[] encodedBytes = new byte[] {0x01, 0x02, 0x03};
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.conscrypt.java.security.TestKeyStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class ClientCAListCacheTest {
+    @Test
+    public void get_reusesListForSameIssuers() throws Exception {
+        X509Certificate[] issuers = issuers();
+        ClientCAListCache cache = new ClientCAListCache();
+        NativeRef.CRYPTO_BUFFER_STACK principals = cache.get(issuers);
+
+        // Trust managers return a new array holding the same certificates.
+        assertSame(principals, cache.get(issuers.clone()));
+    }
+
+    @Test
+    public void get_rebuildsListWhenIssuersChange() throws Exception {
+        X509Certificate[] issuers = issuers();
+        ClientCAListCache cache = new ClientCAListCache();
+        NativeRef.CRYPTO_BUFFER_STACK principals = cache.get(issuers);
+
+        X509Certificate[] fewer = Arrays.copyOf(issuers, 1);
+        NativeRef.CRYPTO_BUFFER_STACK changed = cache.get(fewer);
+        assertNotSame(principals, changed);
+        assertSame(changed, cache.get(fewer));
+    }
+
+    private static X509Certificate[] issuers() {
+        return new X509Certificate[] {
+                TestKeyStore.getRootCa().getRootCertificate("RSA"),
+                TestKeyStore.getIntermediateCa().getRootCertificate("RSA"),
+        };
+    }
+}
@@ -26,6 +26,10 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.security.KeyManagementException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(JUnit4.class)
 public class ClientSessionContextTest extends AbstractSessionContextTest<ClientSessionContext> {
@@ -112,4 +116,45 @@ public class ClientSessionContextTest extends AbstractSessionContextTest<ClientS
                    context.getCachedSession("host", DEFAULT_PORT, getDefaultSSLParameters()));
         assertEquals(0, size(context));
     }
+
+    @Test
+    public void testSingleUseSessionsAreHandedOutOnceUnderContention() throws Exception {
+        final ClientSessionContext context = newContext();
+        final int sessionCount = 8;
+        for (int i = 0; i < sessionCount; i++) {
+            context.cacheSession(new MockSessionBuilder()
+                                         .id(new byte[] {(byte) i})
+                                         .host("host")
+                                         .singleUse(true)
+                                         .build());
+        }
+
+        final SSLParametersImpl parameters = getDefaultSSLParameters();
+        final Set<NativeSslSession> handedOut =
+                Collections.newSetFromMap(new ConcurrentHashMap<NativeSslSession, Boolean>());
+        final AtomicInteger duplicates = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    NativeSslSession session;
+                    while ((session = context.getCachedSession("host", DEFAULT_PORT, parameters))
+                            != null) {
+                        if (!handedOut.add(session)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(sessionCount, handedOut.size());
+        assertEquals(0, size(context));
+    }
 }
@@ -44,9 +44,13 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -56,6 +60,8 @@ import javax.net.ssl.SSLEngineResult.Status;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
 
 @RunWith(Parameterized.class)
 public class ConscryptEngineTest {
@@ -70,6 +76,12 @@ public class ConscryptEngineTest {
                 return ByteBuffer.allocate(size);
             }
         },
+        HEAP_POOLED_ALLOCATOR(BufferAllocator.pooled()) {
+            @Override
+            ByteBuffer newBuffer(int size) {
+                return ByteBuffer.allocate(size);
+            }
+        },
         HEAP_NO_ALLOCATOR(null) {
             @Override
             ByteBuffer newBuffer(int size) {
@@ -120,8 +132,8 @@ public class ConscryptEngineTest {
 
     @Parameters(name = "{0}")
     public static Iterable<BufferType> data() {
-        return Arrays.asList(BufferType.HEAP_ALLOCATOR, BufferType.HEAP_NO_ALLOCATOR,
-                             BufferType.DIRECT);
+        return Arrays.asList(BufferType.HEAP_ALLOCATOR, BufferType.HEAP_POOLED_ALLOCATOR,
+                             BufferType.HEAP_NO_ALLOCATOR, BufferType.DIRECT);
     }
 
     @Parameter public BufferType bufferType;
@@ -282,6 +294,82 @@ public class ConscryptEngineTest {
         }
     }
 
+    @Test
+    public void exchangeMessagesWithBuffersReleasedWhenIdle() throws Exception {
+        setupEngines(TestKeyStore.getClient(), TestKeyStore.getServer());
+        Conscrypt.setReleaseBuffersWhenIdle(clientEngine, true);
+        Conscrypt.setReleaseBuffersWhenIdle(serverEngine, true);
+        doHandshake(true);
+
+        for (int i = 0; i < 10; ++i) {
+            exchangeMessage(newMessage(MESSAGE_SIZE), clientEngine, serverEngine);
+            exchangeMessage(newMessage(LARGE_MESSAGE_SIZE), serverEngine, clientEngine);
+        }
+    }
+
+    @Test
+    public void batchedWrapShouldSealMultipleRecords() throws Exception {
+        setupEngines(TestKeyStore.getClient(), TestKeyStore.getServer());
+        Conscrypt.setBatchedWrap(clientEngine, true);
+        doHandshake(true);
+
+        int messageSize = 3 * LARGE_MESSAGE_SIZE;
+        ByteBuffer message = newMessage(messageSize);
+        byte[] messageBytes = toArray(message);
+
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(
+                messageSize + 8 * clientEngine.getSession().getPacketBufferSize());
+        SSLEngineResult result = clientEngine.wrap(message, encrypted);
+        assertEquals(SSLEngineResult.Status.OK, result.getStatus());
+        assertEquals(messageSize, result.bytesConsumed());
+        assertEquals(encrypted.position(), result.bytesProduced());
+        assertFalse(message.hasRemaining());
+
+        encrypted.flip();
+        ByteBuffer encryptedCopy = bufferType.newBuffer(encrypted.remaining());
+        encryptedCopy.put(encrypted);
+        encryptedCopy.flip();
+        byte[] actualBytes = unwrap(new ByteBuffer[] {encryptedCopy}, serverEngine);
+        assertArrayEquals(messageBytes, actualBytes);
+    }
+
+    @Test
+    public void batchedUnwrapShouldDecryptMultipleRecords() throws Exception {
+        setupEngines(TestKeyStore.getClient(), TestKeyStore.getServer());
+        Conscrypt.setBatchedUnwrap(serverEngine, true);
+        doHandshake(true);
+
+        int messageSize = 3 * LARGE_MESSAGE_SIZE;
+        ByteBuffer message = newMessage(messageSize);
+        byte[] messageBytes = toArray(message);
+        List<ByteBuffer> wrapped = wrap(message, clientEngine);
+        assertTrue(wrapped.size() > 1);
+        int encryptedSize = 0;
+        for (ByteBuffer buffer : wrapped) {
+            encryptedSize += buffer.remaining();
+        }
+        ByteBuffer encrypted = ByteBuffer.allocateDirect(encryptedSize);
+        for (ByteBuffer buffer : wrapped) {
+            encrypted.put(buffer);
+        }
+        encrypted.flip();
+
+        ByteBuffer[] decrypted = new ByteBuffer[] {ByteBuffer.allocateDirect(MESSAGE_SIZE),
+                                                   ByteBuffer.allocateDirect(messageSize)};
+        SSLEngineResult result = serverEngine.unwrap(encrypted, decrypted);
+        assertEquals(SSLEngineResult.Status.OK, result.getStatus());
+        assertEquals(encryptedSize, result.bytesConsumed());
+        assertEquals(messageSize, result.bytesProduced());
+        assertFalse(encrypted.hasRemaining());
+
+        byte[] actualBytes = new byte[messageSize];
+        decrypted[0].flip();
+        decrypted[1].flip();
+        decrypted[0].get(actualBytes, 0, MESSAGE_SIZE);
+        decrypted[1].get(actualBytes, MESSAGE_SIZE, messageSize - MESSAGE_SIZE);
+        assertArrayEquals(messageBytes, actualBytes);
+    }
+
     @Test
     public void exchangeLargeMessage() throws Exception {
         setupEngines(TestKeyStore.getClient(), TestKeyStore.getServer());
@@ -413,6 +501,50 @@ public class ConscryptEngineTest {
         assertEquals(alpnProtocol, Conscrypt.getApplicationProtocol(clientEngine));
     }
 
+    @Test
+    public void sessionTicketsResumeAfterTicketKeysAreCleared() throws Exception {
+        TestKeyStore clientKeyStore = TestKeyStore.getClient();
+        final X509TrustManager trustManager = (X509TrustManager) clientKeyStore.trustManagers[0];
+        final AtomicInteger serverTrustChecks = new AtomicInteger();
+        SSLContext clientContext = SSLContext.getInstance("TLSv1.3", getConscryptProvider());
+        clientContext.init(clientKeyStore.keyManagers, new TrustManager[] {new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType)
+                    throws CertificateException {
+                trustManager.checkClientTrusted(chain, authType);
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType)
+                    throws CertificateException {
+                serverTrustChecks.incrementAndGet();
+                trustManager.checkServerTrusted(chain, authType);
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return trustManager.getAcceptedIssuers();
+            }
+        }}, null);
+        SSLContext serverContext = newContext(getConscryptProvider(), TestKeyStore.getServer());
+        byte[] ticketKey = new byte[48];
+        new SecureRandom().nextBytes(ticketKey);
+        Conscrypt.addServerSessionTicketKey(serverContext, ticketKey, 0);
+
+        doTicketHandshake(clientContext, serverContext);
+        assertEquals(1, serverTrustChecks.get());
+
+        // The ticket from the first handshake can't be decrypted any more, so this handshake is
+        // a full one, but the server must still issue a ticket with its own keys...
+        Conscrypt.clearServerSessionTicketKeys(serverContext);
+        doTicketHandshake(clientContext, serverContext);
+        assertEquals(2, serverTrustChecks.get());
+
+        // ...which the next handshake resumes from, without checking the server's certificate.
+        doTicketHandshake(clientContext, serverContext);
+        assertEquals(2, serverTrustChecks.get());
+    }
+
     @Test
     // getApplicationProtocol should initially return null and not trigger handshake. b/146235331
     public void getAlpnIsNullBeforeHandshake() throws Exception {
@@ -455,6 +587,25 @@ public class ConscryptEngineTest {
                                     beginHandshake);
     }
 
+    /**
+     * Performs a TLS 1.3 handshake with session tickets enabled. TLS 1.3 only resumes sessions
+     * from tickets, which arrive after the handshake, so a message is read from the server too.
+     */
+    private void doTicketHandshake(SSLContext clientContext, SSLContext serverContext)
+            throws IOException {
+        clientEngine = clientContext.createSSLEngine("localhost", 443);
+        clientEngine.setUseClientMode(true);
+        serverEngine = serverContext.createSSLEngine();
+        serverEngine.setUseClientMode(false);
+        for (SSLEngine engine : new SSLEngine[] {clientEngine, serverEngine}) {
+            engine.setEnabledProtocols(new String[] {"TLSv1.3"});
+            Conscrypt.setUseSessionTickets(engine, true);
+            Conscrypt.setBufferAllocator(engine, bufferType.allocator);
+        }
+        doHandshake(true);
+        exchangeMessage(newMessage(MESSAGE_SIZE), serverEngine, clientEngine);
+    }
+
     private void setupEngines(TestKeyStore clientKeyStore, TestKeyStore serverKeyStore)
             throws SSLException {
         setupClientEngine(getConscryptProvider(), clientKeyStore);
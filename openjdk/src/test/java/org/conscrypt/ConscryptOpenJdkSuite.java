@@ -85,8 +85,12 @@ import org.junit.runners.Suite;
         AddressUtilsTest.class,
         ApplicationProtocolSelectorAdapterTest.class,
         ArrayUtilsTest.class,
+        CandidateIssuerVerifierTest.class,
         CertPinManagerTest.class,
+        CertificateInternerTest.class,
+        ClockCacheTest.class,
         ChainStrengthAnalyzerTest.class,
+        ClientCAListCacheTest.class,
         ClientSessionContextTest.class,
         ConscryptSocketTest.class,
         ConscryptTest.class,
@@ -101,7 +105,10 @@ import org.junit.runners.Suite;
         HpkeContextSenderTest.class,
         HpkeSuiteTest.class,
         HpkeTestVectorsTest.class,
+        IntermediateCertificateCacheTest.class,
         KeySpecUtilTest.class,
+        LocalCredentialCacheTest.class,
+        MappedClientSessionCacheTest.class,
         MlDsaTest.class,
         NativeCryptoArgTest.class,
         NativeCryptoTest.class,
@@ -110,12 +117,21 @@ import org.junit.runners.Suite;
         NativeSslSessionTest.class,
         OpenSSLKeyTest.class,
         OpenSSLX509CertificateTest.class,
+        PooledBufferAllocatorTest.class,
         PlatformTest.class,
+        SSLConfigurationTest.class,
         SSLUtilsTest.class,
         ServerSessionContextTest.class,
+        SessionTicketKeysTest.class,
+        SignatureVerificationCacheTest.class,
+        SimpleChainValidatorTest.class,
         SlhDsaTest.class,
         TestSessionBuilderTest.class,
+        TimingWheelTest.class,
+        TrustDecisionCacheTest.class,
         TrustManagerImplTest.class,
+        TrustedCertificateIndexTest.class,
+        WriteBehindServerSessionCacheTest.class,
         X25519Test.class,
         XwingTest.class,
         // org.conscrypt.ct tests
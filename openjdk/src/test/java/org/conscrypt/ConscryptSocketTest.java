@@ -41,6 +41,7 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -761,6 +762,33 @@ public class ConscryptSocketTest {
         }
     }
 
+    @Test
+    public void largeWritesSpanningManyRecordsFlow() throws Exception {
+        final TestConnection connection =
+                new TestConnection(new X509Certificate[] {cert, ca}, certKey);
+        connection.doHandshakeSuccess();
+        // Large enough to need several records and, for channel-backed sockets, several
+        // batches of records.
+        final byte[] data = randomBuffer(
+                10 * connection.client.getSession().getApplicationBufferSize() + 17);
+
+        Future<byte[]> readFuture = executor.submit(() -> {
+            byte[] received = new byte[data.length];
+            InputStream in = connection.server.getInputStream();
+            int total = 0;
+            while (total < received.length) {
+                int read = in.read(received, total, received.length - total);
+                if (read == -1) {
+                    break;
+                }
+                total += read;
+            }
+            return received;
+        });
+        connection.client.getOutputStream().write(data);
+        assertArrayEquals(data, readFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
     private void sendData(SSLSocket source, final SSLSocket destination, byte[] data)
             throws Exception {
         final byte[] received = new byte[data.length];
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.conscrypt.java.security.TestKeyStore;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.KeyStore.PrivateKeyEntry;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+@RunWith(JUnit4.class)
+public class LocalCredentialCacheTest {
+    private static X509Certificate[] serverChain;
+    private static PrivateKey serverKey;
+    private static X509Certificate[] clientChain;
+    private static PrivateKey clientKey;
+
+    @BeforeClass
+    public static void initCredentials() throws Exception {
+        PrivateKeyEntry server = TestKeyStore.getServer().getPrivateKey("RSA", "RSA");
+        serverChain = toX509(server.getCertificateChain());
+        serverKey = server.getPrivateKey();
+        PrivateKeyEntry client = TestKeyStore.getClientCertificate().getPrivateKey("RSA", "RSA");
+        clientChain = toX509(client.getCertificateChain());
+        clientKey = client.getPrivateKey();
+    }
+
+    @Test
+    public void get_reusesCredentialsForSameChainAndKey() throws Exception {
+        LocalCredentialCache cache = new LocalCredentialCache();
+        LocalCredentialCache.Credentials credentials = cache.get("alias", serverChain, serverKey);
+
+        // Key managers usually return a new array holding the same certificates.
+        assertSame(credentials, cache.get("alias", serverChain.clone(), serverKey));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void get_replacesCredentialsWhenAliasChanges() throws Exception {
+        LocalCredentialCache cache = new LocalCredentialCache();
+        LocalCredentialCache.Credentials credentials = cache.get("alias", serverChain, serverKey);
+
+        LocalCredentialCache.Credentials renewed = cache.get("alias", clientChain, clientKey);
+        assertNotSame(credentials, renewed);
+        assertSame(renewed, cache.get("alias", clientChain, clientKey));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void get_keepsAliasesSeparate() throws Exception {
+        LocalCredentialCache cache = new LocalCredentialCache();
+        LocalCredentialCache.Credentials server = cache.get("server", serverChain, serverKey);
+        LocalCredentialCache.Credentials client = cache.get("client", clientChain, clientKey);
+
+        assertNotSame(server, client);
+        assertSame(server, cache.get("server", serverChain, serverKey));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void get_isBounded() throws Exception {
+        LocalCredentialCache cache = new LocalCredentialCache();
+        for (int i = 0; i < 100; i++) {
+            cache.get("alias" + i, serverChain, serverKey);
+        }
+        assertEquals(100 % 64, cache.size());
+    }
+
+    private static X509Certificate[] toX509(Certificate[] chain) {
+        return Arrays.copyOf(chain, chain.length, X509Certificate[].class);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.conscrypt.javax.net.ssl.FakeSSLSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+@RunWith(JUnit4.class)
+public class MappedClientSessionCacheTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("MappedClientSessionCacheTest", ".cache");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        FileClientSessionCache.reset();
+        file.delete();
+    }
+
+    @Test
+    public void putThenGet() throws IOException {
+        MappedClientSessionCache cache = MappedClientSessionCache.open(file, 16, 1024);
+        assertNull(cache.getSessionData("a.example", 443));
+
+        cache.putSessionData(new FakeSSLSession("a.example"), new byte[] {1, 2, 3});
+        assertArrayEquals(new byte[] {1, 2, 3}, cache.getSessionData("a.example", 443));
+        assertNull(cache.getSessionData("a.example", 8443));
+
+        cache.putSessionData(new FakeSSLSession("a.example"), new byte[] {4, 5});
+        assertArrayEquals(new byte[] {4, 5}, cache.getSessionData("a.example", 443));
+        cache.close();
+    }
+
+    @Test
+    public void oversizedSessionIsNotStored() throws IOException {
+        MappedClientSessionCache cache = MappedClientSessionCache.open(file, 16, 10);
+        cache.putSessionData(new FakeSSLSession("a.example"), new byte[11]);
+        assertNull(cache.getSessionData("a.example", 443));
+        cache.close();
+    }
+
+    @Test
+    public void sessionsSurviveReopening() throws IOException {
+        MappedClientSessionCache cache = MappedClientSessionCache.open(file, 64, 1024);
+        for (int i = 0; i < 32; i++) {
+            cache.putSessionData(new FakeSSLSession("host" + i), new byte[] {(byte) i});
+        }
+        cache.close();
+
+        MappedClientSessionCache reopened = MappedClientSessionCache.open(file, 64, 1024);
+        for (int i = 0; i < 32; i++) {
+            assertArrayEquals(new byte[] {(byte) i}, reopened.getSessionData("host" + i, 443));
+        }
+        reopened.close();
+
+        // A different layout discards the old contents.
+        reopened = MappedClientSessionCache.open(file, 32, 1024);
+        assertNull(reopened.getSessionData("host0", 443));
+        reopened.close();
+    }
+
+    @Test
+    public void lockedFileIsNotUsed() throws IOException {
+        MappedClientSessionCache cache = MappedClientSessionCache.open(file, 16, 1024);
+        cache.putSessionData(new FakeSSLSession("a.example"), new byte[] {1, 2, 3});
+
+        MappedClientSessionCache second = MappedClientSessionCache.open(file, 16, 1024);
+        assertNull(second.getSessionData("a.example", 443));
+        second.putSessionData(new FakeSSLSession("b.example"), new byte[] {4, 5});
+        assertNull(second.getSessionData("b.example", 443));
+        // Opening with a different layout doesn't clear the file while it is locked.
+        MappedClientSessionCache.open(file, 32, 1024).close();
+        second.close();
+
+        assertArrayEquals(new byte[] {1, 2, 3}, cache.getSessionData("a.example", 443));
+        cache.close();
+        assertNull(cache.getSessionData("a.example", 443));
+
+        MappedClientSessionCache reopened = MappedClientSessionCache.open(file, 16, 1024);
+        assertArrayEquals(new byte[] {1, 2, 3}, reopened.getSessionData("a.example", 443));
+        assertNull(reopened.getSessionData("b.example", 443));
+        reopened.close();
+    }
+
+    @Test
+    public void corruptRecordIsIgnored() throws IOException {
+        MappedClientSessionCache cache = MappedClientSessionCache.open(file, 1, 1024);
+        cache.putSessionData(new FakeSSLSession("a.example"), new byte[] {1, 2, 3});
+        cache.close();
+
+        // Flip the last byte of the session data, as a torn write might.
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(indexOf(raf, new byte[] {1, 2, 3}) + 2);
+            raf.write(4);
+        } finally {
+            raf.close();
+        }
+        MappedClientSessionCache reopened = MappedClientSessionCache.open(file, 1, 1024);
+        assertNull(reopened.getSessionData("a.example", 443));
+        reopened.close();
+    }
+
+    @Test
+    public void fullCacheReplacesEntries() throws IOException {
+        MappedClientSessionCache cache = MappedClientSessionCache.open(file, 4, 16);
+        for (int i = 0; i < 100; i++) {
+            cache.putSessionData(new FakeSSLSession("host" + i), new byte[] {(byte) i});
+        }
+        // The most recent session always has a slot.
+        assertArrayEquals(new byte[] {99}, cache.getSessionData("host99", 443));
+        cache.close();
+    }
+
+    @Test
+    public void usingMappedFileSharesInstances() throws IOException {
+        SSLClientSessionCache cache = FileClientSessionCache.usingMappedFile(file, 16);
+        assertNotNull(cache);
+        assertSame(cache, FileClientSessionCache.usingMappedFile(file, 16));
+        try {
+            FileClientSessionCache.usingMappedFile(file, 32);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected.
+        }
+    }
+
+    private static long indexOf(RandomAccessFile raf, byte[] pattern) throws IOException {
+        byte[] contents = new byte[(int) raf.length()];
+        raf.seek(0);
+        raf.readFully(contents);
+        outer:
+        for (int i = 0; i <= contents.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (contents[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("pattern not found");
+    }
+}
@@ -449,6 +449,50 @@ public class NativeCryptoTest {
         NativeCrypto.SSL_CTX_free(c, null);
     }
 
+    @Test
+    public void CRYPTO_BUFFER_STACK_new_withNullCertificatesShouldThrow() throws Exception {
+        assertThrows(NullPointerException.class, () -> NativeCrypto.CRYPTO_BUFFER_STACK_new(null));
+    }
+
+    @Test
+    public void CRYPTO_BUFFER_STACK_new_withEmptyCertificatesShouldThrow() throws Exception {
+        assertThrows(IllegalArgumentException.class,
+                     () -> NativeCrypto.CRYPTO_BUFFER_STACK_new(new byte[0][]));
+    }
+
+    @Test
+    public void setLocalCertChainAndPrivateKey_withNullChainShouldThrow() throws Exception {
+        long c = NativeCrypto.SSL_CTX_new();
+        long s = NativeCrypto.SSL_new(c, null);
+        assertThrows(NullPointerException.class, () -> {
+            try {
+                NativeCrypto.setLocalCertChainAndPrivateKey(s, null, null,
+                                                            SERVER_PRIVATE_KEY.getNativeRef());
+            } finally {
+                NativeCrypto.SSL_free(s, null);
+                NativeCrypto.SSL_CTX_free(c, null);
+            }
+        });
+    }
+
+    @Test
+    public void setLocalCertChainAndPrivateKey_sharesChainBetweenConnections() throws Exception {
+        NativeRef.CRYPTO_BUFFER_STACK chain = new NativeRef.CRYPTO_BUFFER_STACK(
+                NativeCrypto.CRYPTO_BUFFER_STACK_new(ENCODED_SERVER_CERTIFICATES));
+        long c = NativeCrypto.SSL_CTX_new();
+        long s1 = NativeCrypto.SSL_new(c, null);
+        long s2 = NativeCrypto.SSL_new(c, null);
+
+        NativeCrypto.setLocalCertChainAndPrivateKey(s1, null, chain,
+                                                    SERVER_PRIVATE_KEY.getNativeRef());
+        NativeCrypto.setLocalCertChainAndPrivateKey(s2, null, chain,
+                                                    SERVER_PRIVATE_KEY.getNativeRef());
+
+        NativeCrypto.SSL_free(s1, null);
+        NativeCrypto.SSL_free(s2, null);
+        NativeCrypto.SSL_CTX_free(c, null);
+    }
+
     @Test
     public void SSL_set1_tls_channel_id_withNullChannelShouldThrow() throws Exception {
         assertThrows(NullPointerException.class,
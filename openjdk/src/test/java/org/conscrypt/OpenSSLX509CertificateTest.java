@@ -17,6 +17,7 @@
 package org.conscrypt;
 
 import static org.conscrypt.TestUtils.openTestFile;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -41,7 +42,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.security.GeneralSecurityException;
 import java.util.Arrays;
+import java.util.Set;
 
 @RunWith(JUnit4.class)
 public class OpenSSLX509CertificateTest {
@@ -170,4 +173,57 @@ public class OpenSSLX509CertificateTest {
         } catch (IllegalArgumentException expected) {
         }
     }
+
+    @Test
+    public void test_verifyIsCachedOnlyForIdenticalCertificates() throws Exception {
+        OpenSSLX509Certificate ca = loadTestCertificate("ca-cert.pem");
+        OpenSSLX509Certificate cert = loadTestCertificate("cert.pem");
+        OpenSSLX509Certificate otherCa = loadTestCertificate("test_nonblocklist_ca.pem");
+
+        cert.verify(ca.getPublicKey());
+        cert.verify(ca.getPublicKey());
+        try {
+            cert.verify(otherCa.getPublicKey());
+            fail();
+        } catch (GeneralSecurityException expected) {
+        }
+
+        // The same certificate with a corrupted signature must not match the cached result.
+        byte[] encoded = cert.getEncoded();
+        encoded[encoded.length - 1] ^= 1;
+        OpenSSLX509Certificate corrupted = OpenSSLX509Certificate.fromX509Der(encoded);
+        try {
+            corrupted.verify(ca.getPublicKey());
+            fail();
+        } catch (GeneralSecurityException expected) {
+        }
+    }
+
+    @Test
+    public void test_derivedValuesAreStableCopies() throws Exception {
+        OpenSSLX509Certificate cert = loadTestCertificate("cert.pem");
+
+        byte[] encoded = cert.getEncoded();
+        encoded[0] ^= 1;
+        assertFalse(Arrays.equals(encoded, cert.getEncoded()));
+        assertEquals(cert, OpenSSLX509Certificate.fromX509Der(cert.getEncoded()));
+
+        Set<String> nonCritical = cert.getNonCriticalExtensionOIDs();
+        assertNotNull(nonCritical);
+        nonCritical.clear();
+        assertFalse(cert.getNonCriticalExtensionOIDs().isEmpty());
+
+        assertEquals(cert.getSubjectX500Principal(), cert.getSubjectX500Principal());
+        assertEquals(cert.getIssuerX500Principal(), cert.getIssuerX500Principal());
+        assertEquals(cert.getPublicKey(), cert.getPublicKey());
+    }
+
+    @Test
+    public void test_fallbackPublicKeyEncodingIsCopied() throws Exception {
+        byte[] encoded = new byte[] {0x30, 0x03, 0x02, 0x01, 0x00};
+        X509PublicKey key = new X509PublicKey("1.2.3.4", encoded.clone());
+        key.getEncoded()[0] ^= 1;
+        assertArrayEquals(encoded, key.getEncoded());
+        assertEquals(new X509PublicKey("1.2.3.4", encoded), key);
+    }
 }
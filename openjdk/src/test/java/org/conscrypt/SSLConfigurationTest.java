@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.conscrypt;
+
+import static org.conscrypt.NativeConstants.SSL_MODE_CBC_RECORD_SPLITTING;
+import static org.conscrypt.NativeConstants.SSL_OP_CIPHER_SERVER_PREFERENCE;
+import static org.conscrypt.NativeConstants.SSL_OP_NO_TICKET;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SSLConfigurationTest {
+    private static final String CIPHER_SUITE = "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256";
+
+    @Test
+    public void getSSLConfiguration_isSharedByClones() throws Exception {
+        SSLParametersImpl parameters = SSLParametersImpl.getDefault();
+        SSLConfiguration configuration = parameters.getSSLConfiguration(true);
+
+        SSLParametersImpl clone = (SSLParametersImpl) parameters.clone();
+        assertSame(configuration, clone.getSSLConfiguration(true));
+
+        // Replaced by an equal array, as when a socket's cipher suites are set explicitly.
+        clone.setEnabledCipherSuites(parameters.getEnabledCipherSuites());
+        assertSame(configuration, clone.getSSLConfiguration(true));
+    }
+
+    @Test
+    public void getSSLConfiguration_recompilesWhenConfigurationChanges() throws Exception {
+        SSLParametersImpl parameters = SSLParametersImpl.getDefault();
+        SSLConfiguration configuration = parameters.getSSLConfiguration(true);
+
+        parameters.setEnabledCipherSuites(new String[] {CIPHER_SUITE});
+        SSLConfiguration changed = parameters.getSSLConfiguration(true);
+        assertNotSame(configuration, changed);
+        assertEquals("!SSLv2:" + NativeCrypto.cipherSuiteFromJava(CIPHER_SUITE),
+                changed.getCipherString());
+
+        parameters.setNamedGroups(new String[] {"X25519"});
+        assertNotSame(changed, parameters.getSSLConfiguration(true));
+        assertArrayEquals(new int[] {NativeConstants.NID_X25519},
+                parameters.getSSLConfiguration(true).getGroups());
+    }
+
+    @Test
+    public void getSSLConfiguration_setsModeSpecificOptions() throws Exception {
+        SSLParametersImpl parameters = SSLParametersImpl.getDefault();
+        parameters.setUseSessionTickets(false);
+
+        SSLConfiguration client = parameters.getSSLConfiguration(true);
+        assertEquals(SSL_OP_NO_TICKET, client.getSetOptions());
+        assertEquals(0, client.getClearOptions());
+        assertEquals(SSL_MODE_CBC_RECORD_SPLITTING, client.getMode());
+
+        parameters.setUseSessionTickets(true);
+        SSLConfiguration server = parameters.getSSLConfiguration(false);
+        assertEquals(SSL_OP_CIPHER_SERVER_PREFERENCE, server.getSetOptions());
+        assertEquals(SSL_OP_NO_TICKET, server.getClearOptions());
+    }
+
+    @Test
+    public void getSSLConfiguration_emptyCipherSuites() throws Exception {
+        SSLParametersImpl parameters = SSLParametersImpl.getDefault();
+        parameters.setEnabledCipherSuites(new String[0]);
+        assertEquals("", parameters.getSSLConfiguration(true).getCipherString());
+    }
+}
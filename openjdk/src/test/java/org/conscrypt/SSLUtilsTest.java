@@ -26,6 +26,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -216,6 +217,21 @@ public class SSLUtilsTest {
         }
     }
 
+    @Test
+    public void getCompleteRecordsLength() {
+        // Two application data records with 3 and 2 byte bodies, then a partial record.
+        byte[] records = new byte[] {23, 3, 3, 0, 3, 1, 2, 3, 23, 3, 3, 0, 2, 4, 5, 23, 3, 3, 0, 4,
+                                     6};
+        assertEquals(15, SSLUtils.getCompleteRecordsLength(ByteBuffer.wrap(records)));
+        assertEquals(8, SSLUtils.getCompleteRecordsLength(ByteBuffer.wrap(records, 0, 14)));
+        assertEquals(7, SSLUtils.getCompleteRecordsLength(ByteBuffer.wrap(records, 8, 11)));
+        assertEquals(0, SSLUtils.getCompleteRecordsLength(ByteBuffer.wrap(records, 0, 4)));
+
+        // Parsing stops at a malformed header.
+        records[8] = 99;
+        assertEquals(8, SSLUtils.getCompleteRecordsLength(ByteBuffer.wrap(records)));
+    }
+
     private static String[] toStrings(byte[][] protocols) {
         int numProtocols = protocols.length;
         String[] out = new String[numProtocols];
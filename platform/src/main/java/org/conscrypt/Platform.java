@@ -675,4 +675,16 @@ final public class Platform {
             throw new RuntimeException(e);
         }
     }
+
+    static boolean registerSessionCacheMBean(
+            @SuppressWarnings("unused") String name,
+            @SuppressWarnings("unused") AbstractSessionContext context) {
+        // JMX is not supported on this platform.
+        return false;
+    }
+
+    static boolean unregisterSessionCacheMBean(@SuppressWarnings("unused") String name) {
+        // JMX is not supported on this platform.
+        return false;
+    }
 }